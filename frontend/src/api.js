@@ -0,0 +1,17 @@
+import axios from 'axios';
+
+const PAGE_SIZE = 500;
+
+// Списки /all отдаются страницами: курсор следующей страницы приходит
+// в заголовке X-Next-Cursor, на последней странице его нет
+export const fetchAllPages = async (path) => {
+    const items = [];
+    let after = null;
+    do {
+        const params = after === null ? { size: PAGE_SIZE } : { size: PAGE_SIZE, after };
+        const response = await axios.get(`${process.env.REACT_APP_API_URL}${path}`, { params });
+        items.push(...response.data);
+        after = response.headers['x-next-cursor'] ?? null;
+    } while (after !== null);
+    return items;
+};
@@ -2,6 +2,7 @@ import React, { useState, useEffect } from 'react';
 import {Table, Button, Space, Modal, Form, Input, Select, Tag, message, Spin} from 'antd';
 import { PlusOutlined, EditOutlined, DeleteOutlined } from '@ant-design/icons';
 import axios from 'axios';
+import { fetchAllPages } from '../api';
 
 const { Column } = Table;
 const { Option } = Select;
@@ -24,8 +25,7 @@ const AlbumList = () => {
     const fetchAlbums = async () => {
         setLoading(true);
         try {
-            const response = await axios.get(`${process.env.REACT_APP_API_URL}/albums/all`);
-            setAlbums(response.data);
+            setAlbums(await fetchAllPages('/albums/all'));
         } catch (error) {
             message.error('Failed to fetch albums');
         } finally {
@@ -36,8 +36,7 @@ const AlbumList = () => {
     const fetchArtists = async () => {
         setLoading(true);
         try {
-            const response = await axios.get(`${process.env.REACT_APP_API_URL}/artists/all`);
-            setArtists(response.data);
+            setArtists(await fetchAllPages('/artists/all'));
         } catch (error) {
             message.error('Failed to fetch artists');
         } finally {
@@ -48,8 +47,7 @@ const AlbumList = () => {
     const fetchTracks = async () => {
         setLoading(true);
         try {
-            const response = await axios.get(`${process.env.REACT_APP_API_URL}/tracks/all`);
-            setTracks(response.data);
+            setTracks(await fetchAllPages('/tracks/all'));
         } catch (error) {
             message.error('Failed to fetch tracks');
         } finally {
@@ -2,6 +2,7 @@ import React, { useState, useEffect } from 'react';
 import {Table, Button, Space, Modal, Form, Input, Select, message, Spin} from 'antd';
 import { PlusOutlined, EditOutlined, DeleteOutlined } from '@ant-design/icons';
 import axios from 'axios';
+import { fetchAllPages } from '../api';
 
 const { Column } = Table;
 const { Option } = Select;
@@ -22,8 +23,7 @@ const ArtistList = () => {
   const fetchArtists = async () => {
     setLoading(true);
     try {
-      const response = await axios.get(`${process.env.REACT_APP_API_URL}/artists/all`);
-      setArtists(response.data);
+      setArtists(await fetchAllPages('/artists/all'));
     } catch (error) {
       message.error('Failed to fetch artists');
     } finally {
@@ -34,8 +34,7 @@ const ArtistList = () => {
   const fetchAlbums = async () => {
     setLoading(true);
     try {
-      const response = await axios.get(`${process.env.REACT_APP_API_URL}/albums/all`);
-      setAlbums(response.data);
+      setAlbums(await fetchAllPages('/albums/all'));
     } catch (error) {
       message.error('Failed to fetch albums');
     } finally {
@@ -2,6 +2,7 @@ import React, { useState, useEffect } from 'react';
 import {Table, Button, Space, Modal, Form, Input, message, Spin} from 'antd';
 import { PlusOutlined, EditOutlined, DeleteOutlined } from '@ant-design/icons';
 import axios from 'axios';
+import { fetchAllPages } from '../api';
 
 const { Column } = Table;
 
@@ -19,8 +20,7 @@ const GenreList = () => {
   const fetchGenres = async () => {
     setLoading(true);
     try {
-      const response = await axios.get(`${process.env.REACT_APP_API_URL}/genres/all`);
-      setGenres(response.data);
+      setGenres(await fetchAllPages('/genres/all'));
     } catch (error) {
       message.error('Failed to fetch genres');
     } finally {
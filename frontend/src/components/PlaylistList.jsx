@@ -3,6 +3,7 @@ import { useLocation } from 'react-router-dom';
 import {Table, Button, Space, Modal, Form, Input, Select, message, Spin} from 'antd';
 import { PlusOutlined, EditOutlined, DeleteOutlined } from '@ant-design/icons';
 import axios from 'axios';
+import { fetchAllPages } from '../api';
 
 const { Column } = Table;
 const { Option } = Select;
@@ -29,12 +30,13 @@ const PlaylistList = () => {
   const fetchPlaylists = async () => {
     setLoading(true);
     try {
-      const url = authorId
-          ? `${process.env.REACT_APP_API_URL}/playlists?authorId=${authorId}`
-          : `${process.env.REACT_APP_API_URL}/playlists/all`;
-
-      const response = await axios.get(url);
-      setPlaylists(response.data);
+      if (authorId) {
+        const response = await axios.get(
+            `${process.env.REACT_APP_API_URL}/playlists?authorId=${authorId}`);
+        setPlaylists(response.data);
+      } else {
+        setPlaylists(await fetchAllPages('/playlists/all'));
+      }
     } catch (error) {
       if (authorId) {
         setPlaylists(null);
@@ -49,8 +51,7 @@ const PlaylistList = () => {
   const fetchUsers = async () => {
     setLoading(true);
     try {
-      const response = await axios.get(`${process.env.REACT_APP_API_URL}/users/all`);
-      setUsers(response.data);
+      setUsers(await fetchAllPages('/users/all'));
     } catch (error) {
       message.error('Failed to fetch users');
     } finally {
@@ -61,8 +62,7 @@ const PlaylistList = () => {
   const fetchAllTracks = async () => {
     setLoading(true);
     try {
-      const response = await axios.get(`${process.env.REACT_APP_API_URL}/tracks/all`);
-      setAllTracks(response.data);
+      setAllTracks(await fetchAllPages('/tracks/all'));
     } catch (error) {
       message.error('Failed to fetch tracks');
     } finally {
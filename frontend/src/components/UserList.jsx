@@ -2,6 +2,7 @@ import React, { useState, useEffect } from 'react';
 import {Table, Button, Space, Modal, Form, Input, message, Spin} from 'antd';
 import { PlusOutlined, EditOutlined, DeleteOutlined, UserOutlined } from '@ant-design/icons';
 import axios from 'axios';
+import { fetchAllPages } from '../api';
 import Column from "antd/es/table/Column";
 
 const UserList = ({ currentUser, onUserUpdate }) => {
@@ -18,8 +19,7 @@ const UserList = ({ currentUser, onUserUpdate }) => {
     const fetchUsers = async () => {
         setLoading(true);
         try {
-            const response = await axios.get(`${process.env.REACT_APP_API_URL}/users/all`);
-            setUsers(response.data);
+            setUsers(await fetchAllPages('/users/all'));
         } catch (error) {
             message.error('Failed to fetch users');
         } finally {
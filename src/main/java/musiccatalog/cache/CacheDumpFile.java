@@ -0,0 +1,111 @@
+package musiccatalog.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+// Файл с содержимым кэша для тёплого перезапуска:
+// заголовок (сигнатура, версия формата, отметка журнала инвалидаций),
+// затем записи - ключ, теги, срок жизни по часам и снимок в формате SnapshotCodec
+final class CacheDumpFile {
+
+    private static final int MAGIC = 0x4D434448;
+    private static final int FORMAT_VERSION = 2;
+
+    private CacheDumpFile() {
+    }
+
+    record DumpedEntry(Set<String> tags, long expiresAtMillis, byte[] bytes) {
+    }
+
+    // Пишем во временный файл и переименовываем, чтобы прерванная остановка
+    // не оставила обрезанный дамп
+    static void write(Path file, long mark, Map<String, DumpedEntry> entries) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(mark);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, DumpedEntry> entry : entries.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().tags().size());
+                for (String tag : entry.getValue().tags()) {
+                    writeString(out, tag);
+                }
+                out.writeLong(entry.getValue().expiresAtMillis());
+                out.writeInt(entry.getValue().bytes().length);
+                out.write(entry.getValue().bytes());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Отметка журнала инвалидаций, на момент которой снят дамп;
+    // -1, если файл другого формата или версии
+    static long readMark(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 16) {
+                return -1;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 16);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                return -1;
+            }
+            return header.getLong();
+        }
+    }
+
+    // Файл отображается в память целиком и разбирается без промежуточных потоков
+    static void read(Path file, BiConsumer<String, DumpedEntry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return;
+            }
+            buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                int tagsCount = buffer.getInt();
+                Set<String> tags = new HashSet<>(tagsCount);
+                for (int t = 0; t < tagsCount; t++) {
+                    tags.add(readString(buffer));
+                }
+                long expiresAtMillis = buffer.getLong();
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                consumer.accept(key, new DumpedEntry(Set.copyOf(tags), expiresAtMillis, bytes));
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
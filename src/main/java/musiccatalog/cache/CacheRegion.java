@@ -0,0 +1,416 @@
+package musiccatalog.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class CacheRegion {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheRegion.class);
+    private static final AtomicLong STAMPS = new AtomicLong();
+
+    private final String name;
+    private final int maxSize;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, KeyFamilyMetrics> families = new ConcurrentHashMap<>();
+
+    // maxWeight - бюджет региона в байтах, 0 - ограничение только по числу записей
+    CacheRegion(String name, int maxSize, long maxWeight, Duration ttl, EvictionPolicy eviction,
+                int concurrencyLevel, MeterRegistry meterRegistry,
+                EntryListener onInsert, EntryListener onRemoval, EvictionListener onEviction) {
+        if (maxSize <= 0 || concurrencyLevel <= 0 || maxWeight < 0) {
+            throw new IllegalArgumentException("Размер региона кэша " + name
+                    + " и уровень параллелизма должны быть положительными,"
+                    + " а бюджет памяти - неотрицательным");
+        }
+        int segmentsCount = 1;
+        while (segmentsCount < concurrencyLevel && segmentsCount < maxSize) {
+            segmentsCount <<= 1;
+        }
+        int segmentCapacity = (maxSize + segmentsCount - 1) / segmentsCount;
+        long segmentWeight = (maxWeight + segmentsCount - 1) / segmentsCount;
+
+        this.name = name;
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.meterRegistry = meterRegistry;
+        this.ttlNanos = ttl == null || ttl.isZero() || ttl.isNegative() ? 0 : ttl.toNanos();
+        this.segmentMask = segmentsCount - 1;
+        this.segments = new Segment[segmentsCount];
+        for (int i = 0; i < segmentsCount; i++) {
+            segments[i] = new Segment(segmentCapacity, segmentWeight,
+                    eviction == EvictionPolicy.LRU, onInsert, onRemoval, onEviction);
+        }
+        Gauge.builder("cache.size", this, CacheRegion::size)
+                .tags("region", name)
+                .register(meterRegistry);
+        Gauge.builder("cache.weight", this, CacheRegion::weight)
+                .tags("region", name)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    Entry put(String key, Object value, Set<String> tags) {
+        long expiresAt = ttlNanos == 0 ? 0 : System.nanoTime() + ttlNanos;
+        return restore(key, value, tags, expiresAt);
+    }
+
+    // Кладёт запись с уже известным сроком жизни (например, поднятую из off-heap)
+    Entry restore(String key, Object value, Set<String> tags, long expiresAt) {
+        long weight = EntryWeigher.weigh(key, value, tags);
+        Entry entry = new Entry(value, tags, expiresAt, weight);
+        segmentFor(key).put(key, entry);
+        metricsFor(key).puts.increment();
+        return entry;
+    }
+
+    Object get(String key) {
+        Entry entry = segmentFor(key).get(key);
+        return entry != null ? entry.value() : null;
+    }
+
+    boolean containsKey(String key) {
+        return lookup(key) != null;
+    }
+
+    Entry lookup(String key) {
+        return lookup(key, metricsFor(key));
+    }
+
+    // metrics заранее найдены вызывающим: так поиск не вычисляет семейство по ключу
+    Entry lookup(String key, KeyFamilyMetrics metrics) {
+        Entry entry = segmentFor(key).get(key);
+        if (entry != null) {
+            entry.hits().incrementAndGet();
+            metrics.hits.increment();
+        } else {
+            metrics.misses.increment();
+        }
+        return entry;
+    }
+
+    Entry peek(String key) {
+        return segmentFor(key).get(key);
+    }
+
+    void remove(String key) {
+        segmentFor(key).remove(key);
+    }
+
+    // Удаляет ключ, только если под ним всё ещё лежит expected
+    void remove(String key, Entry expected) {
+        segmentFor(key).remove(key, expected);
+    }
+
+    boolean invalidate(String key) {
+        boolean removed = segmentFor(key).remove(key);
+        if (removed) {
+            metricsFor(key).invalidations.increment();
+        }
+        return removed;
+    }
+
+    // Удаление из региона и с нижнего уровня под блокировкой сегмента ключа:
+    // иначе вытеснение между двумя удалениями перенесло бы запись вниз,
+    // где её уже никто не инвалидирует
+    boolean invalidate(String key, Predicate<String> lowerTier) {
+        Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            return invalidate(key) | lowerTier.test(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    // Поднимает запись с нижнего уровня с прежним сроком жизни. Извлечение
+    // и вставка идут под одной блокировкой, поэтому инвалидация застаёт
+    // запись либо внизу, либо уже в регионе
+    Entry promote(String key, Function<String, Entry> lowerTier) {
+        Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            Entry entry = segment.get(key);
+            if (entry != null) {
+                return entry;
+            }
+            entry = lowerTier.apply(key);
+            if (entry != null) {
+                restore(key, entry.value(), entry.tags(), entry.expiresAt());
+            }
+            return entry;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    // Копия живых записей региона: для статистики обращений и дампа
+    void collectLive(Map<String, Entry> into) {
+        for (Segment segment : segments) {
+            segment.collectLive(into);
+        }
+    }
+
+    void recordLoad(String key, long nanos) {
+        metricsFor(key).recordLoad(nanos);
+    }
+
+    void recordCoalescedLoad(String key) {
+        metricsFor(key).coalescedLoads.increment();
+    }
+
+    void recordRefresh(String key) {
+        metricsFor(key).refreshes.increment();
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    public CacheStats stats() {
+        return CacheStats.of(name, size(), maxSize, weight(), maxWeight, families.values().stream()
+                .map(KeyFamilyMetrics::stats)
+                .sorted(Comparator.comparing(KeyFamilyStats::family))
+                .toList());
+    }
+
+    KeyFamilyMetrics metrics(String key) {
+        return metricsFor(key);
+    }
+
+    private KeyFamilyMetrics metricsFor(String key) {
+        String family = KeyFamilyMetrics.familyOf(key);
+        KeyFamilyMetrics metrics = families.get(family);
+        if (metrics != null) {
+            return metrics;
+        }
+        return families.computeIfAbsent(family,
+                f -> new KeyFamilyMetrics(name, f, meterRegistry));
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & segmentMask];
+    }
+
+    // stamp отличает запись от других записей под тем же ключом,
+    // hits - все обращения к значению, refreshHits - только в окне refresh-ahead
+    record Entry(Object value, Set<String> tags, long expiresAt, long weight, long stamp,
+                 AtomicInteger hits, AtomicInteger refreshHits) {
+
+        Entry(Object value, Set<String> tags, long expiresAt, long weight) {
+            this(value, tags, expiresAt, weight, STAMPS.incrementAndGet());
+        }
+
+        Entry(Object value, Set<String> tags, long expiresAt, long weight, long stamp) {
+            this(value, tags, expiresAt, weight, stamp, new AtomicInteger(), new AtomicInteger());
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+
+    interface EntryListener {
+        void accept(String key, Entry entry);
+    }
+
+    interface EvictionListener {
+        // true, если запись перенесена на другой уровень кэша:
+        // тогда её теги остаются привязанными к ключу
+        boolean retain(String key, Entry entry);
+    }
+
+    // Сегмент - отдельная карта со своей блокировкой, чтобы потоки,
+    // обращающиеся к разным ключам, не конкурировали за один монитор.
+    // Порядок доступа (LRU) или вставки (FIFO) определяет, кто будет вытеснен
+    // при превышении числа записей или бюджета в байтах
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Entry> entries;
+        private final int capacity;
+        private final long maxWeight;
+        private final EntryListener onInsert;
+        private final EntryListener onRemoval;
+        private final EvictionListener onEviction;
+        private long weight;
+
+        Segment(int capacity, long maxWeight, boolean accessOrder, EntryListener onInsert,
+                EntryListener onRemoval, EvictionListener onEviction) {
+            this.capacity = capacity;
+            this.maxWeight = maxWeight;
+            this.onInsert = onInsert;
+            this.onRemoval = onRemoval;
+            this.onEviction = onEviction;
+            this.entries = new LinkedHashMap<>(16, 0.75f, accessOrder);
+        }
+
+        void put(String key, Entry entry) {
+            lock.lock();
+            try {
+                Entry previous = entries.remove(key);
+                if (previous != null) {
+                    weight -= previous.weight();
+                    onRemoval.accept(key, previous);
+                }
+                if (maxWeight > 0 && entry.weight() > maxWeight) {
+                    metricsFor(key).evictions.increment();
+                    logger.debug("Cache region {} rejected {}: {} bytes over segment budget",
+                            name, key, entry.weight());
+                    return;
+                }
+                onInsert.accept(key, entry);
+                entries.put(key, entry);
+                weight += entry.weight();
+                evictOverflow();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void evictOverflow() {
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()
+                    && (entries.size() > capacity || maxWeight > 0 && weight > maxWeight)) {
+                Map.Entry<String, Entry> eldest = iterator.next();
+                iterator.remove();
+                weight -= eldest.getValue().weight();
+                if (!onEviction.retain(eldest.getKey(), eldest.getValue())) {
+                    onRemoval.accept(eldest.getKey(), eldest.getValue());
+                }
+                metricsFor(eldest.getKey()).evictions.increment();
+                logger.debug("Cache region {} evicted: {}", name, eldest.getKey());
+            }
+        }
+
+        Entry get(String key) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(key);
+                if (entry != null && entry.isExpired(System.nanoTime())) {
+                    entries.remove(key);
+                    weight -= entry.weight();
+                    onRemoval.accept(key, entry);
+                    metricsFor(key).expirations.increment();
+                    return null;
+                }
+                return entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean remove(String key) {
+            lock.lock();
+            try {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    weight -= entry.weight();
+                    onRemoval.accept(key, entry);
+                }
+                return entry != null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(String key, Entry expected) {
+            lock.lock();
+            try {
+                if (entries.get(key) == expected) {
+                    remove(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, Entry> entry = iterator.next();
+                    onRemoval.accept(entry.getKey(), entry.getValue());
+                    iterator.remove();
+                }
+                weight = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void collectLive(Map<String, Entry> into) {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                entries.forEach((key, entry) -> {
+                    if (!entry.isExpired(now)) {
+                        into.put(key, entry);
+                    }
+                });
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long weight() {
+            lock.lock();
+            try {
+                return weight;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
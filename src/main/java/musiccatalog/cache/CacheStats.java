@@ -0,0 +1,32 @@
+package musiccatalog.cache;
+
+import java.util.List;
+
+public record CacheStats(String region,
+                         int size,
+                         int maxSize,
+                         long weightBytes,
+                         long maxWeightBytes,
+                         long hits,
+                         long misses,
+                         long puts,
+                         long evictions,
+                         long expirations,
+                         long invalidations,
+                         double hitRate,
+                         List<KeyFamilyStats> families) {
+
+    static CacheStats of(String region, int size, int maxSize, long weightBytes,
+                         long maxWeightBytes, List<KeyFamilyStats> families) {
+        long hits = families.stream().mapToLong(KeyFamilyStats::hits).sum();
+        long misses = families.stream().mapToLong(KeyFamilyStats::misses).sum();
+        long requests = hits + misses;
+        return new CacheStats(region, size, maxSize, weightBytes, maxWeightBytes, hits, misses,
+                families.stream().mapToLong(KeyFamilyStats::puts).sum(),
+                families.stream().mapToLong(KeyFamilyStats::evictions).sum(),
+                families.stream().mapToLong(KeyFamilyStats::expirations).sum(),
+                families.stream().mapToLong(KeyFamilyStats::invalidations).sum(),
+                requests == 0 ? 0.0 : (double) hits / requests,
+                families);
+    }
+}
@@ -0,0 +1,282 @@
+package musiccatalog.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+import musiccatalog.dto.snapshot.AlbumSnapshot;
+import musiccatalog.dto.snapshot.ArtistSnapshot;
+import musiccatalog.dto.snapshot.GenreSnapshot;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
+import musiccatalog.dto.snapshot.TrackSnapshot;
+import musiccatalog.dto.snapshot.UserSnapshot;
+import musiccatalog.model.Album;
+import musiccatalog.model.Artist;
+import musiccatalog.model.Genre;
+import musiccatalog.model.Playlist;
+import musiccatalog.model.Track;
+import musiccatalog.model.User;
+
+// Теги описывают, от каких сущностей зависит запись в кэше.
+// Методы of* возвращают теги снимков для чтения (всё, что попадает в GetDto),
+// методы affectedBy* - теги, которые нужно сбросить при изменении сущности
+public final class CacheTags {
+
+    private CacheTags() {
+    }
+
+    public static String track(Long id) {
+        return "track:" + id;
+    }
+
+    public static String trackName(String name) {
+        return "track-name:" + name;
+    }
+
+    public static String album(Long id) {
+        return "album:" + id;
+    }
+
+    public static String albumName(String name) {
+        return "album-name:" + name;
+    }
+
+    public static String artist(Long id) {
+        return "artist:" + id;
+    }
+
+    public static String artistName(String name) {
+        return "artist-name:" + name;
+    }
+
+    public static String genre(Long id) {
+        return "genre:" + id;
+    }
+
+    public static String genreName(String name) {
+        return "genre-name:" + name;
+    }
+
+    public static String playlist(Long id) {
+        return "playlist:" + id;
+    }
+
+    public static String playlistName(String name) {
+        return "playlist-name:" + name;
+    }
+
+    public static String user(Long id) {
+        return "user:" + id;
+    }
+
+    public static String userName(String name) {
+        return "user-name:" + name;
+    }
+
+    public static Set<String> of(TrackSnapshot track) {
+        Set<String> tags = new HashSet<>();
+        addTrack(tags, track);
+        return tags;
+    }
+
+    public static Set<String> of(AlbumSnapshot album) {
+        Set<String> tags = new HashSet<>();
+        addAlbum(tags, album);
+        return tags;
+    }
+
+    public static Set<String> of(ArtistSnapshot artist, String lookupTag) {
+        Set<String> tags = of(artist);
+        tags.add(lookupTag);
+        return tags;
+    }
+
+    public static Set<String> of(ArtistSnapshot artist) {
+        Set<String> tags = new HashSet<>();
+        if (artist != null) {
+            tags.add(artist(artist.id()));
+            addRefs(tags, artist.albums(), CacheTags::album);
+        }
+        return tags;
+    }
+
+    public static Set<String> of(GenreSnapshot genre, String lookupTag) {
+        Set<String> tags = of(genre);
+        tags.add(lookupTag);
+        return tags;
+    }
+
+    public static Set<String> of(GenreSnapshot genre) {
+        Set<String> tags = new HashSet<>();
+        if (genre != null) {
+            tags.add(genre(genre.id()));
+        }
+        return tags;
+    }
+
+    public static Set<String> of(PlaylistSnapshot playlist) {
+        Set<String> tags = new HashSet<>();
+        addPlaylist(tags, playlist);
+        return tags;
+    }
+
+    public static Set<String> of(UserSnapshot user, String lookupTag) {
+        Set<String> tags = of(user);
+        tags.add(lookupTag);
+        return tags;
+    }
+
+    public static Set<String> of(UserSnapshot user) {
+        Set<String> tags = new HashSet<>();
+        if (user != null) {
+            tags.add(user(user.id()));
+            addRefs(tags, user.playlistsCreated(), CacheTags::playlist);
+        }
+        return tags;
+    }
+
+    public static Set<String> ofTracks(Collection<TrackSnapshot> tracks, String lookupTag) {
+        Set<String> tags = new HashSet<>();
+        tags.add(lookupTag);
+        tracks.forEach(track -> addTrack(tags, track));
+        return tags;
+    }
+
+    public static Set<String> ofAlbums(Collection<AlbumSnapshot> albums, String lookupTag) {
+        Set<String> tags = new HashSet<>();
+        tags.add(lookupTag);
+        albums.forEach(album -> addAlbum(tags, album));
+        return tags;
+    }
+
+    public static Set<String> ofPlaylists(Collection<PlaylistSnapshot> playlists,
+                                          String lookupTag) {
+        Set<String> tags = new HashSet<>();
+        tags.add(lookupTag);
+        playlists.forEach(playlist -> addPlaylist(tags, playlist));
+        return tags;
+    }
+
+    public static Set<String> affectedBy(Track track) {
+        Set<String> tags = new HashSet<>();
+        tags.add(track(track.getId()));
+        tags.add(trackName(track.getName()));
+        if (track.getAlbum() != null) {
+            tags.add(album(track.getAlbum().getId()));
+            addArtistsWithNames(tags, track.getAlbum().getArtists());
+        }
+        addGenresWithNames(tags, track.getGenres());
+        return tags;
+    }
+
+    public static Set<String> affectedBy(Album album) {
+        Set<String> tags = new HashSet<>();
+        tags.add(album(album.getId()));
+        tags.add(albumName(album.getName()));
+        addArtistsWithNames(tags, album.getArtists());
+        if (album.getTracks() != null) {
+            for (Track track : album.getTracks()) {
+                tags.add(track(track.getId()));
+                addGenresWithNames(tags, track.getGenres());
+            }
+        }
+        return tags;
+    }
+
+    public static Set<String> affectedBy(Artist artist) {
+        Set<String> tags = new HashSet<>();
+        tags.add(artist(artist.getId()));
+        tags.add(artistName(artist.getName()));
+        if (artist.getAlbums() != null) {
+            artist.getAlbums().forEach(album -> tags.add(album(album.getId())));
+        }
+        return tags;
+    }
+
+    // Удаление без загрузки сущности: теги строятся по проекции, прочитанной до DELETE
+    public static Set<String> affectedBy(ArtistSnapshot artist) {
+        Set<String> tags = of(artist);
+        tags.add(artistName(artist.name()));
+        return tags;
+    }
+
+    public static Set<String> affectedBy(Genre genre) {
+        Set<String> tags = new HashSet<>();
+        tags.add(genre(genre.getId()));
+        tags.add(genreName(genre.getName()));
+        return tags;
+    }
+
+    public static Set<String> affectedBy(Playlist playlist) {
+        Set<String> tags = new HashSet<>();
+        tags.add(playlist(playlist.getId()));
+        tags.add(playlistName(playlist.getName()));
+        if (playlist.getAuthor() != null) {
+            tags.add(user(playlist.getAuthor().getId()));
+        }
+        return tags;
+    }
+
+    public static Set<String> affectedBy(User user) {
+        Set<String> tags = new HashSet<>();
+        tags.add(user(user.getId()));
+        tags.add(userName(user.getName()));
+        if (user.getPlaylistsCreated() != null) {
+            user.getPlaylistsCreated().forEach(playlist -> tags.add(playlist(playlist.getId())));
+        }
+        return tags;
+    }
+
+    public static Set<String> affectedBy(UserSnapshot user) {
+        Set<String> tags = of(user);
+        tags.add(userName(user.name()));
+        return tags;
+    }
+
+    private static void addTrack(Set<String> tags, TrackSnapshot track) {
+        tags.add(track(track.id()));
+        if (track.album() != null) {
+            tags.add(album(track.album().id()));
+        }
+        addRefs(tags, track.artists(), CacheTags::artist);
+        addRefs(tags, track.genres(), CacheTags::genre);
+    }
+
+    private static void addAlbum(Set<String> tags, AlbumSnapshot album) {
+        tags.add(album(album.id()));
+        addRefs(tags, album.artists(), CacheTags::artist);
+        addRefs(tags, album.tracks(), CacheTags::track);
+    }
+
+    private static void addPlaylist(Set<String> tags, PlaylistSnapshot playlist) {
+        tags.add(playlist(playlist.id()));
+        if (playlist.author() != null) {
+            tags.add(user(playlist.author().id()));
+        }
+        addRefs(tags, playlist.tracks(), CacheTags::track);
+    }
+
+    private static void addRefs(Set<String> tags, Collection<NamedRef> refs,
+                                Function<Long, String> tag) {
+        refs.forEach(ref -> tags.add(tag.apply(ref.id())));
+    }
+
+    private static void addArtistsWithNames(Set<String> tags, Collection<Artist> artists) {
+        if (artists != null) {
+            for (Artist artist : artists) {
+                tags.add(artist(artist.getId()));
+                tags.add(artistName(artist.getName()));
+            }
+        }
+    }
+
+    private static void addGenresWithNames(Set<String> tags, Collection<Genre> genres) {
+        if (genres != null) {
+            for (Genre genre : genres) {
+                tags.add(genre(genre.getId()));
+                tags.add(genreName(genre.getName()));
+            }
+        }
+    }
+}
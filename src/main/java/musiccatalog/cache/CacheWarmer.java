@@ -0,0 +1,8 @@
+package musiccatalog.cache;
+
+// Сервис, умеющий заново загрузить значение по ключу кэша своего семейства
+public interface CacheWarmer {
+
+    // false, если ключ не относится к этому сервису
+    boolean warm(String key);
+}
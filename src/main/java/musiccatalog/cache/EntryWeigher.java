@@ -0,0 +1,97 @@
+package musiccatalog.cache;
+
+import java.lang.reflect.RecordComponent;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+// Оценка памяти, удерживаемой записью кэша (64-bit JVM со сжатыми ссылками).
+// Точный подсчёт не нужен: важно, чтобы список из тысячи треков весил
+// заметно больше одного жанра. Снимки - record-классы, поэтому обходим их
+// компоненты рефлексией; всё незнакомое считаем объектом фиксированного размера
+final class EntryWeigher {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int ENTRY_OVERHEAD = 80;
+    private static final int UNKNOWN_OBJECT = 256;
+
+    private static final ClassValue<RecordComponent[]> RECORD_COMPONENTS =
+            new ClassValue<>() {
+                @Override
+                protected RecordComponent[] computeValue(Class<?> type) {
+                    return type.getRecordComponents();
+                }
+            };
+
+    private EntryWeigher() {
+    }
+
+    static long weigh(String key, Object value, Set<String> tags) {
+        long weight = ENTRY_OVERHEAD + weighString(key) + weighValue(value);
+        weight += align(16 + (long) REFERENCE * tags.size());
+        for (String tag : tags) {
+            weight += weighString(tag);
+        }
+        return weight;
+    }
+
+    static long weighValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String string) {
+            return weighString(string);
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Enum<?>) {
+            return 16;
+        }
+        if (value instanceof Collection<?> collection) {
+            long weight = align(OBJECT_HEADER + 12 + 16 + (long) REFERENCE * collection.size());
+            for (Object element : collection) {
+                weight += weighValue(element);
+            }
+            return weight;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long weight = align(OBJECT_HEADER + 36 + 16 + (long) REFERENCE * map.size() * 2);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                weight += 32 + weighValue(entry.getKey()) + weighValue(entry.getValue());
+            }
+            return weight;
+        }
+        if (value instanceof Record) {
+            return weighRecord(value);
+        }
+        return UNKNOWN_OBJECT;
+    }
+
+    private static long weighRecord(Object value) {
+        RecordComponent[] components = RECORD_COMPONENTS.get(value.getClass());
+        long shallow = OBJECT_HEADER;
+        long nested = 0;
+        for (RecordComponent component : components) {
+            Class<?> type = component.getType();
+            if (type.isPrimitive()) {
+                shallow += type == long.class || type == double.class ? 8 : 4;
+                continue;
+            }
+            shallow += REFERENCE;
+            try {
+                nested += weighValue(component.getAccessor().invoke(value));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                nested += UNKNOWN_OBJECT;
+            }
+        }
+        return align(shallow) + nested;
+    }
+
+    private static long weighString(String string) {
+        // Объект String + массив byte[]; кириллица хранится в UTF-16
+        return 24 + align(16 + 2L * string.length());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
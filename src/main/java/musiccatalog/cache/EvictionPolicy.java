@@ -0,0 +1,6 @@
+package musiccatalog.cache;
+
+public enum EvictionPolicy {
+    LRU,
+    FIFO
+}
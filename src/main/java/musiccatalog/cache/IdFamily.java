@@ -0,0 +1,21 @@
+package musiccatalog.cache;
+
+// Семейства ключей вида <регион>_id_<id> для типизированного поиска по id
+public enum IdFamily {
+    TRACKS("tracks"),
+    ALBUMS("albums"),
+    ARTISTS("artists"),
+    GENRES("genres"),
+    PLAYLISTS("playlists"),
+    USERS("users");
+
+    private final String prefix;
+
+    IdFamily(String region) {
+        this.prefix = region + "_id_";
+    }
+
+    String prefix() {
+        return prefix;
+    }
+}
@@ -0,0 +1,56 @@
+package musiccatalog.cache;
+
+// Таблица long id -> строковый ключ кэша одного семейства. Хранит уже
+// построенные строки, поэтому повторный поиск по тому же id не выполняет
+// конкатенацию. Таблица с прямой адресацией и без блокировок: при коллизии
+// слот просто перезаписывается, и ключ строится заново. Слот - неизменяемый
+// объект, так что читатель видит либо старую пару, либо новую целиком
+final class IdKeyTable {
+
+    private final String prefix;
+    private final KeyRef[] slots;
+    private final int mask;
+    private final CacheRegion region;
+    private final KeyFamilyMetrics metrics;
+    private final KeyFamilyMetrics negativeMetrics;
+
+    IdKeyTable(String prefix, int expectedKeys, CacheRegion region, CacheRegion negative) {
+        int capacity = 16;
+        while (capacity < expectedKeys * 2 && capacity < (1 << 20)) {
+            capacity <<= 1;
+        }
+        this.prefix = prefix;
+        this.slots = new KeyRef[capacity];
+        this.mask = capacity - 1;
+        this.region = region;
+        this.metrics = region.metrics(prefix);
+        this.negativeMetrics = negative.metrics(prefix);
+    }
+
+    String keyFor(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        int index = (int) (hash ^ hash >>> 32) & mask;
+        KeyRef ref = slots[index];
+        if (ref != null && ref.id() == id) {
+            return ref.key();
+        }
+        String key = prefix + id;
+        slots[index] = new KeyRef(id, key);
+        return key;
+    }
+
+    CacheRegion region() {
+        return region;
+    }
+
+    KeyFamilyMetrics metrics() {
+        return metrics;
+    }
+
+    KeyFamilyMetrics negativeMetrics() {
+        return negativeMetrics;
+    }
+
+    private record KeyRef(long id, String key) {
+    }
+}
@@ -1,44 +1,463 @@
 package musiccatalog.cache;
 
-import java.util.LinkedHashMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.logging.Logger;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import musiccatalog.config.CacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @Component
 public class InMemoryCache {
-    private final Map<String, Object> cache = new LinkedHashMap<>();
-    private static final int MAX_SIZE = 100;
 
-    public void put(String key, Object value) {
-        if (cache.size() >= MAX_SIZE) {
-            String oldestKey = cache.keySet().iterator().next();
-            cache.remove(oldestKey);
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryCache.class);
+    private static final String DEFAULT_REGION = "default";
+    private static final String NEGATIVE_REGION = "negative";
+    private static final int LOG_SAMPLE_MASK = 1023;
+
+    private final CacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CacheRegion> regions = new ConcurrentHashMap<>();
+
+    // Тег -> ключи со штампом записи, которая привязала тег. Отвязывает тег
+    // только та же запись: копия, вытесненная из off-heap, не снимет теги
+    // с живой записи кучи под тем же ключом
+    private final Map<String, Map<String, Long>> keysByTag = new ConcurrentHashMap<>();
+
+    // Ключи, для которых загрузчик ничего не нашёл. Ключ лежит либо здесь,
+    // либо в своём регионе, но не в обоих сразу: индекс тегов у них общий
+    private final CacheRegion negative;
+
+    // Второй уровень для вытесненных снимков; null, если выключен
+    private final OffHeapTier offHeap;
+
+    // Загрузки, выполняющиеся прямо сейчас: остальные потоки с тем же ключом
+    // ждут этот future вместо повторного запроса в БД
+    private final Map<String, CompletableFuture<Object>> loadsInFlight =
+            new ConcurrentHashMap<>();
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final RefreshAhead refresher;
+
+    private final Map<IdFamily, IdKeyTable> idKeys = new EnumMap<>(IdFamily.class);
+    private final AtomicLong sampledHits = new AtomicLong();
+
+    // Внешние подписчики на инвалидации: журнал в БД, другие узлы
+    private final List<Consumer<Collection<String>>> invalidationListeners =
+            new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public InMemoryCache(CacheProperties properties, MeterRegistry meterRegistry,
+                         PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.refresher = new RefreshAhead(properties, meterRegistry, transactionManager);
+        CacheProperties.OffHeap offHeapSettings = properties.getOffHeap();
+        if (offHeapSettings.isEnabled()) {
+            logger.info("Cache region {} created: {}", OffHeapTier.NAME, offHeapSettings);
+            this.offHeap = new OffHeapTier(offHeapSettings.getCapacity().toBytes(),
+                    properties.getConcurrencyLevel(), meterRegistry, this::unlinkTags);
+        } else {
+            this.offHeap = null;
+        }
+        CacheProperties.Region settings = properties.getNegative();
+        logger.info("Cache region {} created: {}", NEGATIVE_REGION, settings);
+        this.negative = new CacheRegion(NEGATIVE_REGION, settings.getMaxSize(),
+                settings.getMaxWeight().toBytes(), settings.getTtl(), settings.getEviction(),
+                properties.getConcurrencyLevel(), meterRegistry,
+                this::linkTags, this::unlinkTags, (key, entry) -> false);
+        properties.getRegions().keySet().forEach(this::region);
+        for (IdFamily family : IdFamily.values()) {
+            CacheRegion region = regionFor(family.prefix());
+            idKeys.put(family, new IdKeyTable(family.prefix(),
+                    properties.regionSettings(region.getName()).getMaxSize(), region, negative));
         }
-        cache.put(key, value);
+    }
+
+    public InMemoryCache(CacheProperties properties) {
+        this(properties, new SimpleMeterRegistry(), null);
+    }
 
-        Logger logger = Logger.getLogger(InMemoryCache.class.getName());
-        String msg = String.format("New request added to cache. Current cache size: %s",
-                cache.size());
-        logger.info(msg);
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdown();
+    }
+
+    public void put(String key, Object value) {
+        put(key, value, Set.of());
+    }
+
+    public void put(String key, Object value, Collection<String> tags) {
+        negative.remove(key);
+        removeOffHeap(key);
+        regionFor(key).put(key, value, Set.copyOf(tags));
+        logger.debug("Cache put: {}", key);
     }
 
     public Object get(String key) {
-        Logger logger = Logger.getLogger(InMemoryCache.class.getName());
-        String msg = "Request from cache with key: " + key;
-        logger.info(msg);
-        return cache.get(key);
+        logger.debug("Cache get: {}", key);
+        return regionFor(key).get(key);
     }
 
     public boolean containsKey(String key) {
-        return cache.containsKey(key);
+        return regionFor(key).containsKey(key);
+    }
+
+    public <T> T getOrLoad(String key, Supplier<T> loader,
+                           Function<? super T, ? extends Collection<String>> tagger) {
+        return getOrLoad(key, loader, tagger, Set.of());
+    }
+
+    // Если загрузчик вернул null, в отрицательный регион кладётся отметка
+    // с тегами missTags: их сбросит запись, которая создаст искомую сущность
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader,
+                           Function<? super T, ? extends Collection<String>> tagger,
+                           Collection<String> missTags) {
+        CacheRegion region = regionFor(key);
+        CacheRegion.Entry cached = region.lookup(key);
+        if (cached != null) {
+            if (refresher.isDue(region, cached)) {
+                refresher.submit(key, () -> refresh(region, key, loader, tagger, missTags));
+            }
+            return (T) cached.value();
+        }
+        if (negative.lookup(key) != null) {
+            return null;
+        }
+        return loadOnMiss(region, key, loader, tagger, missTags);
+    }
+
+    // Типизированный поиск по id. При попадании не создаётся ни одного объекта:
+    // ключ-строка берётся из IdKeyTable, регион и счётчики семейства найдены
+    // заранее, а loader и missTagger вызываются только при промахе.
+    // Для этого вызывающему стоит передавать лямбды без захвата переменных
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoadById(IdFamily family, long id, LongFunction<T> loader,
+                               Function<? super T, ? extends Collection<String>> tagger,
+                               LongFunction<? extends Collection<String>> missTagger) {
+        IdKeyTable table = idKeys.get(family);
+        String key = table.keyFor(id);
+        CacheRegion region = table.region();
+        CacheRegion.Entry cached = region.lookup(key, table.metrics());
+        if (cached != null) {
+            if (refresher.isDue(region, cached)) {
+                refresher.submit(key, () -> refresh(region, key, () -> loader.apply(id),
+                        tagger, missTagger.apply(id)));
+            }
+            // Каждое попадание не логируется: только одно из LOG_SAMPLE_MASK + 1
+            if (logger.isTraceEnabled() && (sampledHits.incrementAndGet() & LOG_SAMPLE_MASK) == 0) {
+                logger.trace("Cache hit (sampled): {}", key);
+            }
+            return (T) cached.value();
+        }
+        if (negative.lookup(key, table.negativeMetrics()) != null) {
+            return null;
+        }
+        return loadOnMiss(region, key, () -> loader.apply(id), tagger, missTagger.apply(id));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T loadOnMiss(CacheRegion region, String key, Supplier<T> loader,
+                             Function<? super T, ? extends Collection<String>> tagger,
+                             Collection<String> missTags) {
+        CacheRegion.Entry cached;
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loadsInFlight.putIfAbsent(key, load);
+        if (inFlight != null) {
+            region.recordCoalescedLoad(key);
+            logger.debug("Cache load joined: {}", key);
+            return (T) await(inFlight);
+        }
+
+        try {
+            cached = region.peek(key);
+            if (cached == null) {
+                cached = negative.peek(key);
+            }
+            if (cached != null) {
+                load.complete(cached.value());
+                return (T) cached.value();
+            }
+            cached = promote(region, key);
+            if (cached != null) {
+                load.complete(cached.value());
+                return (T) cached.value();
+            }
+            T value = loadAndCache(region, key, loader, tagger, missTags);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    private <T> T loadAndCache(CacheRegion region, String key, Supplier<T> loader,
+                               Function<? super T, ? extends Collection<String>> tagger,
+                               Collection<String> missTags) {
+        long epoch = invalidationEpoch.get();
+        long startedAt = System.nanoTime();
+        T value = loader.get();
+        Set<String> tags = Set.copyOf(value != null ? tagger.apply(value) : missTags);
+        region.recordLoad(key, System.nanoTime() - startedAt);
+        // Если во время загрузки прошла инвалидация, значение могло устареть:
+        // отдаём его вызывающим, но в кэш не кладём
+        if (invalidationEpoch.get() == epoch) {
+            removeOffHeap(key);
+            CacheRegion target = value != null ? region : negative;
+            (value != null ? negative : region).remove(key);
+            CacheRegion.Entry entry = target.put(key, value, tags);
+            // Инвалидация между проверкой и вставкой могла снять теги раньше,
+            // чем их привязала вставка, и ключа уже не найдёт. Эпоха растёт до
+            // снятия тегов, поэтому повторная проверка её заметит
+            if (invalidationEpoch.get() != epoch) {
+                target.remove(key, entry);
+            }
+        }
+        return value;
+    }
+
+    // Фоновая перезагрузка горячей записи. Она регистрируется как обычная
+    // загрузка, поэтому промах по этому ключу дождётся её, а не пойдёт в БД
+    private <T> void refresh(CacheRegion region, String key, Supplier<T> loader,
+                             Function<? super T, ? extends Collection<String>> tagger,
+                             Collection<String> missTags) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        if (loadsInFlight.putIfAbsent(key, load) != null) {
+            return;
+        }
+        try {
+            load.complete(loadAndCache(region, key, loader, tagger, missTags));
+            region.recordRefresh(key);
+            logger.debug("Cache refreshed: {}", key);
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            logger.warn("Cache refresh failed: {}", key, e);
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    public void invalidate(Collection<String> tags) {
+        invalidateLocally(tags);
+        for (Consumer<Collection<String>> listener : invalidationListeners) {
+            listener.accept(tags);
+        }
+    }
+
+    // Инвалидация, пришедшая с другого узла: подписчикам не передаётся,
+    // иначе узлы пересылали бы её друг другу бесконечно
+    public void applyRemoteInvalidation(Collection<String> tags) {
+        invalidateLocally(tags);
+    }
+
+    private void invalidateLocally(Collection<String> tags) {
+        invalidationEpoch.incrementAndGet();
+        int removed = 0;
+        for (String tag : tags) {
+            Map<String, Long> keys = keysByTag.remove(tag);
+            if (keys == null) {
+                continue;
+            }
+            for (String key : keys.keySet()) {
+                if (regionFor(key).invalidate(key, this::invalidateOffHeap)
+                        | negative.invalidate(key)) {
+                    removed++;
+                }
+            }
+        }
+        logger.debug("Cache invalidated {} entries by tags {}", removed, tags);
+    }
+
+    public void addInvalidationListener(Consumer<Collection<String>> listener) {
+        invalidationListeners.add(listener);
     }
 
     public void clear() {
-        cache.clear();
-        Logger logger = Logger.getLogger(InMemoryCache.class.getName());
-        String msg = String.format("Cache cleared. Current cache size: %s", cache.size());
-        logger.info(msg);
+        invalidationEpoch.incrementAndGet();
+        regions.values().forEach(CacheRegion::clear);
+        negative.clear();
+        if (offHeap != null) {
+            offHeap.clear();
+        }
+        keysByTag.clear();
+        logger.debug("Cache cleared");
+    }
+
+    public int size() {
+        return regions.values().stream().mapToInt(CacheRegion::size).sum() + negative.size()
+                + (offHeap != null ? offHeap.size() : 0);
+    }
+
+    public List<CacheStats> getStats() {
+        Stream<CacheStats> stats = Stream.concat(regions.values().stream(), Stream.of(negative))
+                .map(CacheRegion::stats);
+        if (offHeap != null) {
+            stats = Stream.concat(stats, Stream.of(offHeap.stats()));
+        }
+        return stats.sorted(Comparator.comparing(CacheStats::region)).toList();
+    }
+
+    // Обращения к живым записям кучи по ключам - основа списка для прогрева
+    public Map<String, Integer> getHitCounts() {
+        Map<String, CacheRegion.Entry> live = new HashMap<>();
+        regions.values().forEach(region -> region.collectLive(live));
+        Map<String, Integer> hits = new HashMap<>();
+        live.forEach((key, entry) -> hits.put(key, entry.hits().get()));
+        return hits;
+    }
+
+    // Сохраняет записи кучи, которые умеет сериализовать SnapshotCodec.
+    // mark - отметка журнала инвалидаций, по которой дамп проверят при загрузке
+    public int dump(Path file, long mark) throws IOException {
+        Map<String, CacheRegion.Entry> live = new HashMap<>();
+        regions.values().forEach(region -> region.collectLive(live));
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        Map<String, CacheDumpFile.DumpedEntry> dumped = new HashMap<>();
+        live.forEach((key, entry) -> {
+            byte[] bytes = SnapshotCodec.encode(entry.value());
+            if (bytes != null) {
+                // Срок жизни переводим в настенное время: простой между
+                // остановкой и стартом тоже засчитывается в TTL
+                long expiresAtMillis = entry.expiresAt() == 0 ? 0
+                        : nowMillis + (entry.expiresAt() - nowNanos) / 1_000_000;
+                dumped.put(key, new CacheDumpFile.DumpedEntry(entry.tags(), expiresAtMillis,
+                        bytes));
+            }
+        });
+        CacheDumpFile.write(file, mark, dumped);
+        logger.info("Cache dumped {} entries to {}", dumped.size(), file);
+        return dumped.size();
+    }
+
+    // Загружает дамп; staleTagsSince по отметке дампа возвращает теги,
+    // инвалидированные после неё. Записи с такими тегами и истёкшие отбрасываются
+    public int restore(Path file, LongFunction<Set<String>> staleTagsSince) throws IOException {
+        long mark = CacheDumpFile.readMark(file);
+        if (mark < 0) {
+            logger.warn("Cache dump {} has unknown format, skipped", file);
+            return 0;
+        }
+        Set<String> staleTags = staleTagsSince.apply(mark);
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        int[] restored = new int[1];
+        CacheDumpFile.read(file, (key, entry) -> {
+            long ttlMillis = entry.expiresAtMillis() - nowMillis;
+            if (entry.expiresAtMillis() != 0 && ttlMillis <= 0
+                    || entry.tags().stream().anyMatch(staleTags::contains)) {
+                return;
+            }
+            long expiresAt = entry.expiresAtMillis() == 0 ? 0 : nowNanos + ttlMillis * 1_000_000;
+            negative.remove(key);
+            removeOffHeap(key);
+            regionFor(key).restore(key, SnapshotCodec.decode(entry.bytes()), entry.tags(),
+                    expiresAt);
+            restored[0]++;
+        });
+        logger.info("Cache restored {} entries from {}, {} tags stale", restored[0], file,
+                staleTags.size());
+        return restored[0];
+    }
+
+    // Регион определяется префиксом ключа: tracks_id_1 -> tracks
+    static String regionName(String key) {
+        int separator = key.indexOf('_');
+        return separator > 0 ? key.substring(0, separator) : DEFAULT_REGION;
+    }
+
+    private CacheRegion regionFor(String key) {
+        String name = regionName(key);
+        CacheRegion region = regions.get(name);
+        if (region != null) {
+            return region;
+        }
+        return region(properties.getRegions().containsKey(name) ? name : DEFAULT_REGION);
+    }
+
+    private CacheRegion region(String name) {
+        return regions.computeIfAbsent(name, n -> {
+            CacheProperties.Region settings = properties.regionSettings(n);
+            logger.info("Cache region {} created: {}", n, settings);
+            boolean tiered = offHeap != null
+                    && properties.getOffHeap().getRegions().contains(n);
+            return new CacheRegion(n, settings.getMaxSize(),
+                    settings.getMaxWeight().toBytes(), settings.getTtl(), settings.getEviction(),
+                    properties.getConcurrencyLevel(), meterRegistry, this::linkTags,
+                    this::unlinkTags, tiered ? offHeap::demote : (key, entry) -> false);
+        });
+    }
+
+    private CacheRegion.Entry promote(CacheRegion region, String key) {
+        return offHeap != null ? region.promote(key, offHeap::promote) : null;
+    }
+
+    private void removeOffHeap(String key) {
+        if (offHeap != null) {
+            offHeap.remove(key);
+        }
     }
-}
 
+    private boolean invalidateOffHeap(String key) {
+        return offHeap != null && offHeap.invalidate(key);
+    }
+
+    private static Object await(CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void linkTags(String key, CacheRegion.Entry entry) {
+        for (String tag : entry.tags()) {
+            keysByTag.compute(tag, (t, keys) -> {
+                Map<String, Long> linked = keys != null ? keys : new ConcurrentHashMap<>();
+                linked.put(key, entry.stamp());
+                return linked;
+            });
+        }
+    }
+
+    private void unlinkTags(String key, CacheRegion.Entry entry) {
+        for (String tag : entry.tags()) {
+            keysByTag.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(key, entry.stamp());
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package musiccatalog.cache;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import musiccatalog.config.CacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Рассылает локальные инвалидации остальным узлам и применяет чужие.
+// Теги копятся в течение окна debounce с момента первого из них и уходят
+// одним сообщением, поэтому серия записей не превращается в шторм уведомлений.
+// Пачка, набравшая maxBatchTags тегов, отправляется сразу
+@Component
+public class InvalidationBroadcaster implements InvalidationTransport.Subscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBroadcaster.class);
+
+    private final String node = UUID.randomUUID().toString();
+    private final InMemoryCache cache;
+    private final InvalidationTransport transport;
+    private final CacheProperties.Invalidation settings;
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Set<String> pending = new HashSet<>();
+    private boolean flushScheduled;
+
+    @Autowired
+    public InvalidationBroadcaster(InMemoryCache cache, InvalidationTransport transport,
+                                   CacheProperties properties) {
+        this.cache = cache;
+        this.transport = transport;
+        this.settings = properties.getInvalidation();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "cache-invalidation-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cache.addInvalidationListener(this::enqueue);
+        transport.subscribe(this);
+    }
+
+    @Override
+    public void onMessage(InvalidationMessage message) {
+        if (node.equals(message.node())) {
+            return;
+        }
+        logger.debug("Cache invalidation received from {}: {}", message.node(), message.tags());
+        cache.applyRemoteInvalidation(message.tags());
+    }
+
+    @Override
+    public void onMessagesLost() {
+        // Какие записи устарели, неизвестно: надёжнее начать с пустого кэша
+        logger.warn("Cache invalidation messages may have been lost, clearing cache");
+        cache.clear();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        scheduler.shutdownNow();
+    }
+
+    private void enqueue(Collection<String> tags) {
+        Set<String> batch = null;
+        lock.lock();
+        try {
+            pending.addAll(tags);
+            if (pending.size() >= settings.getMaxBatchTags()) {
+                batch = drain();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, settings.getDebounce().toMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        publish(batch);
+    }
+
+    private void flush() {
+        Set<String> batch;
+        lock.lock();
+        try {
+            batch = drain();
+        } finally {
+            lock.unlock();
+        }
+        publish(batch);
+    }
+
+    private Set<String> drain() {
+        Set<String> batch = pending;
+        pending = new HashSet<>();
+        flushScheduled = false;
+        return batch;
+    }
+
+    private void publish(Set<String> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        transport.publish(new InvalidationMessage(node, Set.copyOf(batch)));
+    }
+}
@@ -0,0 +1,7 @@
+package musiccatalog.cache;
+
+import java.util.Set;
+
+// Пачка тегов, инвалидированных на узле node
+public record InvalidationMessage(String node, Set<String> tags) {
+}
@@ -0,0 +1,17 @@
+package musiccatalog.cache;
+
+// Канал, по которому узлы обмениваются инвалидациями кэша
+public interface InvalidationTransport {
+
+    void publish(InvalidationMessage message);
+
+    void subscribe(Subscriber subscriber);
+
+    interface Subscriber {
+
+        void onMessage(InvalidationMessage message);
+
+        // Канал прерывался, и часть сообщений могла потеряться
+        void onMessagesLost();
+    }
+}
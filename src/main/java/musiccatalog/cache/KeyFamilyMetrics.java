@@ -0,0 +1,77 @@
+package musiccatalog.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчики одного семейства ключей (tracks_id, tracks_artist, ...).
+// Те же значения регистрируются в Micrometer, чтобы их видел Actuator
+final class KeyFamilyMetrics {
+
+    private final String family;
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder puts = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder expirations = new LongAdder();
+    final LongAdder invalidations = new LongAdder();
+    final LongAdder coalescedLoads = new LongAdder();
+    final LongAdder refreshes = new LongAdder();
+    private final Timer loadTimer;
+
+    KeyFamilyMetrics(String region, String family, MeterRegistry registry) {
+        this.family = family;
+        registerCounter(registry, "cache.gets", region, hits, "result", "hit");
+        registerCounter(registry, "cache.gets", region, misses, "result", "miss");
+        registerCounter(registry, "cache.puts", region, puts, null, null);
+        registerCounter(registry, "cache.evictions", region, evictions, "cause", "size");
+        registerCounter(registry, "cache.evictions", region, expirations, "cause", "expired");
+        registerCounter(registry, "cache.invalidations", region, invalidations, null, null);
+        registerCounter(registry, "cache.loads.coalesced", region, coalescedLoads, null, null);
+        registerCounter(registry, "cache.refreshes", region, refreshes, null, null);
+        this.loadTimer = Timer.builder("cache.load")
+                .description("Время загрузки значения при промахе кэша")
+                .tags("region", region, "family", family)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    void recordLoad(long nanos) {
+        loadTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    KeyFamilyStats stats() {
+        return new KeyFamilyStats(family, hits.sum(), misses.sum(), puts.sum(),
+                evictions.sum(), expirations.sum(), invalidations.sum(),
+                loadTimer.count(), coalescedLoads.sum(), refreshes.sum(),
+                loadTimer.mean(TimeUnit.MILLISECONDS),
+                loadTimer.max(TimeUnit.MILLISECONDS));
+    }
+
+    private void registerCounter(MeterRegistry registry, String name, String region,
+                                 LongAdder adder, String tagKey, String tagValue) {
+        FunctionCounter.Builder<LongAdder> builder = FunctionCounter
+                .builder(name, adder, LongAdder::sum)
+                .tags("region", region, "family", family);
+        if (tagKey != null) {
+            builder.tag(tagKey, tagValue);
+        }
+        builder.register(registry);
+    }
+
+    // Семейство - префикс ключа до второго '_': tracks_artist_Имя -> tracks_artist
+    static String familyOf(String key) {
+        int first = key.indexOf('_');
+        if (first < 0) {
+            return key;
+        }
+        int second = key.indexOf('_', first + 1);
+        return second < 0 ? key.substring(0, first) : key.substring(0, second);
+    }
+}
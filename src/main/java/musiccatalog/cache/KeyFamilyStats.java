@@ -0,0 +1,15 @@
+package musiccatalog.cache;
+
+public record KeyFamilyStats(String family,
+                             long hits,
+                             long misses,
+                             long puts,
+                             long evictions,
+                             long expirations,
+                             long invalidations,
+                             long loads,
+                             long coalescedLoads,
+                             long refreshes,
+                             double meanLoadMillis,
+                             double maxLoadMillis) {
+}
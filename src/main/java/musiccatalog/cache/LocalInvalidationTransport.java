@@ -0,0 +1,22 @@
+package musiccatalog.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Доставка внутри одного процесса: для одиночного узла и тестов
+public class LocalInvalidationTransport implements InvalidationTransport {
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onMessage(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+}
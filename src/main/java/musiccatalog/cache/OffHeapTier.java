@@ -0,0 +1,288 @@
+package musiccatalog.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Второй уровень кэша вне кучи: сериализованные снимки лежат в direct ByteBuffer
+// и не нагружают сборщик мусора. Каждый сегмент - кольцевой буфер, запись идёт
+// подряд, а при переполнении перезаписываются самые старые данные (FIFO).
+// Сюда попадают записи, вытесненные из кучи; при обращении они поднимаются обратно
+final class OffHeapTier {
+
+    static final String NAME = "off-heap";
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapTier.class);
+
+    private final long capacity;
+    private final Arena[] arenas;
+    private final int arenaMask;
+    private final CacheRegion.EntryListener onRemoval;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, KeyFamilyMetrics> families = new ConcurrentHashMap<>();
+
+    OffHeapTier(long capacity, int concurrencyLevel, MeterRegistry meterRegistry,
+                CacheRegion.EntryListener onRemoval) {
+        if (capacity <= 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException(
+                    "Объём кэша вне кучи и уровень параллелизма должны быть положительными");
+        }
+        int arenasCount = 1;
+        while (arenasCount < concurrencyLevel) {
+            arenasCount <<= 1;
+        }
+        long arenaCapacity = capacity / arenasCount;
+        if (arenaCapacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Сегмент кэша вне кучи не может превышать 2GB");
+        }
+
+        this.capacity = capacity;
+        this.meterRegistry = meterRegistry;
+        this.onRemoval = onRemoval;
+        this.arenaMask = arenasCount - 1;
+        this.arenas = new Arena[arenasCount];
+        for (int i = 0; i < arenasCount; i++) {
+            arenas[i] = new Arena((int) arenaCapacity);
+        }
+        Gauge.builder("cache.size", this, OffHeapTier::size)
+                .tags("region", NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.weight", this, OffHeapTier::weight)
+                .tags("region", NAME)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // Вызывается при вытеснении из кучи. true - запись сохранена здесь,
+    // и её теги остаются привязанными к ключу со штампом этой записи
+    boolean demote(String key, CacheRegion.Entry entry) {
+        byte[] bytes = SnapshotCodec.encode(entry.value());
+        if (bytes == null) {
+            return false;
+        }
+        boolean stored = arenaFor(key).write(key, bytes, entry.tags(), entry.expiresAt(),
+                entry.stamp());
+        if (stored) {
+            metricsFor(key).puts.increment();
+        }
+        return stored;
+    }
+
+    // Забирает запись для возврата в кучу; теги не отвязываются,
+    // потому что запись сразу кладётся в регион под тем же ключом
+    CacheRegion.Entry promote(String key) {
+        Slot slot = arenaFor(key).take(key);
+        KeyFamilyMetrics metrics = metricsFor(key);
+        if (slot == null) {
+            metrics.misses.increment();
+            return null;
+        }
+        metrics.hits.increment();
+        return new CacheRegion.Entry(SnapshotCodec.decode(slot.bytes()), slot.tags(),
+                slot.expiresAt(), 0, slot.stamp());
+    }
+
+    void remove(String key) {
+        arenaFor(key).remove(key);
+    }
+
+    boolean invalidate(String key) {
+        boolean removed = arenaFor(key).remove(key);
+        if (removed) {
+            metricsFor(key).invalidations.increment();
+        }
+        return removed;
+    }
+
+    void clear() {
+        for (Arena arena : arenas) {
+            arena.clear();
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Arena arena : arenas) {
+            size += arena.size();
+        }
+        return size;
+    }
+
+    long weight() {
+        long weight = 0;
+        for (Arena arena : arenas) {
+            weight += arena.liveBytes();
+        }
+        return weight;
+    }
+
+    CacheStats stats() {
+        return CacheStats.of(NAME, size(), 0, weight(), capacity, families.values().stream()
+                .map(KeyFamilyMetrics::stats)
+                .sorted(Comparator.comparing(KeyFamilyStats::family))
+                .toList());
+    }
+
+    private KeyFamilyMetrics metricsFor(String key) {
+        String family = KeyFamilyMetrics.familyOf(key);
+        KeyFamilyMetrics metrics = families.get(family);
+        if (metrics != null) {
+            return metrics;
+        }
+        return families.computeIfAbsent(family,
+                f -> new KeyFamilyMetrics(NAME, f, meterRegistry));
+    }
+
+    private Arena arenaFor(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return arenas[hash & arenaMask];
+    }
+
+    // position - абсолютное смещение записи с начала работы сегмента:
+    // данные живы, пока буфер не прошёл после них полный круг
+    private record Slot(String key, long position, int length, Set<String> tags,
+                        long expiresAt, long stamp, byte[] bytes) {
+
+        Slot withBytes(byte[] bytes) {
+            return new Slot(key, position, length, tags, expiresAt, stamp, bytes);
+        }
+    }
+
+    private final class Arena {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer buffer;
+        private final int capacity;
+        private final Map<String, Slot> slots = new HashMap<>();
+        private final ArrayDeque<Slot> writeOrder = new ArrayDeque<>();
+        private long writePosition;
+        private long liveBytes;
+
+        Arena(int capacity) {
+            this.capacity = capacity;
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        boolean write(String key, byte[] bytes, Set<String> tags, long expiresAt, long stamp) {
+            if (bytes.length > capacity) {
+                return false;
+            }
+            lock.lock();
+            try {
+                long start = writePosition;
+                int offset = (int) (start % capacity);
+                if (offset + bytes.length > capacity) {
+                    start += capacity - offset;
+                    offset = 0;
+                }
+                long end = start + bytes.length;
+                while (!writeOrder.isEmpty()
+                        && writeOrder.peekFirst().position() + capacity < end) {
+                    Slot overwritten = writeOrder.pollFirst();
+                    if (slots.get(overwritten.key()) == overwritten) {
+                        slots.remove(overwritten.key());
+                        liveBytes -= overwritten.length();
+                        onRemoval.accept(overwritten.key(), toEntry(overwritten));
+                        metricsFor(overwritten.key()).evictions.increment();
+                        logger.debug("Cache region {} evicted: {}", NAME, overwritten.key());
+                    }
+                }
+                buffer.put(offset, bytes);
+                Slot slot = new Slot(key, start, bytes.length, tags, expiresAt, stamp, null);
+                Slot previous = slots.put(key, slot);
+                if (previous != null) {
+                    // Теги заменённой копии отвязываются по её штампу:
+                    // общие с новой записью теги уже перепривязаны ею
+                    liveBytes -= previous.length();
+                    onRemoval.accept(key, toEntry(previous));
+                }
+                writeOrder.addLast(slot);
+                liveBytes += bytes.length;
+                writePosition = end;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Slot take(String key) {
+            lock.lock();
+            try {
+                Slot slot = slots.remove(key);
+                if (slot == null) {
+                    return null;
+                }
+                liveBytes -= slot.length();
+                if (slot.expiresAt() != 0 && System.nanoTime() - slot.expiresAt() >= 0) {
+                    onRemoval.accept(key, toEntry(slot));
+                    metricsFor(key).expirations.increment();
+                    return null;
+                }
+                byte[] bytes = new byte[slot.length()];
+                buffer.get((int) (slot.position() % capacity), bytes);
+                return slot.withBytes(bytes);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean remove(String key) {
+            lock.lock();
+            try {
+                Slot slot = slots.remove(key);
+                if (slot != null) {
+                    liveBytes -= slot.length();
+                    onRemoval.accept(key, toEntry(slot));
+                }
+                return slot != null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                slots.forEach((key, slot) -> onRemoval.accept(key, toEntry(slot)));
+                slots.clear();
+                writeOrder.clear();
+                liveBytes = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return slots.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long liveBytes() {
+            lock.lock();
+            try {
+                return liveBytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private CacheRegion.Entry toEntry(Slot slot) {
+            return new CacheRegion.Entry(null, slot.tags(), slot.expiresAt(), slot.length(),
+                    slot.stamp());
+        }
+    }
+}
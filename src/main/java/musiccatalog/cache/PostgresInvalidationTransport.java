@@ -0,0 +1,148 @@
+package musiccatalog.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Инвалидации через PostgreSQL NOTIFY/LISTEN: все реплики уже подключены
+// к одной базе, отдельный брокер не нужен. Слушатель держит собственное
+// соединение из пула и опрашивает его в фоновом потоке
+public class PostgresInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(PostgresInvalidationTransport.class);
+    private static final String CHANNEL = "cache_invalidation";
+    // Предел полезной нагрузки NOTIFY - 8000 байт, оставляем запас на обёртку
+    private static final int MAX_PAYLOAD_BYTES = 7000;
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresInvalidationTransport(DataSource dataSource, ObjectMapper objectMapper) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+    }
+
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement =
+                     connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (String payload : split(message)) {
+                statement.setString(1, CHANNEL);
+                statement.setString(2, payload);
+                statement.execute();
+            }
+        } catch (SQLException | JsonProcessingException e) {
+            logger.warn("Cache invalidation not published: {}", message.tags(), e);
+        }
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    // Большие пачки делятся на несколько уведомлений, каждое в пределах лимита
+    private List<String> split(InvalidationMessage message) throws JsonProcessingException {
+        String payload = objectMapper.writeValueAsString(message);
+        if (payload.getBytes(StandardCharsets.UTF_8).length <= MAX_PAYLOAD_BYTES
+                || message.tags().size() == 1) {
+            return List.of(payload);
+        }
+        List<String> tags = List.copyOf(message.tags());
+        int half = tags.size() / 2;
+        List<String> payloads = new ArrayList<>(split(new InvalidationMessage(
+                message.node(), Set.copyOf(tags.subList(0, half)))));
+        payloads.addAll(split(new InvalidationMessage(message.node(),
+                Set.copyOf(tags.subList(half, tags.size())))));
+        return payloads;
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Пока соединения не было, уведомления до нас не доходили
+                if (reconnect) {
+                    subscribers.forEach(Subscriber::onMessagesLost);
+                }
+                logger.info("Cache invalidation listener started on channel {}", CHANNEL);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications =
+                            pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        deliver(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Cache invalidation listener disconnected, reconnecting", e);
+                reconnect = true;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        try {
+            InvalidationMessage message =
+                    objectMapper.readValue(payload, InvalidationMessage.class);
+            if (message.tags() == null) {
+                return;
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.onMessage(message);
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Cache invalidation message ignored: {}", payload, e);
+        }
+    }
+}
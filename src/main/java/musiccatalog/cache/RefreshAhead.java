@@ -0,0 +1,94 @@
+package musiccatalog.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import musiccatalog.config.CacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Фоновое обновление популярных записей незадолго до истечения TTL.
+// Пока идёт перезагрузка, читатели получают прежнее значение, поэтому
+// первый промах после истечения не достаётся пользователю
+final class RefreshAhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshAhead.class);
+
+    private final CacheProperties properties;
+    private final CacheProperties.Refresh settings;
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate transaction;
+    private final Map<String, Long> windows = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    RefreshAhead(CacheProperties properties, MeterRegistry meterRegistry,
+                 PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.settings = properties.getRefresh();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(settings.getThreads(), settings.getThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(settings.getQueueCapacity()),
+                task -> {
+                    Thread thread = new Thread(task, "cache-refresh-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Загрузчики строят снимки по ленивым связям сущностей, а вне запроса
+        // open-in-view сессии нет: обновление идёт в read-only транзакции
+        if (transactionManager != null) {
+            this.transaction = new TransactionTemplate(transactionManager);
+            this.transaction.setReadOnly(true);
+        } else {
+            this.transaction = null;
+        }
+        FunctionCounter.builder("cache.refreshes.rejected", rejected, LongAdder::sum)
+                .description("Обновления, отброшенные из-за переполненной очереди")
+                .register(meterRegistry);
+    }
+
+    // Запись считается горячей, если к ней обратились minHits раз
+    // в окне refreshAhead до истечения. Срабатывает один раз на запись:
+    // новое значение приходит с собственным счётчиком
+    boolean isDue(CacheRegion region, CacheRegion.Entry entry) {
+        if (entry.expiresAt() == 0) {
+            return false;
+        }
+        Long window = windows.get(region.getName());
+        if (window == null) {
+            window = windows.computeIfAbsent(region.getName(),
+                    name -> properties.regionSettings(name).getRefreshAhead().toNanos());
+        }
+        if (window <= 0 || entry.expiresAt() - System.nanoTime() > window) {
+            return false;
+        }
+        return entry.refreshHits().incrementAndGet() == settings.getMinHits();
+    }
+
+    void submit(String key, Runnable refresh) {
+        try {
+            executor.execute(() -> {
+                if (transaction != null) {
+                    transaction.executeWithoutResult(status -> refresh.run());
+                } else {
+                    refresh.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.debug("Cache refresh rejected, queue is full: {}", key);
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
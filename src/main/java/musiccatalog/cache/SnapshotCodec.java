@@ -0,0 +1,214 @@
+package musiccatalog.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import musiccatalog.dto.snapshot.AlbumSnapshot;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
+import musiccatalog.dto.snapshot.TrackSnapshot;
+
+// Компактная бинарная форма снимков треков, альбомов и плейлистов
+// (и списков из них) для хранения вне кучи. Первый байт - вид значения
+final class SnapshotCodec {
+
+    private static final byte TRACK = 1;
+    private static final byte ALBUM = 2;
+    private static final byte PLAYLIST = 3;
+    private static final byte TRACK_LIST = 11;
+    private static final byte ALBUM_LIST = 12;
+    private static final byte PLAYLIST_LIST = 13;
+
+    private SnapshotCodec() {
+    }
+
+    // null, если значение нельзя сериализовать: такие записи остаются только в куче
+    static byte[] encode(Object value) {
+        byte kind = kindOf(value);
+        if (kind == 0) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(kind);
+            switch (kind) {
+                case TRACK -> writeTrack(out, (TrackSnapshot) value);
+                case ALBUM -> writeAlbum(out, (AlbumSnapshot) value);
+                case PLAYLIST -> writePlaylist(out, (PlaylistSnapshot) value);
+                default -> {
+                    List<?> list = (List<?>) value;
+                    out.writeInt(list.size());
+                    for (Object element : list) {
+                        switch (kind) {
+                            case TRACK_LIST -> writeTrack(out, (TrackSnapshot) element);
+                            case ALBUM_LIST -> writeAlbum(out, (AlbumSnapshot) element);
+                            default -> writePlaylist(out, (PlaylistSnapshot) element);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte kind = in.readByte();
+            return switch (kind) {
+                case TRACK -> readTrack(in);
+                case ALBUM -> readAlbum(in);
+                case PLAYLIST -> readPlaylist(in);
+                case TRACK_LIST, ALBUM_LIST, PLAYLIST_LIST -> readList(in, kind);
+                default -> throw new IllegalStateException(
+                        "Неизвестный вид снимка в кэше: " + kind);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte kindOf(Object value) {
+        if (value instanceof TrackSnapshot) {
+            return TRACK;
+        }
+        if (value instanceof AlbumSnapshot) {
+            return ALBUM;
+        }
+        if (value instanceof PlaylistSnapshot) {
+            return PLAYLIST;
+        }
+        if (value instanceof List<?> list && !list.isEmpty()) {
+            Class<?> type = list.get(0).getClass();
+            if (!list.stream().allMatch(type::isInstance)) {
+                return 0;
+            }
+            if (type == TrackSnapshot.class) {
+                return TRACK_LIST;
+            }
+            if (type == AlbumSnapshot.class) {
+                return ALBUM_LIST;
+            }
+            if (type == PlaylistSnapshot.class) {
+                return PLAYLIST_LIST;
+            }
+        }
+        return 0;
+    }
+
+    private static List<Object> readList(DataInput in, byte kind) throws IOException {
+        int size = in.readInt();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(switch (kind) {
+                case TRACK_LIST -> readTrack(in);
+                case ALBUM_LIST -> readAlbum(in);
+                default -> readPlaylist(in);
+            });
+        }
+        return List.copyOf(list);
+    }
+
+    private static void writeTrack(DataOutput out, TrackSnapshot track) throws IOException {
+        writeLong(out, track.id());
+        writeString(out, track.name());
+        out.writeBoolean(track.duration() != null);
+        if (track.duration() != null) {
+            out.writeInt(track.duration());
+        }
+        writeRef(out, track.album());
+        writeRefs(out, track.artists());
+        writeRefs(out, track.genres());
+    }
+
+    private static TrackSnapshot readTrack(DataInput in) throws IOException {
+        Long id = readLong(in);
+        String name = readString(in);
+        Integer duration = in.readBoolean() ? in.readInt() : null;
+        return new TrackSnapshot(id, name, duration, readRef(in), readRefs(in), readRefs(in));
+    }
+
+    private static void writeAlbum(DataOutput out, AlbumSnapshot album) throws IOException {
+        writeLong(out, album.id());
+        writeString(out, album.name());
+        writeRefs(out, album.artists());
+        writeRefs(out, album.tracks());
+    }
+
+    private static AlbumSnapshot readAlbum(DataInput in) throws IOException {
+        return new AlbumSnapshot(readLong(in), readString(in), readRefs(in), readRefs(in));
+    }
+
+    private static void writePlaylist(DataOutput out, PlaylistSnapshot playlist)
+            throws IOException {
+        writeLong(out, playlist.id());
+        writeString(out, playlist.name());
+        writeRef(out, playlist.author());
+        writeRefs(out, playlist.tracks());
+        writeLong(out, playlist.version());
+    }
+
+    private static PlaylistSnapshot readPlaylist(DataInput in) throws IOException {
+        return new PlaylistSnapshot(readLong(in), readString(in), readRef(in), readRefs(in),
+                readLong(in));
+    }
+
+    private static void writeRefs(DataOutput out, List<NamedRef> refs) throws IOException {
+        out.writeInt(refs.size());
+        for (NamedRef ref : refs) {
+            writeLong(out, ref.id());
+            writeString(out, ref.name());
+        }
+    }
+
+    private static List<NamedRef> readRefs(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<NamedRef> refs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            refs.add(new NamedRef(readLong(in), readString(in)));
+        }
+        return List.copyOf(refs);
+    }
+
+    private static void writeRef(DataOutput out, NamedRef ref) throws IOException {
+        out.writeBoolean(ref != null);
+        if (ref != null) {
+            writeLong(out, ref.id());
+            writeString(out, ref.name());
+        }
+    }
+
+    private static NamedRef readRef(DataInput in) throws IOException {
+        return in.readBoolean() ? new NamedRef(readLong(in), readString(in)) : null;
+    }
+
+    private static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,28 @@
+package musiccatalog.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javax.sql.DataSource;
+import musiccatalog.cache.InvalidationTransport;
+import musiccatalog.cache.LocalInvalidationTransport;
+import musiccatalog.cache.PostgresInvalidationTransport;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheInvalidationConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "postgres")
+    public InvalidationTransport postgresInvalidationTransport(DataSource dataSource,
+                                                               ObjectMapper objectMapper) {
+        return new PostgresInvalidationTransport(dataSource, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "local",
+            matchIfMissing = true)
+    public InvalidationTransport localInvalidationTransport() {
+        return new LocalInvalidationTransport();
+    }
+}
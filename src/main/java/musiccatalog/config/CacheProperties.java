@@ -0,0 +1,164 @@
+package musiccatalog.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import musiccatalog.cache.EvictionPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+
+    private int concurrencyLevel = 16;
+
+    private Region defaultRegion = new Region();
+
+    private Map<String, Region> regions = new HashMap<>();
+
+    // Отдельный уровень для "не найдено": короткий TTL, чтобы ошибочный
+    // промах не жил долго, даже если инвалидация его не задела
+    private Region negative = new Region(1000, Duration.ofSeconds(30));
+
+    private OffHeap offHeap = new OffHeap();
+
+    private Refresh refresh = new Refresh();
+
+    private WarmUp warmUp = new WarmUp();
+
+    private Persistence persistence = new Persistence();
+
+    private Invalidation invalidation = new Invalidation();
+
+    public Region regionSettings(String name) {
+        return regions.getOrDefault(name, defaultRegion);
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class Region {
+
+        private int maxSize = 500;
+
+        // Бюджет памяти региона по оценке EntryWeigher; 0 - без ограничения
+        private DataSize maxWeight = DataSize.ofMegabytes(16);
+
+        private Duration ttl = Duration.ofMinutes(10);
+
+        private EvictionPolicy eviction = EvictionPolicy.LRU;
+
+        // За сколько до истечения TTL горячая запись обновляется в фоне; 0 - не обновлять
+        private Duration refreshAhead = Duration.ZERO;
+
+        Region(int maxSize, Duration ttl) {
+            this.maxSize = maxSize;
+            this.ttl = ttl;
+        }
+
+        @Override
+        public String toString() {
+            return "Region{"
+                    + "maxSize=" + maxSize
+                    + ", maxWeight=" + maxWeight
+                    + ", ttl=" + ttl
+                    + ", eviction=" + eviction
+                    + ", refreshAhead=" + refreshAhead
+                    + '}';
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Refresh {
+
+        // Сколько обращений в окне refresh-ahead делают запись горячей
+        private int minHits = 3;
+
+        private int threads = 2;
+
+        // Обновления сверх очереди отбрасываются: запись просто истечёт
+        private int queueCapacity = 256;
+    }
+
+    @Getter
+    @Setter
+    public static class WarmUp {
+
+        private boolean enabled = false;
+
+        // Список самых востребованных ключей, сохраняемый при остановке
+        private String hotKeysFile = "cache/hot-keys.txt";
+
+        private int maxKeys = 500;
+
+        // Сколько прогрев может задержать готовность приложения
+        private Duration timeBudget = Duration.ofSeconds(30);
+
+        private int threads = 4;
+    }
+
+    @Getter
+    @Setter
+    public static class Persistence {
+
+        private boolean enabled = false;
+
+        private String dumpFile = "cache/cache.dump";
+
+        // Дамп старше этого срока не загружается; столько же хранится журнал инвалидаций
+        private Duration maxAge = Duration.ofHours(1);
+
+        // Сколько копить теги перед записью в журнал одной строкой
+        private Duration journalDebounce = Duration.ofSeconds(1);
+
+        private int journalMaxTags = 500;
+
+        // Как часто удалять из журнала записи старше maxAge
+        private Duration pruneInterval = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Invalidation {
+
+        // local - только внутри процесса, postgres - NOTIFY/LISTEN между репликами
+        private String transport = "local";
+
+        // Сколько копить теги перед отправкой другим узлам
+        private Duration debounce = Duration.ofMillis(50);
+
+        private int maxBatchTags = 500;
+    }
+
+    // Память под этот уровень выделяется direct-буферами сразу при старте,
+    // поэтому capacity должна укладываться в -XX:MaxDirectMemorySize
+    @Getter
+    @Setter
+    public static class OffHeap {
+
+        private boolean enabled = false;
+
+        private DataSize capacity = DataSize.ofMegabytes(256);
+
+        // Регионы, вытесненные записи которых сохраняются вне кучи
+        private List<String> regions = List.of("tracks", "albums", "playlists");
+
+        @Override
+        public String toString() {
+            return "OffHeap{"
+                    + "enabled=" + enabled
+                    + ", capacity=" + capacity
+                    + ", regions=" + regions
+                    + '}';
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package musiccatalog.config;
 
+import musiccatalog.controller.PageResponses;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,6 +22,7 @@ public class CorsConfig {
                         .allowedOrigins(allowedOrigins.split(","))
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders(PageResponses.NEXT_CURSOR_HEADER)
                         .allowCredentials(true)
                         .maxAge(3600);
             }
@@ -7,7 +7,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.util.List;
 import musiccatalog.dto.create.AlbumCreateDto;
+import musiccatalog.dto.create.BulkCreateDto;
 import musiccatalog.dto.get.AlbumGetDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.AlbumSnapshot;
 import musiccatalog.dto.update.AlbumUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Album;
@@ -38,13 +42,16 @@ public class AlbumController {
 
     @GetMapping("/all")
     @Operation(summary = "Получить все альбомы",
-            description = "Возвращает все альбомы")
+            description = "Возвращает страницу альбомов по возрастанию ID. "
+                    + "Курсор следующей страницы - в заголовке X-Next-Cursor")
     @ApiResponse(responseCode = "200", description = "Альбомы найдены успешно")
-    public ResponseEntity<List<AlbumGetDto>> getAllAlbums() {
-        List<Album> albums = albumService.getAllAlbums();
-        return ResponseEntity.ok(albums.stream()
-                .map(AlbumGetDto::new)
-                .toList());
+    public ResponseEntity<List<AlbumGetDto>> getAllAlbums(
+            @Parameter(description = "ID последней записи предыдущей страницы", example = "100")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы, не больше 500", example = "100")
+            @RequestParam(defaultValue = "100") int size) {
+        KeysetPage<AlbumSnapshot> albums = albumService.getAllAlbums(after, size);
+        return PageResponses.ok(albums.map(AlbumGetDto::new));
     }
 
     @GetMapping("{id}")
@@ -55,7 +62,7 @@ public class AlbumController {
     public ResponseEntity<AlbumGetDto> getAlbumById(
             @Parameter(description = "ID искомого альбома", example = "1")
             @PathVariable long id) {
-        Album album = albumService.getAlbumById(id)
+        AlbumSnapshot album = albumService.getAlbumById(id)
                 .orElseThrow(() -> new NotFoundException("Не найден альбом с ID " + id));
         return ResponseEntity.ok(new AlbumGetDto(album));
     }
@@ -68,7 +75,7 @@ public class AlbumController {
     public ResponseEntity<List<AlbumGetDto>> getAlbumByName(
             @Parameter(description = "Имя искомого альбома", example = "Камнем по голове")
             @RequestParam String name) {
-        List<Album> albums = albumService.getAlbumByName(name);
+        List<AlbumSnapshot> albums = albumService.getAlbumByName(name);
         if (albums.isEmpty()) {
             throw new NotFoundException("Не найден альбом с именем: " + name);
         }
@@ -85,7 +92,7 @@ public class AlbumController {
     public ResponseEntity<List<AlbumGetDto>> getAlbumByGenreName(
             @Parameter(description = "Имя жанра", example = "Рок")
             @RequestParam String genreName) {
-        List<Album> albums = albumService.getAlbumsByGenreName(genreName);
+        List<AlbumSnapshot> albums = albumService.getAlbumsByGenreName(genreName);
         if (albums.isEmpty()) {
             throw new NotFoundException("Не найдено альбомом с жанром: " + genreName);
         }
@@ -103,6 +110,18 @@ public class AlbumController {
         return new ResponseEntity<>(new AlbumGetDto(newAlbum), HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Создать много альбомов",
+            description = "Создаёт альбомы из списка, сохраняя их пакетами")
+    @ApiResponse(responseCode = "200",
+            description = "Альбомы созданы, ошибки элементов перечислены в errors")
+    @ApiResponse(responseCode = "400", description = "Пустой список")
+    public ResponseEntity<BulkCreateResult<AlbumGetDto>> createAlbumsBulk(
+            @Valid @RequestBody BulkCreateDto<AlbumCreateDto> bulkCreateDto) {
+        return ResponseEntity.ok(albumService.createAlbums(bulkCreateDto.getItems())
+                .map(AlbumGetDto::new));
+    }
+
     @PatchMapping("/{id}")
     @Operation(summary = "Обновить альбом", description = "Обновляет существующий альбом по ID")
     @ApiResponse(responseCode = "200", description = "Альбом успешно обновлен")
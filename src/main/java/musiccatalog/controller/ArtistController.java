@@ -7,7 +7,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.util.List;
 import musiccatalog.dto.create.ArtistCreateDto;
+import musiccatalog.dto.create.BulkCreateDto;
 import musiccatalog.dto.get.ArtistGetDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.ArtistSnapshot;
 import musiccatalog.dto.update.ArtistUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Artist;
@@ -38,13 +42,16 @@ public class ArtistController {
 
     @GetMapping("/all")
     @Operation(summary = "Получить всех исполнителей",
-            description = "Возвращает всех исполнителей")
+            description = "Возвращает страницу исполнителей по возрастанию ID. "
+                    + "Курсор следующей страницы - в заголовке X-Next-Cursor")
     @ApiResponse(responseCode = "200", description = "Исполнители найдены успешно")
-    public ResponseEntity<List<ArtistGetDto>> getAllArtists() {
-        List<Artist> artists = artistService.getAllArtists();
-        return ResponseEntity.ok(artists.stream()
-                .map(ArtistGetDto::new)
-                .toList());
+    public ResponseEntity<List<ArtistGetDto>> getAllArtists(
+            @Parameter(description = "ID последней записи предыдущей страницы", example = "100")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы, не больше 500", example = "100")
+            @RequestParam(defaultValue = "100") int size) {
+        KeysetPage<ArtistSnapshot> artists = artistService.getAllArtists(after, size);
+        return PageResponses.ok(artists.map(ArtistGetDto::new));
     }
 
     @GetMapping("{id}")
@@ -55,7 +62,7 @@ public class ArtistController {
     public ResponseEntity<ArtistGetDto> getArtistById(
             @Parameter(description = "ID искомого исполнителя", example = "1")
             @PathVariable long id) {
-        Artist artist = artistService.getArtistById(id)
+        ArtistSnapshot artist = artistService.getArtistById(id)
                 .orElseThrow(() -> new NotFoundException("Не найдено исполнителя с ID " + id));
         return ResponseEntity.ok(new ArtistGetDto(artist));
     }
@@ -68,7 +75,7 @@ public class ArtistController {
     public ResponseEntity<ArtistGetDto> getArtistByName(
             @Parameter(description = "Имя искомого исполнителя", example = "Король и шут")
             @RequestParam String name) {
-        Artist artist = artistService.getArtistByName(name);
+        ArtistSnapshot artist = artistService.getArtistByName(name);
         if (artist == null) {
             throw new NotFoundException("Исполнителя с указанным именем не найдено");
         }
@@ -86,6 +93,18 @@ public class ArtistController {
         return new ResponseEntity<>(new ArtistGetDto(newArtist), HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Создать много исполнителей",
+            description = "Создаёт исполнителей из списка, сохраняя их пакетами")
+    @ApiResponse(responseCode = "200",
+            description = "Исполнители созданы, ошибки элементов перечислены в errors")
+    @ApiResponse(responseCode = "400", description = "Пустой список")
+    public ResponseEntity<BulkCreateResult<ArtistGetDto>> createArtistsBulk(
+            @Valid @RequestBody BulkCreateDto<ArtistCreateDto> bulkCreateDto) {
+        return ResponseEntity.ok(artistService.createArtists(bulkCreateDto.getItems())
+                .map(ArtistGetDto::new));
+    }
+
     @PatchMapping("/{id}")
     @Operation(summary = "Обновить существующего исполнителя",
             description = "Обновляет информацию об исполнителе по его ID")
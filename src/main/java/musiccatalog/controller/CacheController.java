@@ -0,0 +1,35 @@
+package musiccatalog.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import musiccatalog.cache.CacheStats;
+import musiccatalog.cache.InMemoryCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/cache")
+@Tag(name = "Cache Controller", description = "API для контроля кэша")
+public class CacheController {
+
+    private final InMemoryCache cache;
+
+    @Autowired
+    public CacheController(InMemoryCache cache) {
+        this.cache = cache;
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Получить статистику кэша по регионам",
+            description = "Возвращает размер, вес в байтах, попадания, промахи, вытеснения, "
+                    + "инвалидации и время загрузки для каждого региона и семейства ключей кэша")
+    @ApiResponse(responseCode = "200", description = "Статистика получена успешно")
+    public ResponseEntity<List<CacheStats>> getStats() {
+        return ResponseEntity.ok(cache.getStats());
+    }
+}
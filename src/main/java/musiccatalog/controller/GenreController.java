@@ -6,8 +6,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.util.List;
+import musiccatalog.dto.create.BulkCreateDto;
 import musiccatalog.dto.create.GenreCreateDto;
+import musiccatalog.dto.get.BulkCreateResult;
 import musiccatalog.dto.get.GenreGetDto;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.GenreSnapshot;
 import musiccatalog.dto.update.GenreUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Genre;
@@ -38,13 +42,16 @@ public class GenreController {
 
     @GetMapping("/all")
     @Operation(summary = "Получить все жанры",
-            description = "Возвращает все жанры")
+            description = "Возвращает страницу жанров по возрастанию ID. "
+                    + "Курсор следующей страницы - в заголовке X-Next-Cursor")
     @ApiResponse(responseCode = "200", description = "Жанры найдены успешно")
-    public ResponseEntity<List<GenreGetDto>> getAllGenres() {
-        List<Genre> genres = genreService.getAllGenres();
-        return ResponseEntity.ok(genres.stream()
-                .map(GenreGetDto::new)
-                .toList());
+    public ResponseEntity<List<GenreGetDto>> getAllGenres(
+            @Parameter(description = "ID последней записи предыдущей страницы", example = "100")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы, не больше 500", example = "100")
+            @RequestParam(defaultValue = "100") int size) {
+        KeysetPage<GenreSnapshot> genres = genreService.getAllGenres(after, size);
+        return PageResponses.ok(genres.map(GenreGetDto::new));
     }
 
     @GetMapping("{id}")
@@ -55,7 +62,7 @@ public class GenreController {
     public ResponseEntity<GenreGetDto> getGenreById(
             @Parameter(description = "ID искомого жанра", example = "1")
             @PathVariable long id) {
-        Genre genre = genreService.getGenreById(id)
+        GenreSnapshot genre = genreService.getGenreById(id)
                 .orElseThrow(() -> new NotFoundException("Не найдено жанра с ID " + id));
         return ResponseEntity.ok(new GenreGetDto(genre));
     }
@@ -68,7 +75,7 @@ public class GenreController {
     public ResponseEntity<GenreGetDto> getGenreByName(
             @Parameter(description = "Имя искомого жанра", example = "Рок")
             @RequestParam String name) {
-        Genre genre = genreService.getGenreByName(name);
+        GenreSnapshot genre = genreService.getGenreByName(name);
         if (genre == null) {
             throw new NotFoundException("Не найдено такого жанра");
         }
@@ -85,6 +92,18 @@ public class GenreController {
         return new ResponseEntity<>(new GenreGetDto(newGenre), HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Создать много жанров",
+            description = "Создаёт жанры из списка, сохраняя их пакетами")
+    @ApiResponse(responseCode = "200",
+            description = "Жанры созданы, ошибки элементов перечислены в errors")
+    @ApiResponse(responseCode = "400", description = "Пустой список")
+    public ResponseEntity<BulkCreateResult<GenreGetDto>> createGenresBulk(
+            @Valid @RequestBody BulkCreateDto<GenreCreateDto> bulkCreateDto) {
+        return ResponseEntity.ok(genreService.createGenres(bulkCreateDto.getItems())
+                .map(GenreGetDto::new));
+    }
+
     @PatchMapping("/{id}")
     @Operation(summary = "Обновить жанр",
             description = "Обновить информацию о существующем жанре по его ID")
@@ -0,0 +1,22 @@
+package musiccatalog.controller;
+
+import java.util.List;
+import musiccatalog.dto.get.KeysetPage;
+import org.springframework.http.ResponseEntity;
+
+// Тело ответа остаётся массивом, курсор следующей страницы идёт в заголовке
+public final class PageResponses {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private PageResponses() {
+    }
+
+    static <T> ResponseEntity<List<T>> ok(KeysetPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.items());
+    }
+}
@@ -5,10 +5,19 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.PositiveOrZero;
 import java.util.Collections;
 import java.util.List;
+import musiccatalog.dto.create.BulkCreateDto;
 import musiccatalog.dto.create.PlaylistCreateDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.get.PlaylistChangesGetDto;
 import musiccatalog.dto.get.PlaylistGetDto;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
+import musiccatalog.dto.update.PlaylistEditDto;
+import musiccatalog.dto.update.PlaylistTrackMoveDto;
+import musiccatalog.dto.update.PlaylistTracksAddDto;
 import musiccatalog.dto.update.PlaylistUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Playlist;
@@ -16,6 +25,7 @@ import musiccatalog.service.PlaylistService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -27,6 +37,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@Validated
 @RequestMapping("/playlists")
 @Tag(name = "Playlist Controller", description = "API для управления плейлистами")
 public class PlaylistController {
@@ -39,13 +50,16 @@ public class PlaylistController {
 
     @GetMapping("/all")
     @Operation(summary = "Получить все плейлиста",
-            description = "Возвращает все плейлисты")
+            description = "Возвращает страницу плейлистов по возрастанию ID. "
+                    + "Курсор следующей страницы - в заголовке X-Next-Cursor")
     @ApiResponse(responseCode = "200", description = "Плейлисты найдены успешно")
-    public ResponseEntity<List<PlaylistGetDto>> getAllPlaylists() {
-        List<Playlist> playlists = playlistService.getAllPlaylists();
-        return ResponseEntity.ok(playlists.stream()
-                .map(PlaylistGetDto::new)
-                .toList());
+    public ResponseEntity<List<PlaylistGetDto>> getAllPlaylists(
+            @Parameter(description = "ID последней записи предыдущей страницы", example = "100")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы, не больше 500", example = "100")
+            @RequestParam(defaultValue = "100") int size) {
+        KeysetPage<PlaylistSnapshot> playlists = playlistService.getAllPlaylists(after, size);
+        return PageResponses.ok(playlists.map(PlaylistGetDto::new));
     }
 
     @GetMapping("{id}")
@@ -56,7 +70,7 @@ public class PlaylistController {
     public ResponseEntity<PlaylistGetDto> getPlaylistById(
             @Parameter(description = "ID искомого плейлиста", example = "1")
             @PathVariable long id) {
-        Playlist playlist = playlistService.getPlaylistById(id)
+        PlaylistSnapshot playlist = playlistService.getPlaylistById(id)
                 .orElseThrow(() -> new NotFoundException("Не найдено плейлиста с ID " + id));
         return ResponseEntity.ok(new PlaylistGetDto(playlist));
     }
@@ -69,7 +83,7 @@ public class PlaylistController {
     public ResponseEntity<List<PlaylistGetDto>> getPlaylistByName(
             @Parameter(description = "Имя искомого плейлиста", example = "MyPlaylist")
             @RequestParam String name) {
-        List<Playlist> playlists = playlistService.getPlaylistByName(name);
+        List<PlaylistSnapshot> playlists = playlistService.getPlaylistByName(name);
         if (playlists.isEmpty()) {
             throw new NotFoundException("Плейлиста с указанным именем не найдено");
         }
@@ -86,7 +100,7 @@ public class PlaylistController {
     public ResponseEntity<List<PlaylistGetDto>> getPlaylistByAuthor(
             @Parameter(description = "ID автора плейлиста", example = "1")
             @RequestParam Long authorId) {
-        List<Playlist> playlists = playlistService.getPlaylistByAuthor(authorId);
+        List<PlaylistSnapshot> playlists = playlistService.getPlaylistByAuthor(authorId);
         if (playlists.isEmpty()) {
             return ResponseEntity.status(HttpStatus.OK)
                     .body(Collections.emptyList());
@@ -107,6 +121,18 @@ public class PlaylistController {
         return new ResponseEntity<>(new PlaylistGetDto(newPlaylist), HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Создать много плейлистов",
+            description = "Создаёт плейлисты из списка, сохраняя их пакетами")
+    @ApiResponse(responseCode = "200",
+            description = "Плейлисты созданы, ошибки элементов перечислены в errors")
+    @ApiResponse(responseCode = "400", description = "Пустой список")
+    public ResponseEntity<BulkCreateResult<PlaylistGetDto>> createPlaylistsBulk(
+            @Valid @RequestBody BulkCreateDto<PlaylistCreateDto> bulkCreateDto) {
+        return ResponseEntity.ok(playlistService.createPlaylists(bulkCreateDto.getItems())
+                .map(PlaylistGetDto::new));
+    }
+
     @PatchMapping("/{id}")
     @Operation(summary = "Обновить плейлист",
             description = "Обновляет информацию о существующем плейлисте")
@@ -121,6 +147,86 @@ public class PlaylistController {
         return ResponseEntity.ok(new PlaylistGetDto(updatedPlaylist));
     }
 
+    @PostMapping("/{id}/tracks")
+    @Operation(summary = "Добавить треки в плейлист",
+            description = "Вставляет треки начиная с указанной позиции или в конец плейлиста. "
+                    + "Остальные треки плейлиста не перезаписываются")
+    @ApiResponse(responseCode = "204", description = "Треки добавлены успешно")
+    @ApiResponse(responseCode = "400", description = "Некорректный ввод")
+    @ApiResponse(responseCode = "404", description = "Плейлист, трек или позиция не найдены")
+    public ResponseEntity<Void> addTracks(
+            @Parameter(description = "ID изменяемого плейлиста", example = "1")
+            @PathVariable long id,
+            @Valid @RequestBody PlaylistTracksAddDto tracksDto) {
+        playlistService.addTracks(id, tracksDto.getTracksIds(), tracksDto.getPosition());
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @DeleteMapping("/{id}/tracks/{position}")
+    @Operation(summary = "Убрать трек из плейлиста",
+            description = "Удаляет трек, стоящий на указанной позиции (с нуля)")
+    @ApiResponse(responseCode = "204", description = "Трек убран успешно")
+    @ApiResponse(responseCode = "400", description = "Отрицательная позиция")
+    @ApiResponse(responseCode = "404", description = "Плейлист или позиция не найдены")
+    public ResponseEntity<Void> removeTrack(
+            @Parameter(description = "ID изменяемого плейлиста", example = "1")
+            @PathVariable long id,
+            @Parameter(description = "Позиция трека в плейлисте", example = "0")
+            @PathVariable
+            @PositiveOrZero(message = "Позиция в плейлисте не может быть отрицательной")
+            int position) {
+        playlistService.removeTrack(id, position);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @PostMapping("/{id}/tracks/move")
+    @Operation(summary = "Переместить трек в плейлисте",
+            description = "Переносит трек с позиции from так, чтобы он оказался на позиции to")
+    @ApiResponse(responseCode = "204", description = "Трек перемещён успешно")
+    @ApiResponse(responseCode = "400", description = "Некорректный ввод")
+    @ApiResponse(responseCode = "404", description = "Плейлист или позиция не найдены")
+    public ResponseEntity<Void> moveTrack(
+            @Parameter(description = "ID изменяемого плейлиста", example = "1")
+            @PathVariable long id,
+            @Valid @RequestBody PlaylistTrackMoveDto moveDto) {
+        playlistService.moveTrack(id, moveDto.getFrom(), moveDto.getTo());
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @PostMapping("/{id}/operations")
+    @Operation(summary = "Применить правки к плейлисту",
+            description = "Принимает операции INSERT, REMOVE и MOVE, составленные от версии "
+                    + "baseVersion. Правки, принятые после неё, учитываются: операции "
+                    + "переносятся через них. Возвращает все операции журнала после baseVersion")
+    @ApiResponse(responseCode = "200", description = "Правки приняты")
+    @ApiResponse(responseCode = "400", description = "Некорректный ввод")
+    @ApiResponse(responseCode = "404",
+            description = "Плейлист, трек, позиция или версия не найдены")
+    @ApiResponse(responseCode = "409", description = "Не удалось записать правки из-за "
+            + "непрерывных параллельных изменений")
+    public ResponseEntity<PlaylistChangesGetDto> editPlaylist(
+            @Parameter(description = "ID изменяемого плейлиста", example = "1")
+            @PathVariable long id,
+            @Valid @RequestBody PlaylistEditDto editDto) {
+        return ResponseEntity.ok(PlaylistChangesGetDto.of(editDto.getBaseVersion(),
+                playlistService.editPlaylist(id, editDto.getBaseVersion(),
+                        editDto.getOperations())));
+    }
+
+    @GetMapping("/{id}/operations")
+    @Operation(summary = "Получить правки плейлиста",
+            description = "Возвращает операции журнала после версии since по порядку")
+    @ApiResponse(responseCode = "200", description = "Правки найдены успешно")
+    @ApiResponse(responseCode = "404", description = "Плейлист или версия не найдены")
+    public ResponseEntity<PlaylistChangesGetDto> getOperations(
+            @Parameter(description = "ID плейлиста", example = "1")
+            @PathVariable long id,
+            @Parameter(description = "Версия, после которой нужны правки", example = "0")
+            @RequestParam(defaultValue = "0") long since) {
+        return ResponseEntity.ok(PlaylistChangesGetDto.of(since,
+                playlistService.getOperations(id, since)));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Удалить плейлист",
             description = "Удаляет плейлист")
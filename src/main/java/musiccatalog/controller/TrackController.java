@@ -1,19 +1,31 @@
 package musiccatalog.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import musiccatalog.dto.create.BulkCreateDto;
 import musiccatalog.dto.create.TrackCreateDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
 import musiccatalog.dto.get.TrackGetDto;
+import musiccatalog.dto.snapshot.TrackSnapshot;
 import musiccatalog.dto.update.TrackUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Track;
 import musiccatalog.service.TrackService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -24,27 +36,62 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/tracks")
 @Tag(name = "Track Controller", description = "API для управления треками")
 public class TrackController {
     private final TrackService trackService;
+    private final ObjectWriter ndjsonWriter;
 
     @Autowired
-    public TrackController(TrackService trackService) {
+    public TrackController(TrackService trackService, ObjectMapper objectMapper) {
         this.trackService = trackService;
+        // Сброс буфера после каждой строки не нужен: поток отдаётся по мере заполнения
+        this.ndjsonWriter = objectMapper.writerFor(TrackGetDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
     }
 
     @GetMapping("/all")
     @Operation(summary = "Получить все треки",
-            description = "Возвращает все треки")
+            description = "Возвращает страницу треков по возрастанию ID. "
+                    + "Курсор следующей страницы - в заголовке X-Next-Cursor")
     @ApiResponse(responseCode = "200", description = "Треки найдены успешно")
-    public ResponseEntity<List<TrackGetDto>> getAllTracks() {
-        List<Track> tracks = trackService.getAllTracks();
-        return ResponseEntity.ok(tracks.stream()
-                .map(TrackGetDto::new)
-                .toList());
+    public ResponseEntity<List<TrackGetDto>> getAllTracks(
+            @Parameter(description = "ID последней записи предыдущей страницы", example = "100")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы, не больше 500", example = "100")
+            @RequestParam(defaultValue = "100") int size) {
+        KeysetPage<TrackSnapshot> tracks = trackService.getAllTracks(after, size);
+        return PageResponses.ok(tracks.map(TrackGetDto::new));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Выгрузить все треки",
+            description = "Отдаёт все треки в формате NDJSON (один JSON-объект на строку) "
+                    + "по мере чтения из базы, не собирая список в памяти")
+    @ApiResponse(responseCode = "200", description = "Выгрузка начата")
+    public ResponseEntity<StreamingResponseBody> streamTracks() {
+        StreamingResponseBody body = out -> {
+            // Разделитель пишется только между объектами, последнюю строку закрываем сами
+            SequenceWriter writer = ndjsonWriter.writeValues(out);
+            long written = trackService.forEachTrack(track -> {
+                try {
+                    writer.write(new TrackGetDto(track));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+            if (written > 0) {
+                out.write('\n');
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .body(body);
     }
 
     @GetMapping("{id}")
@@ -55,7 +102,7 @@ public class TrackController {
     public ResponseEntity<TrackGetDto> getTrackById(
             @Parameter(description = "ID искомого трека", example = "1")
             @PathVariable long id) {
-        Track track = trackService.getTrackById(id)
+        TrackSnapshot track = trackService.getTrackById(id)
                 .orElseThrow(() -> new NotFoundException("Не найдено трека с ID = " + id));
         return ResponseEntity.ok(new TrackGetDto(track));
     }
@@ -68,7 +115,7 @@ public class TrackController {
     public ResponseEntity<List<TrackGetDto>> getTrackByName(
             @Parameter(description = "Имя искомого трека", example = "Дурак и молния")
             @RequestParam String name) {
-        List<Track> tracks = trackService.getTrackByName(name);
+        List<TrackSnapshot> tracks = trackService.getTrackByName(name);
         if (tracks.isEmpty()) {
             throw new NotFoundException("Трек с указанным именем не найден");
         }
@@ -85,7 +132,7 @@ public class TrackController {
     public ResponseEntity<List<TrackGetDto>> getTracksByArtistName(
             @Parameter(description = "Имя исполнителя искомоых треков", example = "Король и шут")
             @RequestParam String artistName) {
-        List<Track> tracks = trackService.getTracksByArtistName(artistName);
+        List<TrackSnapshot> tracks = trackService.getTracksByArtistName(artistName);
         if (tracks.isEmpty()) {
             throw new NotFoundException("Не найдено треков указанного исполнителя");
         }
@@ -104,6 +151,18 @@ public class TrackController {
         return new ResponseEntity<>(new TrackGetDto(newTrack), HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Создать много треков",
+            description = "Создаёт треки из списка, сохраняя их пакетами")
+    @ApiResponse(responseCode = "200",
+            description = "Треки созданы, ошибки элементов перечислены в errors")
+    @ApiResponse(responseCode = "400", description = "Пустой список")
+    public ResponseEntity<BulkCreateResult<TrackGetDto>> createTracksBulk(
+            @Valid @RequestBody BulkCreateDto<TrackCreateDto> bulkCreateDto) {
+        return ResponseEntity.ok(trackService.createTracks(bulkCreateDto.getItems())
+                .map(TrackGetDto::new));
+    }
+
     @PatchMapping("/{id}")
     @Operation(summary = "Обновить трек",
             description = "Обновляет информацию о существующем треке")
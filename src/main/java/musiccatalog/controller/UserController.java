@@ -8,7 +8,9 @@ import jakarta.validation.Valid;
 import java.util.List;
 import musiccatalog.dto.create.BulkCreateDto;
 import musiccatalog.dto.create.UserCreateDto;
+import musiccatalog.dto.get.KeysetPage;
 import musiccatalog.dto.get.UserGetDto;
+import musiccatalog.dto.snapshot.UserSnapshot;
 import musiccatalog.dto.update.UserUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.User;
@@ -39,13 +41,16 @@ public class UserController {
 
     @GetMapping("/all")
     @Operation(summary = "Получить всех пользователей",
-            description = "Возвращает все пользователей")
+            description = "Возвращает страницу пользователей по возрастанию ID. "
+                    + "Курсор следующей страницы - в заголовке X-Next-Cursor")
     @ApiResponse(responseCode = "200", description = "Пользователи найдены успешно")
-    public ResponseEntity<List<UserGetDto>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return ResponseEntity.ok(users.stream()
-                .map(UserGetDto::new)
-                .toList());
+    public ResponseEntity<List<UserGetDto>> getAllUsers(
+            @Parameter(description = "ID последней записи предыдущей страницы", example = "100")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы, не больше 500", example = "100")
+            @RequestParam(defaultValue = "100") int size) {
+        KeysetPage<UserSnapshot> users = userService.getAllUsers(after, size);
+        return PageResponses.ok(users.map(UserGetDto::new));
     }
 
     @GetMapping("{id}")
@@ -56,7 +61,7 @@ public class UserController {
     public ResponseEntity<UserGetDto> getUserById(
             @Parameter(description = "ID искомого пользователя", example = "1")
             @PathVariable long id) {
-        User user = userService.getUserById(id)
+        UserSnapshot user = userService.getUserById(id)
                 .orElseThrow(() -> new NotFoundException("Не найден пользователь с ID = " + id));
         return ResponseEntity.ok(new UserGetDto(user));
     }
@@ -64,7 +69,7 @@ public class UserController {
     @GetMapping("/{id}/profile")
     @Operation(summary = "Получить профиль пользователя")
     public ResponseEntity<UserGetDto> getUserProfile(@PathVariable Long id) {
-        User user = userService.getUserById(id)
+        UserSnapshot user = userService.getUserById(id)
                 .orElseThrow(() -> new NotFoundException("User not found"));
         return ResponseEntity.ok(new UserGetDto(user));
     }
@@ -77,7 +82,7 @@ public class UserController {
     public ResponseEntity<UserGetDto> getUserByName(
             @Parameter(description = "Имя искомого пользователя", example = "Вася1991")
             @RequestParam String name) {
-        User user = userService.getUserByName(name);
+        UserSnapshot user = userService.getUserByName(name);
         if (user == null) {
             throw new NotFoundException("Пользователей с указанным именем не найдено");
         }
@@ -102,14 +107,8 @@ public class UserController {
     public ResponseEntity<List<UserGetDto>> createUsersBulk(
             @Valid @RequestBody BulkCreateDto<@Valid UserCreateDto> bulkCreateDto
     ) {
-        List<UserGetDto> createdUsers = bulkCreateDto.getItems().stream()
-                .map(userCreateDto -> {
-                    User newUser = userService.createUser(userCreateDto);
-                    return new UserGetDto(userService.getUserById(newUser.getId())
-                            .orElseThrow(() ->
-                                    new RuntimeException("Созданынй пользователь не найден"))
-                    );
-                })
+        List<UserGetDto> createdUsers = userService.createUsers(bulkCreateDto.getItems()).stream()
+                .map(UserGetDto::new)
                 .toList();
 
         return ResponseEntity.ok(createdUsers);
@@ -3,9 +3,9 @@ package musiccatalog.dto.get;
 import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
+import musiccatalog.dto.snapshot.AlbumSnapshot;
+import musiccatalog.dto.snapshot.NamedRef;
 import musiccatalog.model.Album;
-import musiccatalog.model.Artist;
-import musiccatalog.model.Track;
 
 @Getter
 @Setter
@@ -16,17 +16,14 @@ public class AlbumGetDto {
     private List<String> tracks;
 
     public AlbumGetDto(Album album) {
-        this.id = album.getId();
-        this.name = album.getName();
-        this.artists = album.getArtists().stream()
-                .map(Artist::getName)
-                .toList();
-        if (album.getTracks() != null) {
-            this.tracks = album.getTracks().stream()
-                    .map(Track::getName)
-                    .toList();
-        }
+        this(AlbumSnapshot.of(album));
+    }
 
+    public AlbumGetDto(AlbumSnapshot album) {
+        this.id = album.id();
+        this.name = album.name();
+        this.artists = NamedRef.names(album.artists());
+        this.tracks = NamedRef.names(album.tracks());
     }
 
     @Override
@@ -3,7 +3,8 @@ package musiccatalog.dto.get;
 import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
-import musiccatalog.model.Album;
+import musiccatalog.dto.snapshot.ArtistSnapshot;
+import musiccatalog.dto.snapshot.NamedRef;
 import musiccatalog.model.Artist;
 
 @Getter
@@ -14,14 +15,13 @@ public class ArtistGetDto {
     private List<String> albums;
 
     public ArtistGetDto(Artist artist) {
-        this.id = artist.getId();
-        this.name = artist.getName();
-        if (artist.getAlbums() != null) {
-            this.albums = artist.getAlbums().stream()
-                    .map(Album::getName)
-                    .toList();
-        }
+        this(ArtistSnapshot.of(artist));
+    }
 
+    public ArtistGetDto(ArtistSnapshot artist) {
+        this.id = artist.id();
+        this.name = artist.name();
+        this.albums = NamedRef.names(artist.albums());
     }
 
     @Override
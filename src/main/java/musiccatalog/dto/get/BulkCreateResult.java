@@ -0,0 +1,13 @@
+package musiccatalog.dto.get;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Итог bulk-создания: созданные записи в порядке запроса
+// и ошибки элементов, которые создать не удалось
+public record BulkCreateResult<T>(List<T> created, List<BulkItemError> errors) {
+
+    public <R> BulkCreateResult<R> map(Function<? super T, ? extends R> mapper) {
+        return new BulkCreateResult<>(created.stream().<R>map(mapper).toList(), errors);
+    }
+}
@@ -0,0 +1,5 @@
+package musiccatalog.dto.get;
+
+// Ошибка одного элемента bulk-запроса; index - позиция элемента в items
+public record BulkItemError(int index, String message) {
+}
@@ -2,6 +2,7 @@ package musiccatalog.dto.get;
 
 import lombok.Getter;
 import lombok.Setter;
+import musiccatalog.dto.snapshot.GenreSnapshot;
 import musiccatalog.model.Genre;
 
 @Getter
@@ -12,13 +13,13 @@ public class GenreGetDto {
     private int tracksCount;
 
     public GenreGetDto(Genre genre) {
-        this.id = genre.getId();
-        this.name = genre.getName();
-        if (genre.getTracks() != null) {
-            this.tracksCount = genre.getTracks().size();
-        } else {
-            this.tracksCount = 0;
-        }
+        this(GenreSnapshot.of(genre));
+    }
+
+    public GenreGetDto(GenreSnapshot genre) {
+        this.id = genre.id();
+        this.name = genre.name();
+        this.tracksCount = genre.tracksCount();
     }
 
     @Override
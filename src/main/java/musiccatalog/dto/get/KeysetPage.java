@@ -0,0 +1,20 @@
+package musiccatalog.dto.get;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Страница списка, упорядоченного по id. nextCursor - id последней записи
+// страницы (передаётся как after за следующей), null - страница последняя
+public record KeysetPage<T>(List<T> items, Long nextCursor) {
+
+    public static final int DEFAULT_SIZE = 100;
+    public static final int MAX_SIZE = 500;
+
+    public static int limit(int requested) {
+        return requested <= 0 ? DEFAULT_SIZE : Math.min(requested, MAX_SIZE);
+    }
+
+    public <R> KeysetPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new KeysetPage<>(items.stream().<R>map(mapper).toList(), nextCursor);
+    }
+}
@@ -0,0 +1,15 @@
+package musiccatalog.dto.get;
+
+import java.util.List;
+import musiccatalog.model.PlaylistOperation;
+
+// Операции журнала после версии since по порядку. version - версия, до которой
+// клиент доходит, проиграв их; от неё отправляются следующие правки
+public record PlaylistChangesGetDto(long since, long version,
+                                    List<PlaylistOperationGetDto> operations) {
+
+    public static PlaylistChangesGetDto of(long since, List<PlaylistOperation> operations) {
+        return new PlaylistChangesGetDto(since, since + operations.size(),
+                operations.stream().map(PlaylistOperationGetDto::new).toList());
+    }
+}
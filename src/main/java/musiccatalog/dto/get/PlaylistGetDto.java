@@ -3,8 +3,9 @@ package musiccatalog.dto.get;
 import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
 import musiccatalog.model.Playlist;
-import musiccatalog.model.Track;
 
 @Getter
 @Setter
@@ -13,17 +14,18 @@ public class PlaylistGetDto {
     private String name;
     private String author;
     private List<String> tracks;
+    private Long version;
 
     public PlaylistGetDto(Playlist playlist) {
-        this.id = playlist.getId();
-        this.name = playlist.getName();
-        this.author = playlist.getAuthor().getName();
-        if (playlist.getTracks() != null) {
-            this.tracks = playlist.getTracks().stream()
-                    .map(Track::getName)
-                    .toList();
-        }
+        this(PlaylistSnapshot.of(playlist));
+    }
 
+    public PlaylistGetDto(PlaylistSnapshot playlist) {
+        this.id = playlist.id();
+        this.name = playlist.name();
+        this.author = playlist.author() != null ? playlist.author().name() : null;
+        this.tracks = NamedRef.names(playlist.tracks());
+        this.version = playlist.version();
     }
 
     @Override
@@ -33,6 +35,7 @@ public class PlaylistGetDto {
                 + ", name='" + name + '\''
                 + ", author='" + author + '\''
                 + ", tracks=" + tracks
+                + ", version=" + version
                 + '}';
     }
 
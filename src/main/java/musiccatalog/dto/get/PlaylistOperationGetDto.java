@@ -0,0 +1,34 @@
+package musiccatalog.dto.get;
+
+import lombok.Getter;
+import lombok.Setter;
+import musiccatalog.model.PlaylistOperation;
+
+@Getter
+@Setter
+public class PlaylistOperationGetDto {
+    private long version;
+    private PlaylistOperation.Type type;
+    private int position;
+    private Integer target;
+    private Long trackId;
+
+    public PlaylistOperationGetDto(PlaylistOperation operation) {
+        this.version = operation.getVersion();
+        this.type = operation.getType();
+        this.position = operation.getPosition();
+        this.target = operation.getTarget();
+        this.trackId = operation.getTrackId();
+    }
+
+    @Override
+    public String toString() {
+        return "PlaylistOperationGetDto{"
+                + "version=" + version
+                + ", type=" + type
+                + ", position=" + position
+                + ", target=" + target
+                + ", trackId=" + trackId
+                + '}';
+    }
+}
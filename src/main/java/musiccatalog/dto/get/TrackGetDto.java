@@ -3,8 +3,8 @@ package musiccatalog.dto.get;
 import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
-import musiccatalog.model.Artist;
-import musiccatalog.model.Genre;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.TrackSnapshot;
 import musiccatalog.model.Track;
 
 @Getter
@@ -18,16 +18,16 @@ public class TrackGetDto {
     private List<String> artists;
 
     public TrackGetDto(Track track) {
-        this.id = track.getId();
-        this.name = track.getName();
-        this.duration = track.getDuration();
-        this.albumName = track.getAlbum() != null ? track.getAlbum().getName() : null;
-        this.genres = track.getGenres() != null
-                ? track.getGenres().stream().map(Genre::getName).toList()
-                : List.of();
-        this.artists = track.getAlbum() != null && track.getAlbum().getArtists() != null
-                ? track.getAlbum().getArtists().stream().map(Artist::getName).toList()
-                : List.of();
+        this(TrackSnapshot.of(track));
+    }
+
+    public TrackGetDto(TrackSnapshot track) {
+        this.id = track.id();
+        this.name = track.name();
+        this.duration = track.duration();
+        this.albumName = track.album() != null ? track.album().name() : null;
+        this.genres = NamedRef.names(track.genres());
+        this.artists = NamedRef.names(track.artists());
     }
 
     @Override
@@ -3,7 +3,8 @@ package musiccatalog.dto.get;
 import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
-import musiccatalog.model.Playlist;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.UserSnapshot;
 import musiccatalog.model.User;
 
 @Getter
@@ -15,14 +16,14 @@ public class UserGetDto {
     private List<String> playlistsCreated;
 
     public UserGetDto(User user) {
-        this.id = user.getId();
-        this.name = user.getName();
-        this.email = user.getEmail();
-        if (user.getPlaylistsCreated() != null) {
-            this.playlistsCreated = user.getPlaylistsCreated().stream()
-                    .map(Playlist::getName)
-                    .toList();
-        }
+        this(UserSnapshot.of(user));
+    }
+
+    public UserGetDto(UserSnapshot user) {
+        this.id = user.id();
+        this.name = user.name();
+        this.email = user.email();
+        this.playlistsCreated = NamedRef.names(user.playlistsCreated());
     }
 
     @Override
@@ -0,0 +1,18 @@
+package musiccatalog.dto.snapshot;
+
+import java.util.List;
+import musiccatalog.model.Album;
+import musiccatalog.model.Artist;
+import musiccatalog.model.Track;
+
+public record AlbumSnapshot(Long id,
+                            String name,
+                            List<NamedRef> artists,
+                            List<NamedRef> tracks) {
+
+    public static AlbumSnapshot of(Album album) {
+        return new AlbumSnapshot(album.getId(), album.getName(),
+                NamedRef.listOf(album.getArtists(), Artist::getId, Artist::getName),
+                NamedRef.listOf(album.getTracks(), Track::getId, Track::getName));
+    }
+}
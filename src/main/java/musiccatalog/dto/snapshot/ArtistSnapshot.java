@@ -0,0 +1,15 @@
+package musiccatalog.dto.snapshot;
+
+import java.util.List;
+import musiccatalog.model.Album;
+import musiccatalog.model.Artist;
+
+public record ArtistSnapshot(Long id,
+                             String name,
+                             List<NamedRef> albums) {
+
+    public static ArtistSnapshot of(Artist artist) {
+        return new ArtistSnapshot(artist.getId(), artist.getName(),
+                NamedRef.listOf(artist.getAlbums(), Album::getId, Album::getName));
+    }
+}
@@ -0,0 +1,13 @@
+package musiccatalog.dto.snapshot;
+
+import musiccatalog.model.Genre;
+
+public record GenreSnapshot(Long id,
+                            String name,
+                            int tracksCount) {
+
+    public static GenreSnapshot of(Genre genre) {
+        return new GenreSnapshot(genre.getId(), genre.getName(),
+                genre.getTracks() != null ? genre.getTracks().size() : 0);
+    }
+}
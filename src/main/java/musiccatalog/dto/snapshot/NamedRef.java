@@ -0,0 +1,27 @@
+package musiccatalog.dto.snapshot;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+// Ссылка на связанную сущность: id нужен для тегов кэша, имя - для GetDto
+public record NamedRef(Long id, String name) {
+
+    static <T> NamedRef of(T entity, Function<T, Long> id, Function<T, String> name) {
+        return entity != null ? new NamedRef(id.apply(entity), name.apply(entity)) : null;
+    }
+
+    static <T> List<NamedRef> listOf(Collection<T> entities,
+                                     Function<T, Long> id, Function<T, String> name) {
+        if (entities == null) {
+            return List.of();
+        }
+        return entities.stream()
+                .map(entity -> new NamedRef(id.apply(entity), name.apply(entity)))
+                .toList();
+    }
+
+    public static List<String> names(List<NamedRef> refs) {
+        return refs.stream().map(NamedRef::name).toList();
+    }
+}
@@ -0,0 +1,20 @@
+package musiccatalog.dto.snapshot;
+
+import java.util.List;
+import musiccatalog.model.Playlist;
+import musiccatalog.model.Track;
+import musiccatalog.model.User;
+
+public record PlaylistSnapshot(Long id,
+                               String name,
+                               NamedRef author,
+                               List<NamedRef> tracks,
+                               Long version) {
+
+    // Версия журнала правок известна только при чтении проекции: у снимка сущности она null
+    public static PlaylistSnapshot of(Playlist playlist) {
+        return new PlaylistSnapshot(playlist.getId(), playlist.getName(),
+                NamedRef.of(playlist.getAuthor(), User::getId, User::getName),
+                NamedRef.listOf(playlist.getTracks(), Track::getId, Track::getName), null);
+    }
+}
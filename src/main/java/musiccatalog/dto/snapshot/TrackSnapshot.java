@@ -0,0 +1,24 @@
+package musiccatalog.dto.snapshot;
+
+import java.util.List;
+import musiccatalog.model.Album;
+import musiccatalog.model.Artist;
+import musiccatalog.model.Genre;
+import musiccatalog.model.Track;
+
+public record TrackSnapshot(Long id,
+                            String name,
+                            Integer duration,
+                            NamedRef album,
+                            List<NamedRef> artists,
+                            List<NamedRef> genres) {
+
+    public static TrackSnapshot of(Track track) {
+        Album album = track.getAlbum();
+        return new TrackSnapshot(track.getId(), track.getName(), track.getDuration(),
+                NamedRef.of(album, Album::getId, Album::getName),
+                NamedRef.listOf(album != null ? album.getArtists() : null,
+                        Artist::getId, Artist::getName),
+                NamedRef.listOf(track.getGenres(), Genre::getId, Genre::getName));
+    }
+}
@@ -0,0 +1,16 @@
+package musiccatalog.dto.snapshot;
+
+import java.util.List;
+import musiccatalog.model.Playlist;
+import musiccatalog.model.User;
+
+public record UserSnapshot(Long id,
+                           String name,
+                           String email,
+                           List<NamedRef> playlistsCreated) {
+
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user.getId(), user.getName(), user.getEmail(),
+                NamedRef.listOf(user.getPlaylistsCreated(), Playlist::getId, Playlist::getName));
+    }
+}
@@ -0,0 +1,31 @@
+package musiccatalog.dto.update;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class PlaylistEditDto {
+
+    // Версия журнала, которую видел клиент, когда составлял правки
+    @NotNull(message = "Не указана базовая версия плейлиста")
+    @PositiveOrZero(message = "Версия плейлиста не может быть отрицательной")
+    private Long baseVersion;
+
+    @NotEmpty(message = "Список операций не может быть пустым")
+    private List<@Valid @NotNull(message = "Операция не может быть пустой")
+            PlaylistOperationDto> operations;
+
+    @Override
+    public String toString() {
+        return "PlaylistEditDto{"
+                + "baseVersion=" + baseVersion
+                + ", operations=" + operations
+                + '}';
+    }
+}
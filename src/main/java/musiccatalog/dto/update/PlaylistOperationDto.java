@@ -0,0 +1,45 @@
+package musiccatalog.dto.update;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+import lombok.Setter;
+import musiccatalog.model.PlaylistOperation;
+
+@Getter
+@Setter
+public class PlaylistOperationDto {
+
+    @NotNull(message = "Не указан тип операции")
+    private PlaylistOperation.Type type;
+
+    // INSERT и REMOVE - индекс в плейлисте, MOVE - текущий индекс трека
+    @NotNull(message = "Не указана позиция операции")
+    @PositiveOrZero(message = "Позиция в плейлисте не может быть отрицательной")
+    private Integer position;
+
+    @PositiveOrZero(message = "Позиция в плейлисте не может быть отрицательной")
+    private Integer target;
+
+    @Positive(message = "ID трека должно быть положительным")
+    private Long trackId;
+
+    @AssertTrue(message = "Для MOVE нужна позиция target, для INSERT - trackId")
+    public boolean isComplete() {
+        return type != PlaylistOperation.Type.MOVE && type != PlaylistOperation.Type.INSERT
+                || type == PlaylistOperation.Type.MOVE && target != null
+                || type == PlaylistOperation.Type.INSERT && trackId != null;
+    }
+
+    @Override
+    public String toString() {
+        return "PlaylistOperationDto{"
+                + "type=" + type
+                + ", position=" + position
+                + ", target=" + target
+                + ", trackId=" + trackId
+                + '}';
+    }
+}
@@ -0,0 +1,27 @@
+package musiccatalog.dto.update;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class PlaylistTrackMoveDto {
+
+    @NotNull(message = "Не указана текущая позиция трека")
+    @PositiveOrZero(message = "Позиция в плейлисте не может быть отрицательной")
+    private Integer from;
+
+    @NotNull(message = "Не указана новая позиция трека")
+    @PositiveOrZero(message = "Позиция в плейлисте не может быть отрицательной")
+    private Integer to;
+
+    @Override
+    public String toString() {
+        return "PlaylistTrackMoveDto{"
+                + "from=" + from
+                + ", to=" + to
+                + '}';
+    }
+}
@@ -0,0 +1,29 @@
+package musiccatalog.dto.update;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class PlaylistTracksAddDto {
+
+    @NotEmpty(message = "Список добавляемых треков не может быть пустым")
+    private List<@Positive(message =
+            "ID треков плейлиста должы быть положительными") Long> tracksIds;
+
+    // Индекс, который получит первый добавленный трек; без него треки дописываются в конец
+    @PositiveOrZero(message = "Позиция в плейлисте не может быть отрицательной")
+    private Integer position;
+
+    @Override
+    public String toString() {
+        return "PlaylistTracksAddDto{"
+                + "tracksIds=" + tracksIds
+                + ", position=" + position
+                + '}';
+    }
+}
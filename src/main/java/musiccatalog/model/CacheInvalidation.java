@@ -0,0 +1,38 @@
+package musiccatalog.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+// Журнал инвалидаций кэша: по нему дамп, снятый при остановке,
+// проверяется на устаревшие записи при следующем старте
+@Getter
+@Setter
+@Table(name = "cache_invalidations")
+@Entity
+public class CacheInvalidation {
+    @Id
+    // Без пула id: отметка дампа сравнивается с id, и записи разных реплик
+    // должны получать их строго по порядку вставки
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cache_invalidations_seq")
+    @SequenceGenerator(name = "cache_invalidations_seq",
+            sequenceName = "cache_invalidations_seq", allocationSize = 1)
+    private Long id;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "tags", nullable = false)
+    private String[] tags;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+}
@@ -7,18 +7,24 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
-@Table(name = "genres")
+@Table(name = "genres", uniqueConstraints = @UniqueConstraint(name = Genre.NAME_CONSTRAINT,
+        columnNames = "name"))
 @Entity
 public class Genre {
+    public static final String NAME_CONSTRAINT = "uk_genres_name";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "genres_seq")
+    @SequenceGenerator(name = "genres_seq", sequenceName = "genres_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false)
@@ -8,11 +8,14 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.JoinTable;
-import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OrderBy;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -22,23 +25,48 @@ import lombok.Setter;
 @Table(name = "playlists")
 public class Playlist {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "playlists_seq")
+    @SequenceGenerator(name = "playlists_seq", sequenceName = "playlists_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false)
     private String name;
 
-    @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE},
-            fetch = FetchType.LAZY)
-    @JoinTable(
-            name = "playlist_tracks",
-            joinColumns = @JoinColumn(name = "playlist_id"),
-            inverseJoinColumns = @JoinColumn(name = "track_id")
-    )
-    private List<Track> tracks;
+    @OneToMany(mappedBy = "playlist", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("position ASC, id ASC")
+    private List<PlaylistEntry> entries;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User author;
 
+    public List<Track> getTracks() {
+        return entries != null
+                ? entries.stream().map(PlaylistEntry::getTrack).toList()
+                : null;
+    }
+
+    // Замена содержимого целиком: совпадающие по месту строки не трогаются,
+    // меняются только отличающиеся, лишние удаляются, новые дописываются в конец
+    public void setTracks(List<Track> tracks) {
+        if (entries == null) {
+            entries = new ArrayList<>();
+        }
+        int kept = Math.min(entries.size(), tracks.size());
+        for (int i = 0; i < kept; i++) {
+            PlaylistEntry entry = entries.get(i);
+            if (!Objects.equals(entry.getTrack().getId(), tracks.get(i).getId())) {
+                entry.setTrack(tracks.get(i));
+            }
+        }
+        while (entries.size() > tracks.size()) {
+            entries.remove(entries.size() - 1);
+        }
+        long position = kept > 0 ? entries.get(kept - 1).getPosition() : 0;
+        for (int i = kept; i < tracks.size(); i++) {
+            position += PlaylistEntry.POSITION_STEP;
+            entries.add(PlaylistEntry.of(this, tracks.get(i), position));
+        }
+    }
+
 }
@@ -0,0 +1,55 @@
+package musiccatalog.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ForeignKey;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+// Трек на определённой позиции плейлиста. Позиции идут с шагом POSITION_STEP,
+// поэтому вставка между соседями записывает только новые строки
+@Getter
+@Setter
+@Entity
+@Table(name = "playlist_entries",
+        indexes = @Index(name = "idx_playlist_entries_position",
+                columnList = "playlist_id, position"))
+public class PlaylistEntry {
+    public static final long POSITION_STEP = 1024;
+    public static final String TRACK_CONSTRAINT = "fk_playlist_entries_track";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "playlist_entries_seq")
+    @SequenceGenerator(name = "playlist_entries_seq", sequenceName = "playlist_entries_seq",
+            allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "playlist_id", nullable = false)
+    private Playlist playlist;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "track_id", nullable = false,
+            foreignKey = @ForeignKey(name = PlaylistEntry.TRACK_CONSTRAINT))
+    private Track track;
+
+    @Column(name = "position", nullable = false)
+    private long position;
+
+    public static PlaylistEntry of(Playlist playlist, Track track, long position) {
+        PlaylistEntry entry = new PlaylistEntry();
+        entry.setPlaylist(playlist);
+        entry.setTrack(track);
+        entry.setPosition(position);
+        return entry;
+    }
+}
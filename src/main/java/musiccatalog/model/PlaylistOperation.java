@@ -0,0 +1,61 @@
+package musiccatalog.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.Setter;
+
+// Запись журнала правок плейлиста. version идёт подряд с 1 в пределах плейлиста;
+// уникальный ключ (playlist_id, version) не даёт двум параллельным правкам
+// занять одну версию. Ссылки хранятся как id: удаление трека записывается
+// операциями REMOVE, а прежние INSERT с его id остаются в журнале
+@Getter
+@Setter
+@Entity
+@Table(name = "playlist_operations",
+        uniqueConstraints = @UniqueConstraint(name = PlaylistOperation.VERSION_CONSTRAINT,
+                columnNames = {"playlist_id", "version"}))
+public class PlaylistOperation {
+    public static final String VERSION_CONSTRAINT = "uk_playlist_operations_version";
+
+    public enum Type {
+        INSERT,
+        REMOVE,
+        MOVE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "playlist_operations_seq")
+    @SequenceGenerator(name = "playlist_operations_seq", sequenceName = "playlist_operations_seq",
+            allocationSize = 50)
+    private Long id;
+
+    @Column(name = "playlist_id", nullable = false)
+    private Long playlistId;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 10)
+    private Type type;
+
+    // INSERT и REMOVE - индекс в плейлисте, MOVE - исходный индекс трека
+    @Column(name = "position", nullable = false)
+    private int position;
+
+    // Индекс, на котором трек оказывается после MOVE
+    @Column(name = "target")
+    private Integer target;
+
+    @Column(name = "track_id")
+    private Long trackId;
+}
@@ -11,6 +11,8 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.util.List;
 import lombok.Getter;
@@ -22,7 +24,8 @@ import lombok.Setter;
 @Table(name = "tracks")
 public class Track {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tracks_seq")
+    @SequenceGenerator(name = "tracks_seq", sequenceName = "tracks_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false)
@@ -42,6 +45,8 @@ public class Track {
     @JoinColumn(name = "album_id")
     private Album album;
 
-    @ManyToMany(mappedBy = "tracks", fetch = FetchType.LAZY)
-    private List<Playlist> playlists;
+    // Без каскада: перед удалением трек убирается из плейлистов через их журналы
+    // правок, а строку, добавленную в последний момент, удержит внешний ключ
+    @OneToMany(mappedBy = "track")
+    private List<PlaylistEntry> playlistEntries;
 }
\ No newline at end of file
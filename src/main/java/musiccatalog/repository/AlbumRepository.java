@@ -1,7 +1,14 @@
 package musiccatalog.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import musiccatalog.dto.snapshot.AlbumSnapshot;
+import musiccatalog.dto.snapshot.NamedRef;
 import musiccatalog.model.Album;
+import musiccatalog.repository.projection.RefRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,11 +16,45 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface AlbumRepository extends JpaRepository<Album, Long> {
-    @Query("SELECT DISTINCT a FROM Album a "
+    @Query("SELECT DISTINCT a.id FROM Album a "
             + "JOIN a.tracks t "
             + "JOIN t.genres g "
-            +  "WHERE g.name = :genreName")
-    List<Album> findAlbumsByGenreName(@Param("genreName") String genreName);
+            +  "WHERE g.name = :genreName ORDER BY a.id")
+    List<Long> findIdsByGenreName(@Param("genreName") String genreName);
 
-    List<Album> findAlbumsByName(String albumName);
+    @Query("SELECT a.id FROM Album a WHERE a.name = :name ORDER BY a.id")
+    List<Long> findIdsByName(@Param("name") String name);
+
+    @Query("SELECT a.id FROM Album a WHERE a.id > :after ORDER BY a.id")
+    List<Long> findIdsAfter(@Param("after") long after, Limit limit);
+
+    @Query("SELECT new musiccatalog.dto.snapshot.NamedRef(a.id, a.name) "
+            + "FROM Album a WHERE a.id IN :ids ORDER BY a.id")
+    List<NamedRef> findRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new musiccatalog.repository.projection.RefRow(a.id, art.id, art.name) "
+            + "FROM Album a JOIN a.artists art "
+            + "WHERE a.id IN :ids ORDER BY art.id")
+    List<RefRow> findArtistRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new musiccatalog.repository.projection.RefRow(t.album.id, t.id, t.name) "
+            + "FROM Track t "
+            + "WHERE t.album.id IN :ids ORDER BY t.id")
+    List<RefRow> findTrackRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    default List<AlbumSnapshot> findSnapshotsByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<NamedRef>> artists = RefRow.groupByOwner(findArtistRefsByIdIn(ids));
+        Map<Long, List<NamedRef>> tracks = RefRow.groupByOwner(findTrackRefsByIdIn(ids));
+        return findRefsByIdIn(ids).stream()
+                .map(album -> new AlbumSnapshot(album.id(), album.name(),
+                        RefRow.refsOf(artists, album.id()), RefRow.refsOf(tracks, album.id())))
+                .toList();
+    }
+
+    default Optional<AlbumSnapshot> findSnapshotById(long id) {
+        return findSnapshotsByIdIn(List.of(id)).stream().findFirst();
+    }
 }
@@ -1,10 +1,57 @@
 package musiccatalog.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import musiccatalog.dto.snapshot.ArtistSnapshot;
+import musiccatalog.dto.snapshot.NamedRef;
 import musiccatalog.model.Artist;
+import musiccatalog.repository.projection.RefRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ArtistRepository extends JpaRepository<Artist, Long> {
-    Artist findArtistByName(String name);
+    @Query("SELECT a.id FROM Artist a WHERE a.name = :name ORDER BY a.id")
+    List<Long> findIdsByName(@Param("name") String name);
+
+    @Query("SELECT a.id FROM Artist a WHERE a.id > :after ORDER BY a.id")
+    List<Long> findIdsAfter(@Param("after") long after, Limit limit);
+
+    @Query("SELECT new musiccatalog.dto.snapshot.NamedRef(a.id, a.name) "
+            + "FROM Artist a WHERE a.id IN :ids ORDER BY a.id")
+    List<NamedRef> findRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new musiccatalog.repository.projection.RefRow(art.id, a.id, a.name) "
+            + "FROM Album a JOIN a.artists art "
+            + "WHERE art.id IN :ids ORDER BY a.id")
+    List<RefRow> findAlbumRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM album_artists WHERE artist_id = :artistId", nativeQuery = true)
+    int deleteAlbumLinks(@Param("artistId") long artistId);
+
+    @Modifying
+    @Query("DELETE FROM Artist a WHERE a.id = :id")
+    int deleteRowById(@Param("id") long id);
+
+    default List<ArtistSnapshot> findSnapshotsByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<NamedRef>> albums = RefRow.groupByOwner(findAlbumRefsByIdIn(ids));
+        return findRefsByIdIn(ids).stream()
+                .map(artist -> new ArtistSnapshot(artist.id(), artist.name(),
+                        RefRow.refsOf(albums, artist.id())))
+                .toList();
+    }
+
+    default Optional<ArtistSnapshot> findSnapshotById(long id) {
+        return findSnapshotsByIdIn(List.of(id)).stream().findFirst();
+    }
 }
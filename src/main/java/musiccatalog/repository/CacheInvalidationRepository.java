@@ -0,0 +1,27 @@
+package musiccatalog.repository;
+
+import java.time.Instant;
+import java.util.Set;
+import musiccatalog.model.CacheInvalidation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+
+    @Query("SELECT COALESCE(MAX(i.id), 0) FROM CacheInvalidation i")
+    long findLastId();
+
+    @Query(value = "SELECT DISTINCT unnest(tags) FROM cache_invalidations WHERE id > :mark",
+            nativeQuery = true)
+    Set<String> findTagsInvalidatedAfter(@Param("mark") long mark);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CacheInvalidation i WHERE i.createdAt < :before")
+    int deleteOlderThan(@Param("before") Instant before);
+}
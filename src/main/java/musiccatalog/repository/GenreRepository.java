@@ -1,10 +1,33 @@
 package musiccatalog.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import musiccatalog.dto.snapshot.GenreSnapshot;
 import musiccatalog.model.Genre;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface GenreRepository extends JpaRepository<Genre, Long> {
-    Genre findGenreByName(String name);
+    @Query("SELECT g.name FROM Genre g WHERE g.name IN :names")
+    List<String> findNamesIn(@Param("names") Collection<String> names);
+
+    @Query("SELECT g.id FROM Genre g WHERE g.name = :name ORDER BY g.id")
+    List<Long> findIdsByName(@Param("name") String name);
+
+    @Query("SELECT g.id FROM Genre g WHERE g.id > :after ORDER BY g.id")
+    List<Long> findIdsAfter(@Param("after") long after, Limit limit);
+
+    // Число треков считается в базе, сами треки жанра не читаются
+    @Query("SELECT new musiccatalog.dto.snapshot.GenreSnapshot(g.id, g.name, SIZE(g.tracks)) "
+            + "FROM Genre g WHERE g.id IN :ids ORDER BY g.id")
+    List<GenreSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
+
+    default Optional<GenreSnapshot> findSnapshotById(long id) {
+        return findSnapshotsByIdIn(List.of(id)).stream().findFirst();
+    }
 }
@@ -0,0 +1,47 @@
+package musiccatalog.repository;
+
+import java.util.Collection;
+import java.util.List;
+import musiccatalog.model.PlaylistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PlaylistEntryRepository extends JpaRepository<PlaylistEntry, Long> {
+    // Элементы плейлиста по порядку начиная с индекса offset: соседи места вставки
+    // читаются по индексу (playlist_id, position), без загрузки всего плейлиста
+    @Query(value = "SELECT * FROM playlist_entries WHERE playlist_id = :playlistId "
+            + "ORDER BY position, id OFFSET :offset LIMIT :limit", nativeQuery = true)
+    List<PlaylistEntry> findSlice(@Param("playlistId") long playlistId,
+                                  @Param("offset") int offset, @Param("limit") int limit);
+
+    long countByPlaylistId(long playlistId);
+
+    @Query("SELECT DISTINCT e.playlist.id FROM PlaylistEntry e WHERE e.track.id IN :trackIds")
+    List<Long> findPlaylistIdsByTrackIdIn(@Param("trackIds") Collection<Long> trackIds);
+
+    @Query("SELECT e.track.id FROM PlaylistEntry e "
+            + "WHERE e.playlist.id = :playlistId ORDER BY e.position, e.id")
+    List<Long> findTrackIds(@Param("playlistId") long playlistId);
+
+    // Позиции заново с шагом POSITION_STEP; после первых gapAfter элементов
+    // остаётся gap свободных мест. Нужна, только когда между соседями нет места.
+    // Загруженные до неё строки хранят старые позиции, поэтому контекст
+    // сбрасывается перед запросом и очищается после него
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE playlist_entries e SET position = "
+            + "(r.rn + CASE WHEN r.rn > :gapAfter THEN :gap ELSE 0 END) * "
+            + PlaylistEntry.POSITION_STEP + " "
+            + "FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY position, id) AS rn "
+            + "FROM playlist_entries WHERE playlist_id = :playlistId) r "
+            + "WHERE e.id = r.id", nativeQuery = true)
+    int renumber(@Param("playlistId") long playlistId,
+                 @Param("gapAfter") int gapAfter, @Param("gap") int gap);
+
+    @Modifying
+    @Query("DELETE FROM PlaylistEntry e WHERE e.playlist.id = :playlistId")
+    int deleteByPlaylistId(@Param("playlistId") long playlistId);
+}
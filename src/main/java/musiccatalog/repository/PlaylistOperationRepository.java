@@ -0,0 +1,25 @@
+package musiccatalog.repository;
+
+import java.util.List;
+import musiccatalog.model.PlaylistOperation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PlaylistOperationRepository extends JpaRepository<PlaylistOperation, Long> {
+    @Query("SELECT COALESCE(MAX(o.version), 0L) FROM PlaylistOperation o "
+            + "WHERE o.playlistId = :playlistId")
+    long findHeadVersion(@Param("playlistId") long playlistId);
+
+    @Query("SELECT o FROM PlaylistOperation o "
+            + "WHERE o.playlistId = :playlistId AND o.version > :since ORDER BY o.version")
+    List<PlaylistOperation> findSince(@Param("playlistId") long playlistId,
+                                      @Param("since") long since);
+
+    @Modifying
+    @Query("DELETE FROM PlaylistOperation o WHERE o.playlistId = :playlistId")
+    int deleteByPlaylistId(@Param("playlistId") long playlistId);
+}
@@ -1,14 +1,70 @@
 package musiccatalog.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
 import musiccatalog.model.Playlist;
+import musiccatalog.repository.projection.PlaylistRow;
+import musiccatalog.repository.projection.RefRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
-    List<Playlist> findPlaylistByName(String name);
+    @Query("SELECT p.id FROM Playlist p WHERE p.name = :name ORDER BY p.id")
+    List<Long> findIdsByName(@Param("name") String name);
 
-    List<Playlist> findPlaylistByAuthorId(Long authorId);
+    @Query("SELECT p.id FROM Playlist p WHERE p.author.id = :authorId ORDER BY p.id")
+    List<Long> findIdsByAuthorId(@Param("authorId") Long authorId);
 
+    @Query("SELECT p.id FROM Playlist p WHERE p.id > :after ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("after") long after, Limit limit);
+
+    @Query("SELECT new musiccatalog.repository.projection.PlaylistRow("
+            + "p.id, p.name, u.id, u.name, "
+            + "(SELECT COALESCE(MAX(o.version), 0L) FROM PlaylistOperation o "
+            + "WHERE o.playlistId = p.id)) "
+            + "FROM Playlist p LEFT JOIN p.author u "
+            + "WHERE p.id IN :ids ORDER BY p.id")
+    List<PlaylistRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new musiccatalog.repository.projection.RefRow(e.playlist.id, t.id, t.name) "
+            + "FROM PlaylistEntry e JOIN e.track t "
+            + "WHERE e.playlist.id IN :ids ORDER BY e.position, e.id")
+    List<RefRow> findTrackRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM playlist_entries WHERE playlist_id IN "
+            + "(SELECT id FROM playlists WHERE user_id = :authorId)", nativeQuery = true)
+    int deleteTrackLinksByAuthorId(@Param("authorId") long authorId);
+
+    @Modifying
+    @Query(value = "DELETE FROM playlist_operations WHERE playlist_id IN "
+            + "(SELECT id FROM playlists WHERE user_id = :authorId)", nativeQuery = true)
+    int deleteOperationsByAuthorId(@Param("authorId") long authorId);
+
+    @Modifying
+    @Query("DELETE FROM Playlist p WHERE p.author.id = :authorId")
+    int deleteRowsByAuthorId(@Param("authorId") long authorId);
+
+    default List<PlaylistSnapshot> findSnapshotsByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<NamedRef>> tracks = RefRow.groupByOwner(findTrackRefsByIdIn(ids));
+        return findRowsByIdIn(ids).stream()
+                .map(row -> row.toSnapshot(tracks))
+                .toList();
+    }
+
+    default Optional<PlaylistSnapshot> findSnapshotById(long id) {
+        return findSnapshotsByIdIn(List.of(id)).stream().findFirst();
+    }
 }
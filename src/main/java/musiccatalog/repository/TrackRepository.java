@@ -1,20 +1,79 @@
 package musiccatalog.repository;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.TrackSnapshot;
 import musiccatalog.model.Track;
+import musiccatalog.repository.projection.RefRow;
+import musiccatalog.repository.projection.TrackRow;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface TrackRepository extends JpaRepository<Track, Long> {
 
-    @Query("SELECT t FROM Track t "
+    @Query("SELECT DISTINCT t.id FROM Track t "
             + "JOIN t.album a "
             + "JOIN a.artists art "
-            + "WHERE art.name = :artistName")
-    List<Track> findTracksByArtistName(@Param("artistName") String artistName);
+            + "WHERE art.name = :artistName ORDER BY t.id")
+    List<Long> findIdsByArtistName(@Param("artistName") String artistName);
 
-    List<Track> findTracksByName(String name);
+    @Query("SELECT t.id FROM Track t WHERE t.name = :name ORDER BY t.id")
+    List<Long> findIdsByName(@Param("name") String name);
+
+    // Курсор для выгрузки всей таблицы: строки приходят порциями по fetch size,
+    // коллекции треков догружаются пачками по мере обхода
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Track t LEFT JOIN FETCH t.album ORDER BY t.id")
+    Stream<Track> streamAllWithAlbum();
+
+    // Страница по ключу: стоимость не растёт с номером страницы, в отличие от OFFSET
+    @Query("SELECT t.id FROM Track t WHERE t.id > :after ORDER BY t.id")
+    List<Long> findIdsAfter(@Param("after") long after, Limit limit);
+
+    // Чтение для GET-запросов идёт проекциями: выбираются только колонки снимка,
+    // сущности не создаются, и контексту персистентности нечего отслеживать
+    @Query("SELECT new musiccatalog.repository.projection.TrackRow("
+            + "t.id, t.name, t.duration, a.id, a.name) "
+            + "FROM Track t LEFT JOIN t.album a "
+            + "WHERE t.id IN :ids ORDER BY t.id")
+    List<TrackRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new musiccatalog.repository.projection.RefRow(t.id, art.id, art.name) "
+            + "FROM Track t JOIN t.album a JOIN a.artists art "
+            + "WHERE t.id IN :ids ORDER BY art.id")
+    List<RefRow> findArtistRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new musiccatalog.repository.projection.RefRow(t.id, g.id, g.name) "
+            + "FROM Track t JOIN t.genres g "
+            + "WHERE t.id IN :ids ORDER BY g.id")
+    List<RefRow> findGenreRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    default List<TrackSnapshot> findSnapshotsByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<NamedRef>> artists = RefRow.groupByOwner(findArtistRefsByIdIn(ids));
+        Map<Long, List<NamedRef>> genres = RefRow.groupByOwner(findGenreRefsByIdIn(ids));
+        return findRowsByIdIn(ids).stream()
+                .map(row -> row.toSnapshot(artists, genres))
+                .toList();
+    }
+
+    default Optional<TrackSnapshot> findSnapshotById(long id) {
+        return findSnapshotsByIdIn(List.of(id)).stream().findFirst();
+    }
 }
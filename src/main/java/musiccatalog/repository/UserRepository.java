@@ -1,12 +1,58 @@
 package musiccatalog.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.UserSnapshot;
 import musiccatalog.model.User;
+import musiccatalog.repository.projection.RefRow;
+import musiccatalog.repository.projection.UserRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     User findUserByEmail(String email);
 
-    User findUserByName(String name);
-}
\ No newline at end of file
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT u.id FROM User u WHERE u.name = :name ORDER BY u.id")
+    List<Long> findIdsByName(@Param("name") String name);
+
+    @Query("SELECT u.id FROM User u WHERE u.id > :after ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("after") long after, Limit limit);
+
+    @Query("SELECT new musiccatalog.repository.projection.UserRow(u.id, u.name, u.email) "
+            + "FROM User u WHERE u.id IN :ids ORDER BY u.id")
+    List<UserRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new musiccatalog.repository.projection.RefRow(p.author.id, p.id, p.name) "
+            + "FROM Playlist p "
+            + "WHERE p.author.id IN :ids ORDER BY p.id")
+    List<RefRow> findPlaylistRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id = :id")
+    int deleteRowById(@Param("id") long id);
+
+    default List<UserSnapshot> findSnapshotsByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<NamedRef>> playlists = RefRow.groupByOwner(findPlaylistRefsByIdIn(ids));
+        return findRowsByIdIn(ids).stream()
+                .map(row -> row.toSnapshot(playlists))
+                .toList();
+    }
+
+    default Optional<UserSnapshot> findSnapshotById(long id) {
+        return findSnapshotsByIdIn(List.of(id)).stream().findFirst();
+    }
+}
@@ -0,0 +1,16 @@
+package musiccatalog.repository.projection;
+
+import java.util.List;
+import java.util.Map;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
+
+public record PlaylistRow(Long id, String name, Long authorId, String authorName,
+                          Long version) {
+
+    public PlaylistSnapshot toSnapshot(Map<Long, List<NamedRef>> tracks) {
+        return new PlaylistSnapshot(id, name,
+                authorId != null ? new NamedRef(authorId, authorName) : null,
+                RefRow.refsOf(tracks, id), version);
+    }
+}
@@ -0,0 +1,27 @@
+package musiccatalog.repository.projection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import musiccatalog.dto.snapshot.NamedRef;
+
+// Строка связи "сущность -> связанная сущность" из проекционного запроса.
+// Коллекции снимков собираются из таких строк одним запросом на связь
+public record RefRow(Long ownerId, Long id, String name) {
+
+    public static Map<Long, List<NamedRef>> groupByOwner(List<RefRow> rows) {
+        Map<Long, List<NamedRef>> refs = new HashMap<>();
+        for (RefRow row : rows) {
+            refs.computeIfAbsent(row.ownerId(), owner -> new ArrayList<>())
+                    .add(new NamedRef(row.id(), row.name()));
+        }
+        return refs;
+    }
+
+    // Снимки лежат в кэше, поэтому списки в них неизменяемые
+    public static List<NamedRef> refsOf(Map<Long, List<NamedRef>> refs, Long ownerId) {
+        List<NamedRef> owned = refs.get(ownerId);
+        return owned != null ? List.copyOf(owned) : List.of();
+    }
+}
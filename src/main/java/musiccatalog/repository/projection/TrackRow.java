@@ -0,0 +1,16 @@
+package musiccatalog.repository.projection;
+
+import java.util.List;
+import java.util.Map;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.TrackSnapshot;
+
+public record TrackRow(Long id, String name, Integer duration, Long albumId, String albumName) {
+
+    public TrackSnapshot toSnapshot(Map<Long, List<NamedRef>> artists,
+                                    Map<Long, List<NamedRef>> genres) {
+        return new TrackSnapshot(id, name, duration,
+                albumId != null ? new NamedRef(albumId, albumName) : null,
+                RefRow.refsOf(artists, id), RefRow.refsOf(genres, id));
+    }
+}
@@ -0,0 +1,13 @@
+package musiccatalog.repository.projection;
+
+import java.util.List;
+import java.util.Map;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.UserSnapshot;
+
+public record UserRow(Long id, String name, String email) {
+
+    public UserSnapshot toSnapshot(Map<Long, List<NamedRef>> playlists) {
+        return new UserSnapshot(id, name, email, RefRow.refsOf(playlists, id));
+    }
+}
@@ -1,76 +1,118 @@
 package musiccatalog.service;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+import musiccatalog.cache.CacheTags;
+import musiccatalog.cache.CacheWarmer;
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.AlbumCreateDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.AlbumSnapshot;
 import musiccatalog.dto.update.AlbumUpdateDto;
+import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Album;
 import musiccatalog.model.Artist;
+import musiccatalog.model.PlaylistEntry;
 import musiccatalog.model.Track;
 import musiccatalog.repository.AlbumRepository;
 import musiccatalog.repository.ArtistRepository;
 import musiccatalog.repository.TrackRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
-public class AlbumService {
+public class AlbumService implements CacheWarmer {
+
+    private static final String BY_ID = "albums_id_";
+    private static final String BY_NAME = "albums_name_";
+    private static final String BY_GENRE = "albums_genre_";
 
     private final AlbumRepository albumRepository;
     private final ArtistRepository artistRepository;
     private final TrackRepository trackRepository;
     private final InMemoryCache cache;
+    private final BulkWriter bulkWriter;
+    private final TransactionTemplate transaction;
+    private final PlaylistService playlistService;
+
+    // Поле, а не лямбда в методе: поиск по id при попадании в кэш не создаёт объектов
+    private final LongFunction<AlbumSnapshot> albumLoader;
 
     @Autowired
     public AlbumService(AlbumRepository albumRepository, ArtistRepository artistRepository,
-                        TrackRepository trackRepository, InMemoryCache cache) {
+                        TrackRepository trackRepository, InMemoryCache cache,
+                        BulkWriter bulkWriter, PlatformTransactionManager transactionManager,
+                        PlaylistService playlistService) {
         this.albumRepository = albumRepository;
         this.artistRepository = artistRepository;
         this.trackRepository = trackRepository;
         this.cache = cache;
+        this.bulkWriter = bulkWriter;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.playlistService = playlistService;
+        this.albumLoader = id -> albumRepository.findSnapshotById(id).orElse(null);
     }
 
-    public List<Album> getAllAlbums() {
-        return albumRepository.findAll();
+    public KeysetPage<AlbumSnapshot> getAllAlbums(Long after, int size) {
+        return KeysetPages.load(after, size, albumRepository::findIdsAfter,
+                albumRepository::findSnapshotsByIdIn);
     }
 
-    public Optional<Album> getAlbumById(long id) {
-        String cacheKey = "albums_id_" + id;
-        if (cache.containsKey(cacheKey)) {
-            return Optional.of((Album) cache.get(cacheKey));
+    public Optional<AlbumSnapshot> getAlbumById(long id) {
+        AlbumSnapshot album = cache.getOrLoadById(IdFamily.ALBUMS, id, albumLoader,
+                CacheTags::of, missing -> Set.of(CacheTags.album(missing)));
+        if (album == null) {
+            throw new NotFoundException("Не найден альбом с ID = " + id);
         }
-        Album album = albumRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найден альбом с ID = " + id));
-        cache.put(cacheKey, album);
         return Optional.of(album);
     }
 
-    public List<Album> getAlbumByName(String name)  {
-        String cacheKey = "albums_name_" + name;
-        if (cache.containsKey(cacheKey)) {
-            return (List<Album>) cache.get(cacheKey);
-        }
-        List<Album> albums = albumRepository.findAlbumsByName(name);
-        cache.put(cacheKey, albums);
-        return albums;
+    public List<AlbumSnapshot> getAlbumByName(String name)  {
+        return cache.getOrLoad(BY_NAME + name,
+                () -> KeysetPages.loadAll(albumRepository.findIdsByName(name),
+                        albumRepository::findSnapshotsByIdIn),
+                albums -> CacheTags.ofAlbums(albums, CacheTags.albumName(name)));
     }
 
-    public List<Album> getAlbumsByGenreName(String genreName) {
-        String cacheKey = "albums_genre_" + genreName;
-        if (cache.containsKey(cacheKey)) {
-            return (List<Album>) cache.get(cacheKey);
-        }
-        List<Album> albums = albumRepository.findAlbumsByGenreName(genreName);
-        if (albums.isEmpty()) {
+    public List<AlbumSnapshot> getAlbumsByGenreName(String genreName) {
+        List<AlbumSnapshot> albums = cache.getOrLoad(BY_GENRE + genreName, () -> {
+            List<AlbumSnapshot> found = KeysetPages.loadAll(
+                    albumRepository.findIdsByGenreName(genreName),
+                    albumRepository::findSnapshotsByIdIn);
+            return found.isEmpty() ? null : found;
+        }, found -> CacheTags.ofAlbums(found, CacheTags.genreName(genreName)),
+                Set.of(CacheTags.genreName(genreName)));
+        if (albums == null) {
             throw new NotFoundException("Подходящих альбомов не найдено");
         }
-        cache.put(cacheKey, albums);
         return albums;
     }
 
+    @Override
+    public boolean warm(String key) {
+        if (key.startsWith(BY_ID)) {
+            getAlbumById(Long.parseLong(key.substring(BY_ID.length())));
+        } else if (key.startsWith(BY_NAME)) {
+            getAlbumByName(key.substring(BY_NAME.length()));
+        } else if (key.startsWith(BY_GENRE)) {
+            getAlbumsByGenreName(key.substring(BY_GENRE.length()));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
     public Album createAlbum(AlbumCreateDto albumDto) {
         List<Artist> artists = artistRepository.findAllById(albumDto.getArtistsIds());
 
@@ -82,65 +124,79 @@ public class AlbumService {
         Album album = new Album();
         album.setName(albumDto.getName());
         album.setArtists(artists);
-        cache.clear();
-        return albumRepository.save(album);
+        Album savedAlbum = albumRepository.save(album);
+        cache.invalidate(CacheTags.affectedBy(album));
+        return savedAlbum;
     }
 
-    public Album updateAlbum(long id, AlbumUpdateDto albumDto) {
-        Album album = albumRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найден альбом с ID = " + id));
-        if (albumDto.getName() != null) {
+    public BulkCreateResult<AlbumSnapshot> createAlbums(List<AlbumCreateDto> albumDtos) {
+        Map<Long, Artist> artists = EntityRefs.byId(artistRepository.findAllById(
+                BulkWriter.referencedIds(albumDtos, AlbumCreateDto::getArtistsIds)), Artist::getId);
+        return bulkWriter.create(albumDtos, albumDto -> {
+            Album album = new Album();
             album.setName(albumDto.getName());
-        }
-        List<Artist> artists = new ArrayList<>();
-        if (albumDto.getArtistsIds() != null && !albumDto.getArtistsIds().isEmpty()) {
-            for (Long artistId : albumDto.getArtistsIds()) {
-                Artist artist = artistRepository.findById(artistId)
-                        .orElseThrow(() -> new NotFoundException(
-                                "Указанный исполнитель альбома не найден"));
-                artist.getAlbums().add(album);
-                artists.add(artist);
+            album.setArtists(EntityRefs.resolve(albumDto.getArtistsIds(), artists,
+                    "Не найдены исполнители с ID: "));
+            return album;
+        }, albumRepository::saveAll, CacheTags::affectedBy, AlbumSnapshot::of);
+    }
+
+    // Связи разрешаются одним запросом на тип, а изменения сохраняются
+    // одним flush при коммите; кэш инвалидируется после коммита
+    public Album updateAlbum(long id, AlbumUpdateDto albumDto) {
+        Set<String> staleTags = new HashSet<>();
+        Album savedAlbum = transaction.execute(status -> {
+            Album album = albumRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Не найден альбом с ID = " + id));
+            staleTags.addAll(CacheTags.affectedBy(album));
+            if (albumDto.getName() != null) {
+                album.setName(albumDto.getName());
             }
-            album.setArtists(artists);
-        }
-        for (Long trackId : albumDto.getTracksIds()) {
-            Track track = trackRepository.findById(trackId)
-                    .orElseThrow(() -> new NotFoundException(
-                            "Указанный трек не найден"));
-            track.setAlbum(album);
-        }
-        List<Track> oldTracks = new ArrayList<>(album.getTracks());
-
-        List<Track> newTracks = new ArrayList<>();
-        if (albumDto.getTracksIds() != null) {
-            for (Long trackId : albumDto.getTracksIds()) {
-                Track track = trackRepository.findById(trackId)
-                        .orElseThrow(() -> new NotFoundException(
-                                "Указанный трек не найден"));
-                track.setAlbum(album);
-                newTracks.add(track);
+            if (albumDto.getArtistsIds() != null && !albumDto.getArtistsIds().isEmpty()) {
+                List<Artist> artists = EntityRefs.findAll(albumDto.getArtistsIds(),
+                        artistRepository, Artist::getId, "Не найдены исполнители с ID: ");
+                artists.forEach(artist -> artist.getAlbums().add(album));
+                album.setArtists(artists);
             }
-        }
-        album.setTracks(newTracks);
-
-        List<Track> tracksToRemove = oldTracks.stream()
-                .filter(oldTrack -> !newTracks.contains(oldTrack))
-                .toList();
-
-        tracksToRemove.forEach(track -> {
-            track.setAlbum(null);
-            trackRepository.save(track);
+            if (albumDto.getTracksIds() != null) {
+                List<Track> newTracks = EntityRefs.findAll(albumDto.getTracksIds(),
+                        trackRepository, Track::getId, "Не найдены треки с ID: ");
+                album.getTracks().stream()
+                        .filter(oldTrack -> !newTracks.contains(oldTrack))
+                        .forEach(oldTrack -> oldTrack.setAlbum(null));
+                newTracks.forEach(track -> track.setAlbum(album));
+                album.setTracks(newTracks);
+            }
+            staleTags.addAll(CacheTags.affectedBy(album));
+            return albumRepository.save(album);
         });
-        cache.clear();
-        return albumRepository.save(album);
+        cache.invalidate(staleTags);
+        return savedAlbum;
     }
 
+    // Треки альбома удаляются каскадом, поэтому сначала они, как и при удалении
+    // трека, убираются из плейлистов через журналы правок
     public void deleteAlbum(Long id) {
         Album album = albumRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException(
                         "Не найдено альбома с ID = " + id));
-        albumRepository.delete(album);
-        cache.clear();
+        Set<String> staleTags = CacheTags.affectedBy(album);
+        playlistService.removeTracksFromPlaylists(album.getTracks().stream()
+                .map(Track::getId)
+                .toList());
+        try {
+            transaction.executeWithoutResult(status -> {
+                albumRepository.delete(album);
+                albumRepository.flush();
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolated(e, PlaylistEntry.TRACK_CONSTRAINT)) {
+                throw e;
+            }
+            throw new ConflictException("Трек альбома " + id
+                    + " добавлен в плейлист во время удаления, повторите запрос");
+        }
+        cache.invalidate(staleTags);
     }
 
 
@@ -1,10 +1,17 @@
 package musiccatalog.service;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+import musiccatalog.cache.CacheTags;
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.ArtistCreateDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.ArtistSnapshot;
 import musiccatalog.dto.update.ArtistUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Album;
@@ -13,6 +20,8 @@ import musiccatalog.repository.AlbumRepository;
 import musiccatalog.repository.ArtistRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class ArtistService {
@@ -20,98 +29,106 @@ public class ArtistService {
     private final ArtistRepository artistRepository;
     private final AlbumRepository albumRepository;
     private final InMemoryCache cache;
+    private final BulkWriter bulkWriter;
+    private final TransactionTemplate transaction;
+
+    // Поле, а не лямбда в методе: поиск по id при попадании в кэш не создаёт объектов
+    private final LongFunction<ArtistSnapshot> artistLoader;
 
     @Autowired
     public ArtistService(ArtistRepository artistRepository, AlbumRepository albumRepository,
-                         InMemoryCache cache) {
+                         InMemoryCache cache, BulkWriter bulkWriter,
+                         PlatformTransactionManager transactionManager) {
         this.artistRepository = artistRepository;
         this.albumRepository = albumRepository;
         this.cache = cache;
+        this.bulkWriter = bulkWriter;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.artistLoader = id -> artistRepository.findSnapshotById(id).orElse(null);
     }
 
-    public List<Artist> getAllArtists() {
-        return artistRepository.findAll();
+    public KeysetPage<ArtistSnapshot> getAllArtists(Long after, int size) {
+        return KeysetPages.load(after, size, artistRepository::findIdsAfter,
+                artistRepository::findSnapshotsByIdIn);
     }
 
-    public Optional<Artist> getArtistById(long id) {
-        String cacheKey = "artists_id_" + id;
-        if (cache.containsKey(cacheKey)) {
-            return (Optional.of(((Artist) cache.get(cacheKey))));
+    public Optional<ArtistSnapshot> getArtistById(long id) {
+        ArtistSnapshot artist = cache.getOrLoadById(IdFamily.ARTISTS, id, artistLoader,
+                CacheTags::of, missing -> Set.of(CacheTags.artist(missing)));
+        if (artist == null) {
+            throw new NotFoundException("Не найдено исполнителя с ID " + id);
         }
-        Artist artist = artistRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найдено исполнителя с ID " + id));
-        cache.put(cacheKey, artist);
         return Optional.of(artist);
     }
 
-    public Artist getArtistByName(String name)  {
-        String cacheKey = "artists_name_" + name;
-        if (cache.containsKey(cacheKey)) {
-            return (Artist) cache.get(cacheKey);
-        }
-        Artist artist = artistRepository.findArtistByName(name);
-        cache.put(cacheKey, artist);
-        return artist;
+    public ArtistSnapshot getArtistByName(String name)  {
+        return cache.getOrLoad("artists_name_" + name,
+                () -> KeysetPages.loadAll(artistRepository.findIdsByName(name),
+                        artistRepository::findSnapshotsByIdIn)
+                        .stream()
+                        .findFirst()
+                        .orElse(null),
+                artist -> CacheTags.of(artist, CacheTags.artistName(name)),
+                Set.of(CacheTags.artistName(name)));
     }
 
     public Artist createArtist(ArtistCreateDto artistDto) {
         Artist artist = new Artist();
         artist.setName(artistDto.getName());
-        cache.clear();
-        return artistRepository.save(artist);
+        Artist savedArtist = artistRepository.save(artist);
+        cache.invalidate(CacheTags.affectedBy(artist));
+        return savedArtist;
     }
 
-    public Artist updateArtist(long id, ArtistUpdateDto artistDto) {
-        Artist artist = getArtistById(id)
-                .orElseThrow(() -> new NotFoundException("Не найдено исполнителя с ID " + id));
-
-        if (artistDto.getName() != null) {
+    public BulkCreateResult<ArtistSnapshot> createArtists(List<ArtistCreateDto> artistDtos) {
+        return bulkWriter.create(artistDtos, artistDto -> {
+            Artist artist = new Artist();
             artist.setName(artistDto.getName());
-        }
-        List<Album> currentAlbums = new ArrayList<>(artist.getAlbums());
-
-        List<Album> newAlbums = new ArrayList<>();
-        if (artistDto.getAlbumsIds() != null) {
-            for (Long albumId : artistDto.getAlbumsIds()) {
-                Album album = albumRepository.findById(albumId)
-                        .orElseThrow(() -> new NotFoundException("Альбом не найден"));
-
-                if (!album.getArtists().contains(artist)) {
-                    album.getArtists().add(artist);
-                    albumRepository.save(album);
-                }
+            return artist;
+        }, artistRepository::saveAll, CacheTags::affectedBy, ArtistSnapshot::of);
+    }
 
-                if (!newAlbums.contains(album)) {
-                    newAlbums.add(album);
-                }
+    public Artist updateArtist(long id, ArtistUpdateDto artistDto) {
+        Set<String> staleTags = new HashSet<>();
+        Artist savedArtist = transaction.execute(status -> {
+            Artist artist = artistRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Не найдено исполнителя с ID " + id));
+            staleTags.addAll(CacheTags.affectedBy(artist));
+            if (artistDto.getName() != null) {
+                artist.setName(artistDto.getName());
             }
-        }
-
-        List<Album> albumsToRemove = currentAlbums.stream()
-                .filter(album -> !newAlbums.contains(album))
-                .toList();
-
-        for (Album album : albumsToRemove) {
-            album.getArtists().remove(artist);
-            albumRepository.save(album);
-        }
-
-        artist.setAlbums(newAlbums);
-        cache.clear();
-        return artistRepository.save(artist);
-
+            if (artistDto.getAlbumsIds() != null) {
+                // Связь хранится на стороне альбома: изменения его списка
+                // исполнителей уходят в БД при коммите
+                List<Album> newAlbums = EntityRefs.findAll(artistDto.getAlbumsIds(),
+                        albumRepository, Album::getId, "Не найдены альбомы с ID: ");
+                artist.getAlbums().stream()
+                        .filter(album -> !newAlbums.contains(album))
+                        .forEach(album -> album.getArtists().remove(artist));
+                newAlbums.stream()
+                        .filter(album -> !album.getArtists().contains(artist))
+                        .forEach(album -> album.getArtists().add(artist));
+                artist.setAlbums(newAlbums);
+            }
+            staleTags.addAll(CacheTags.affectedBy(artist));
+            return artistRepository.save(artist);
+        });
+        cache.invalidate(staleTags);
+        return savedArtist;
     }
 
+    // Связи с альбомами удаляются одним DELETE по album_artists: альбомы
+    // не загружаются и не пересохраняются, сколько бы их ни было
     public void deleteArtist(Long id) {
-        Artist artist = artistRepository.findById(id)
-                .orElseThrow(() ->
-                        new NotFoundException("Не найдено исполнителя с ID = " + id));
-        for (Album album : artist.getAlbums()) {
-            album.getArtists().remove(artist);
-            albumRepository.save(album);
-        }
-        artistRepository.delete(artist);
-        cache.clear();
+        ArtistSnapshot artist = transaction.execute(status -> {
+            ArtistSnapshot snapshot = artistRepository.findSnapshotById(id)
+                    .orElseThrow(() ->
+                            new NotFoundException("Не найдено исполнителя с ID = " + id));
+            artistRepository.deleteAlbumLinks(id);
+            artistRepository.deleteRowById(id);
+            return snapshot;
+        });
+        cache.invalidate(CacheTags.affectedBy(artist));
     }
 
 }
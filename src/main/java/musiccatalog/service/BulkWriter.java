@@ -0,0 +1,131 @@
+package musiccatalog.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import musiccatalog.cache.InMemoryCache;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.BulkItemError;
+import musiccatalog.exception.ConflictException;
+import musiccatalog.exception.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Общий путь bulk-создания. Все элементы проверяются в памяти по уже
+// загруженным связям, затем сохраняются порциями: порция - одна транзакция
+// и пакетная вставка JDBC. Кэш инвалидируется один раз в конце.
+// Ошибка элемента (или упавшей порции) попадает в ответ и не прерывает остальные
+@Component
+class BulkWriter {
+
+    static final int CHUNK = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkWriter.class);
+
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final InMemoryCache cache;
+
+    @Autowired
+    BulkWriter(Validator validator, EntityManager entityManager,
+               PlatformTransactionManager transactionManager, InMemoryCache cache) {
+        this.validator = validator;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.cache = cache;
+    }
+
+    // builder собирает сущность из элемента или бросает NotFoundException/ConflictException;
+    // view вызывается до отсоединения сущности, пока её ленивые связи доступны
+    <D, E, R> BulkCreateResult<R> create(List<D> items, Function<D, E> builder,
+                                         Function<List<E>, List<E>> saveAll,
+                                         Function<E, Set<String>> affectedTags,
+                                         Function<E, R> view) {
+        List<BulkItemError> errors = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<E> entities = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            D item = items.get(i);
+            Set<ConstraintViolation<D>> violations = validator.validate(item);
+            if (!violations.isEmpty()) {
+                errors.add(new BulkItemError(i, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "))));
+                continue;
+            }
+            try {
+                entities.add(builder.apply(item));
+                indexes.add(i);
+            } catch (NotFoundException | ConflictException e) {
+                errors.add(new BulkItemError(i, e.getMessage()));
+            }
+        }
+
+        List<R> created = new ArrayList<>(entities.size());
+        Set<String> staleTags = new HashSet<>();
+        for (int from = 0; from < entities.size(); from += CHUNK) {
+            int to = Math.min(from + CHUNK, entities.size());
+            List<E> chunk = entities.subList(from, to);
+            Set<String> chunkTags = new HashSet<>();
+            try {
+                created.addAll(transaction.execute(status ->
+                        saveChunk(chunk, saveAll, affectedTags, view, chunkTags)));
+                staleTags.addAll(chunkTags);
+            } catch (RuntimeException e) {
+                logger.warn("Bulk chunk of {} items not saved", chunk.size(), e);
+                for (int index : indexes.subList(from, to)) {
+                    errors.add(new BulkItemError(index, "Не удалось сохранить элемент"));
+                }
+            }
+        }
+        if (!staleTags.isEmpty()) {
+            cache.invalidate(staleTags);
+        }
+        errors.sort(Comparator.comparingInt(BulkItemError::index));
+        return new BulkCreateResult<>(created, errors);
+    }
+
+    private <E, R> List<R> saveChunk(List<E> chunk, Function<List<E>, List<E>> saveAll,
+                                     Function<E, Set<String>> affectedTags,
+                                     Function<E, R> view, Set<String> chunkTags) {
+        List<E> saved = saveAll.apply(chunk);
+        entityManager.flush();
+        List<R> views = new ArrayList<>(saved.size());
+        for (E entity : saved) {
+            chunkTags.addAll(affectedTags.apply(entity));
+            views.add(view.apply(entity));
+            // Отсоединяются только новые сущности: загруженные связи остаются
+            // в контексте для следующих порций, а сам он не растёт
+            entityManager.detach(entity);
+        }
+        return views;
+    }
+
+    // id, на которые ссылаются элементы запроса, - для одного findAllById на тип
+    static <D> Set<Long> referencedIds(List<D> items, Function<D, Collection<Long>> ids) {
+        Set<Long> referenced = new LinkedHashSet<>();
+        for (D item : items) {
+            Collection<Long> itemIds = ids.apply(item);
+            if (itemIds != null) {
+                itemIds.stream().filter(Objects::nonNull).forEach(referenced::add);
+            }
+        }
+        return referenced;
+    }
+}
@@ -0,0 +1,170 @@
+package musiccatalog.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import musiccatalog.cache.InMemoryCache;
+import musiccatalog.config.CacheProperties;
+import musiccatalog.model.CacheInvalidation;
+import musiccatalog.repository.CacheInvalidationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+// Тёплый перезапуск: при остановке снимки из кэша сохраняются в файл, при старте
+// загружаются обратно. Каждая инвалидация любого узла пишется в журнал
+// cache_invalidations, поэтому проверка дампа - один запрос тегов,
+// инвалидированных после отметки дампа. Загрузка идёт раньше прогрева.
+// Теги копятся в течение journalDebounce и пишутся одной строкой в фоне:
+// строка, записанная позже отметки чужого дампа, лишь признает его записи
+// устаревшими, так что задержка безопасна. Старые строки удаляются по расписанию
+@Service
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CachePersistenceService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachePersistenceService.class);
+
+    private final InMemoryCache cache;
+    private final CacheInvalidationRepository invalidationRepository;
+    private final CacheProperties.Persistence settings;
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Set<String> pending = new HashSet<>();
+    private boolean flushScheduled;
+
+    @Autowired
+    public CachePersistenceService(InMemoryCache cache,
+                                   CacheInvalidationRepository invalidationRepository,
+                                   CacheProperties properties) {
+        this.cache = cache;
+        this.invalidationRepository = invalidationRepository;
+        this.settings = properties.getPersistence();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "cache-invalidation-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (settings.isEnabled()) {
+            cache.addInvalidationListener(this::recordInvalidation);
+            long pruneMillis = settings.getPruneInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::prune, pruneMillis, pruneMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        prune();
+        Path path = Paths.get(settings.getDumpFile());
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            Duration age = Duration.between(Files.getLastModifiedTime(path).toInstant(),
+                    Instant.now());
+            if (age.compareTo(settings.getMaxAge()) > 0) {
+                logger.info("Cache dump {} is {} old, skipped", path, age);
+            } else {
+                cache.restore(path, invalidationRepository::findTagsInvalidatedAfter);
+            }
+            Files.delete(path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cache dump {} not restored", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void dump() {
+        scheduler.shutdownNow();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        // Накопленные теги пишутся до отметки: иначе они пропали бы с остановкой
+        flush();
+        Path path = Paths.get(settings.getDumpFile());
+        try {
+            // Отметка берётся до снятия записей: инвалидация, случившаяся
+            // во время дампа, попадёт в журнал после неё
+            cache.dump(path, invalidationRepository.findLastId());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cache dump to {} failed", path, e);
+        }
+    }
+
+    private void recordInvalidation(Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            pending.addAll(tags);
+            if (pending.size() >= settings.getJournalMaxTags()) {
+                scheduler.execute(this::flush);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, settings.getJournalDebounce().toMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Планировщик остановлен: теги допишет dump()
+            logger.debug("Cache invalidation journal is shutting down: {}", tags);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush() {
+        Set<String> batch;
+        lock.lock();
+        try {
+            batch = pending;
+            pending = new HashSet<>();
+            flushScheduled = false;
+        } finally {
+            lock.unlock();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        CacheInvalidation invalidation = new CacheInvalidation();
+        invalidation.setTags(batch.toArray(String[]::new));
+        invalidation.setCreatedAt(Instant.now());
+        try {
+            invalidationRepository.save(invalidation);
+        } catch (RuntimeException e) {
+            // Запись уже сделана; без журнала дамп просто устареет по max-age
+            logger.warn("Cache invalidation not logged: {}", batch, e);
+        }
+    }
+
+    private void prune() {
+        try {
+            int deleted = invalidationRepository.deleteOlderThan(
+                    Instant.now().minus(settings.getMaxAge()));
+            logger.debug("Cache invalidation journal pruned: {} rows", deleted);
+        } catch (RuntimeException e) {
+            logger.warn("Cache invalidation journal not pruned", e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package musiccatalog.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import musiccatalog.cache.CacheWarmer;
+import musiccatalog.cache.InMemoryCache;
+import musiccatalog.config.CacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Прогрев кэша после деплоя. При остановке самые востребованные ключи
+// (обращения к записям кэша плюс посещения страниц /tracks/{id} и т.п.
+// из VisitService) сохраняются в файл; при старте они параллельно загружаются
+// заново. ApplicationRunner выполняется до того, как приложение объявит
+// готовность (ReadinessState.ACCEPTING_TRAFFIC)
+@Service
+public class CacheWarmUpService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmUpService.class);
+    private static final Pattern ENTITY_URL =
+            Pattern.compile("^/(tracks|albums|playlists)/(\\d+)$");
+
+    private final InMemoryCache cache;
+    private final VisitService visitService;
+    private final List<CacheWarmer> warmers;
+    private final CacheProperties.WarmUp settings;
+    private final TransactionTemplate transaction;
+
+    @Autowired
+    public CacheWarmUpService(InMemoryCache cache, VisitService visitService,
+                              List<CacheWarmer> warmers, CacheProperties properties,
+                              PlatformTransactionManager transactionManager) {
+        this.cache = cache;
+        this.visitService = visitService;
+        this.warmers = warmers;
+        this.settings = properties.getWarmUp();
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        List<String> keys = readHotKeys();
+        if (keys.isEmpty()) {
+            logger.info("Cache warm-up skipped: no hot keys in {}", settings.getHotKeysFile());
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        int loaded = 0;
+        int timedOut = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getThreads());
+        try {
+            List<Callable<Boolean>> tasks = keys.stream()
+                    .map(key -> (Callable<Boolean>) () -> warm(key))
+                    .toList();
+            // По истечении бюджета незавершённые загрузки отменяются
+            List<Future<Boolean>> results = executor.invokeAll(tasks,
+                    settings.getTimeBudget().toMillis(), TimeUnit.MILLISECONDS);
+            for (Future<Boolean> result : results) {
+                try {
+                    if (Boolean.TRUE.equals(result.get())) {
+                        loaded++;
+                    }
+                } catch (CancellationException e) {
+                    timedOut++;
+                } catch (ExecutionException e) {
+                    logger.debug("Cache warm-up key failed: {}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("Cache warm-up loaded {} of {} keys in {} ms, {} timed out", loaded,
+                keys.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt),
+                timedOut);
+    }
+
+    @PreDestroy
+    public void saveHotKeys() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        Map<String, Integer> scores = new HashMap<>(cache.getHitCounts());
+        visitService.getAllVisitCounts().forEach((url, visits) -> {
+            Matcher matcher = ENTITY_URL.matcher(url);
+            if (matcher.matches()) {
+                scores.merge(matcher.group(1) + "_id_" + matcher.group(2), visits, Integer::sum);
+            }
+        });
+        List<String> keys = scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(settings.getMaxKeys())
+                .map(Map.Entry::getKey)
+                .toList();
+        Path path = Paths.get(settings.getHotKeysFile());
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, keys);
+            logger.info("Cache hot keys saved: {} keys to {}", keys.size(), path);
+        } catch (IOException e) {
+            logger.warn("Cache hot keys not saved to {}", path, e);
+        }
+    }
+
+    private boolean warm(String key) {
+        // Снимок собирается из нескольких запросов проекций: в одной read-only
+        // транзакции они берут одно соединение из пула и обходятся без flush
+        return Boolean.TRUE.equals(transaction.execute(status -> {
+            for (CacheWarmer warmer : warmers) {
+                if (warmer.warm(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }));
+    }
+
+    private List<String> readHotKeys() {
+        Path path = Paths.get(settings.getHotKeysFile());
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        try (Stream<String> lines = Files.lines(path)) {
+            return lines.filter(line -> !line.isBlank())
+                    .distinct()
+                    .limit(settings.getMaxKeys())
+                    .toList();
+        } catch (IOException e) {
+            logger.warn("Cache hot keys not read from {}", path, e);
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package musiccatalog.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+// Имя нарушенного ограничения из исключения Hibernate в цепочке причин.
+// Конфликтом считается только ожидаемое ограничение, остальные ошибки не маскируются
+final class ConstraintViolations {
+
+    private ConstraintViolations() {
+    }
+
+    static boolean isViolated(DataIntegrityViolationException e, String constraint) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return constraint.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+}
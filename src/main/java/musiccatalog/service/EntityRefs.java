@@ -0,0 +1,40 @@
+package musiccatalog.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import musiccatalog.exception.NotFoundException;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+// Разрешение набора id в сущности одним запросом на тип. Все ненайденные id
+// перечисляются в одном исключении, найденные возвращаются в порядке запроса
+final class EntityRefs {
+
+    private EntityRefs() {
+    }
+
+    static <E> List<E> findAll(Collection<Long> ids, JpaRepository<E, Long> repository,
+                               Function<E, Long> id, String missingMessage) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        return resolve(distinctIds, byId(repository.findAllById(distinctIds), id),
+                missingMessage);
+    }
+
+    static <E> Map<Long, E> byId(List<E> entities, Function<E, Long> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    static <E> List<E> resolve(Collection<Long> ids, Map<Long, E> found, String missingMessage) {
+        List<Long> missingIds = ids.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missingIds.isEmpty()) {
+            throw new NotFoundException(missingMessage + missingIds);
+        }
+        return ids.stream()
+                .distinct()
+                .map(found::get)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -1,15 +1,25 @@
 package musiccatalog.service;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+import musiccatalog.cache.CacheTags;
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.GenreCreateDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.GenreSnapshot;
 import musiccatalog.dto.update.GenreUpdateDto;
 import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Genre;
 import musiccatalog.repository.GenreRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -17,67 +27,101 @@ public class GenreService {
 
     private final GenreRepository genreRepository;
     private final InMemoryCache cache;
+    private final BulkWriter bulkWriter;
+
+    // Поле, а не лямбда в методе: поиск по id при попадании в кэш не создаёт объектов
+    private final LongFunction<GenreSnapshot> genreLoader;
 
     @Autowired
-    public GenreService(GenreRepository genreRepository, InMemoryCache cache) {
+    public GenreService(GenreRepository genreRepository, InMemoryCache cache,
+                        BulkWriter bulkWriter) {
         this.genreRepository = genreRepository;
         this.cache = cache;
+        this.bulkWriter = bulkWriter;
+        this.genreLoader = id -> genreRepository.findSnapshotById(id).orElse(null);
     }
 
-    public List<Genre> getAllGenres() {
-        return genreRepository.findAll();
+    public KeysetPage<GenreSnapshot> getAllGenres(Long after, int size) {
+        return KeysetPages.load(after, size, genreRepository::findIdsAfter,
+                genreRepository::findSnapshotsByIdIn);
     }
 
-    public Optional<Genre> getGenreById(long id) {
-        String cacheKey = "genres_id_" + id;
-        if (cache.containsKey(cacheKey)) {
-            return (Optional.of(((Genre) cache.get(cacheKey))));
+    public Optional<GenreSnapshot> getGenreById(long id) {
+        GenreSnapshot genre = cache.getOrLoadById(IdFamily.GENRES, id, genreLoader,
+                CacheTags::of, missing -> Set.of(CacheTags.genre(missing)));
+        if (genre == null) {
+            throw new NotFoundException("Не найден жанр с ID " + id);
         }
-        Genre genre = genreRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найден жанр с ID " + id));
-        cache.put(cacheKey, genre);
         return Optional.of(genre);
     }
 
-    public Genre getGenreByName(String name)  {
-        String cacheKey = "genres_name_" + name;
-        if (cache.containsKey(cacheKey)) {
-            return (Genre) cache.get(cacheKey);
-        }
-        Genre genre = genreRepository.findGenreByName(name);
-        cache.put(cacheKey, genre);
-        return genre;
+    public GenreSnapshot getGenreByName(String name)  {
+        return cache.getOrLoad("genres_name_" + name,
+                () -> KeysetPages.loadAll(genreRepository.findIdsByName(name),
+                        genreRepository::findSnapshotsByIdIn)
+                        .stream()
+                        .findFirst()
+                        .orElse(null),
+                genre -> CacheTags.of(genre, CacheTags.genreName(name)),
+                Set.of(CacheTags.genreName(name)));
     }
 
     public Genre createGenre(GenreCreateDto genreDto) {
-        if (genreRepository.findGenreByName(genreDto.getName()) != null) {
-            throw new ConflictException("Такой жанр уже существует");
-        }
         Genre genre = new Genre();
         genre.setName(genreDto.getName());
-        cache.clear();
-        return genreRepository.save(genre);
+        Genre savedGenre = saveUnique(genre);
+        cache.invalidate(CacheTags.affectedBy(genre));
+        return savedGenre;
+    }
+
+    // Занятые имена читаются одним запросом; повтор имени внутри запроса
+    // отклоняется так же, как уже существующее
+    public BulkCreateResult<GenreSnapshot> createGenres(List<GenreCreateDto> genreDtos) {
+        Set<String> takenNames = new HashSet<>(genreRepository.findNamesIn(genreDtos.stream()
+                .map(GenreCreateDto::getName)
+                .filter(Objects::nonNull)
+                .toList()));
+        return bulkWriter.create(genreDtos, genreDto -> {
+            if (!takenNames.add(genreDto.getName())) {
+                throw new ConflictException("Жанр " + genreDto.getName() + " уже существует");
+            }
+            Genre genre = new Genre();
+            genre.setName(genreDto.getName());
+            return genre;
+        }, genreRepository::saveAll, CacheTags::affectedBy, GenreSnapshot::of);
     }
 
     public Genre updateGenre(long id, GenreUpdateDto genreDto) {
-        Genre genre = getGenreById(id)
+        Genre genre = genreRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Не найдено жанра с ID " + id));
-        if (genreRepository.findGenreByName(genreDto.getName()) != null
-                && genreRepository.findGenreByName(genreDto.getName()).getId() != id) {
-            throw new ConflictException("Такой жанр уже существует");
-        }
+        Set<String> staleTags = CacheTags.affectedBy(genre);
         if (genreDto.getName() != null) {
             genre.setName(genreDto.getName());
         }
-        cache.clear();
-        return genreRepository.save(genre);
+        Genre savedGenre = saveUnique(genre);
+        staleTags.addAll(CacheTags.affectedBy(genre));
+        cache.invalidate(staleTags);
+        return savedGenre;
+    }
+
+    // Уникальность имени проверяет ограничение в БД: запись сразу сбрасывается,
+    // и параллельный запрос с тем же именем получает конфликт, а не дубликат
+    private Genre saveUnique(Genre genre) {
+        try {
+            return genreRepository.saveAndFlush(genre);
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolated(e, Genre.NAME_CONSTRAINT)) {
+                throw e;
+            }
+            throw new ConflictException("Такой жанр уже существует");
+        }
     }
 
     public void deleteGenre(Long id) {
         Genre genre = genreRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Не найдено жанра с ID " + id));
         genreRepository.delete(genre);
-        cache.clear();
+        cache.invalidate(CacheTags.affectedBy(genre));
     }
 
 }
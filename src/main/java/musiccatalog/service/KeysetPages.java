@@ -0,0 +1,49 @@
+package musiccatalog.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import musiccatalog.dto.get.KeysetPage;
+import org.springframework.data.domain.Limit;
+
+// Выборка страницы в два шага: сначала id по ключу, затем снимки по этим id
+// проекциями - строка на запись и по запросу на каждую вложенную коллекцию.
+// Сущности не создаются, а LIMIT не сочетается с соединением коллекций
+final class KeysetPages {
+
+    private KeysetPages() {
+    }
+
+    static <T> KeysetPage<T> load(Long after, int size, IdsAfter ids,
+                                  Function<Collection<Long>, List<T>> loader) {
+        int limit = KeysetPage.limit(size);
+        // Лишний id показывает, есть ли следующая страница
+        List<Long> pageIds = ids.find(after != null ? after : 0, Limit.of(limit + 1));
+        Long nextCursor = null;
+        if (pageIds.size() > limit) {
+            pageIds = pageIds.subList(0, limit);
+            nextCursor = pageIds.get(limit - 1);
+        }
+        List<T> items = pageIds.isEmpty() ? List.of() : loader.apply(pageIds);
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    // Выборка по id из поиска по имени: таких id может быть сколько угодно,
+    // поэтому IN собирается порциями не длиннее страницы
+    static <T> List<T> loadAll(List<Long> ids, Function<Collection<Long>, List<T>> loader) {
+        if (ids.size() <= KeysetPage.MAX_SIZE) {
+            return ids.isEmpty() ? List.of() : loader.apply(ids);
+        }
+        List<T> items = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += KeysetPage.MAX_SIZE) {
+            int to = Math.min(from + KeysetPage.MAX_SIZE, ids.size());
+            items.addAll(loader.apply(ids.subList(from, to)));
+        }
+        return items;
+    }
+
+    interface IdsAfter {
+        List<Long> find(long after, Limit limit);
+    }
+}
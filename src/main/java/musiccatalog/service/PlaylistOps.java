@@ -0,0 +1,204 @@
+package musiccatalog.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import musiccatalog.model.PlaylistOperation;
+import musiccatalog.model.PlaylistOperation.Type;
+
+// Операции над составом плейлиста по индексам и их перенос (transform) через
+// правки, принятые после базовой версии клиента. Порядок задаёт журнал на сервере,
+// поэтому клиенты сходятся, проигрывая его; перенос лишь сохраняет смысл правки
+final class PlaylistOps {
+
+    record Op(Type type, int position, Integer target, Long trackId) {
+
+        static Op insert(int position, Long trackId) {
+            return new Op(Type.INSERT, position, null, trackId);
+        }
+
+        static Op remove(int position) {
+            return new Op(Type.REMOVE, position, null, null);
+        }
+
+        static Op move(int from, int to) {
+            return new Op(Type.MOVE, from, to, null);
+        }
+
+        static Op of(PlaylistOperation operation) {
+            return new Op(operation.getType(), operation.getPosition(), operation.getTarget(),
+                    operation.getTrackId());
+        }
+
+        PlaylistOperation toOperation(long playlistId, long version) {
+            PlaylistOperation operation = new PlaylistOperation();
+            operation.setPlaylistId(playlistId);
+            operation.setVersion(version);
+            operation.setType(type);
+            operation.setPosition(position);
+            operation.setTarget(target);
+            operation.setTrackId(trackId);
+            return operation;
+        }
+    }
+
+    private PlaylistOps() {
+    }
+
+    // Правки клиента, сделанные последовательно от базовой версии, переносятся
+    // через уже принятые операции. Правка над треком, который успели удалить, выпадает
+    static List<Op> rebase(List<Op> edits, List<Op> accepted) {
+        List<Op> rebased = new ArrayList<>(edits);
+        for (Op acceptedOp : accepted) {
+            Op other = acceptedOp;
+            for (int i = 0; i < rebased.size() && other != null; i++) {
+                Op edit = rebased.get(i);
+                if (edit == null) {
+                    continue;
+                }
+                rebased.set(i, transform(edit, other, false));
+                other = transform(other, edit, true);
+            }
+        }
+        return rebased.stream().filter(Objects::nonNull).toList();
+    }
+
+    // op после against. first - op ставится раньше при вставке в тот же индекс
+    static Op transform(Op op, Op against, boolean first) {
+        return switch (op.type()) {
+            case INSERT -> Op.insert(slotAfter(op.position(), against, first), op.trackId());
+            case REMOVE -> {
+                Integer at = elementAfter(op.position(), against);
+                yield at != null ? Op.remove(at) : null;
+            }
+            case MOVE -> {
+                Integer from = elementAfter(op.position(), against);
+                yield from != null ? Op.move(from, slotAfter(op.target(), against, first)) : null;
+            }
+        };
+    }
+
+    // Правки, превращающие состав current в target (треки в target не повторяются).
+    // Наибольшая общая подпоследовательность остаётся на месте и операций не даёт,
+    // лишние треки удаляются, оставшиеся переставляются, новые вставляются:
+    // вставка одного трека в начало - одна операция, а не сдвиг всего списка
+    static List<Op> diff(List<Long> current, List<Long> target) {
+        Map<Long, Integer> targetIndex = new HashMap<>();
+        for (int i = 0; i < target.size(); i++) {
+            targetIndex.put(target.get(i), i);
+        }
+        boolean[] kept = longestCommonSubsequence(current, targetIndex);
+        Set<Long> settled = new HashSet<>();
+        for (int i = 0; i < current.size(); i++) {
+            if (kept[i]) {
+                settled.add(current.get(i));
+            }
+        }
+
+        // Из повторов и переставляемых треков остаётся первое вхождение
+        List<Op> ops = new ArrayList<>();
+        Set<Long> moving = new HashSet<>();
+        boolean[] removed = new boolean[current.size()];
+        for (int i = 0; i < current.size(); i++) {
+            Long trackId = current.get(i);
+            removed[i] = !kept[i] && (!targetIndex.containsKey(trackId)
+                    || settled.contains(trackId) || !moving.add(trackId));
+        }
+        List<Long> working = new ArrayList<>(current);
+        for (int i = current.size() - 1; i >= 0; i--) {
+            if (removed[i]) {
+                ops.add(Op.remove(i));
+                working.remove(i);
+            }
+        }
+
+        // Каждый трек ставится сразу за предыдущим по target: тот уже на месте
+        for (int i = 0; i < target.size(); i++) {
+            Long trackId = target.get(i);
+            if (settled.contains(trackId)) {
+                continue;
+            }
+            int from = moving.contains(trackId) ? working.indexOf(trackId) : -1;
+            if (from >= 0) {
+                working.remove(from);
+            }
+            int to = i == 0 ? 0 : working.indexOf(target.get(i - 1)) + 1;
+            working.add(to, trackId);
+            ops.add(from >= 0 ? Op.move(from, to) : Op.insert(to, trackId));
+            settled.add(trackId);
+        }
+        return ops;
+    }
+
+    // Отметки треков current, входящих в наибольшую общую подпоследовательность
+    // с target. Так как target без повторов, это наибольшая возрастающая
+    // подпоследовательность индексов в target, она ищется за O(n log n)
+    private static boolean[] longestCommonSubsequence(List<Long> current,
+                                                      Map<Long, Integer> targetIndex) {
+        int[] tails = new int[current.size()];
+        int[] previous = new int[current.size()];
+        int length = 0;
+        for (int i = 0; i < current.size(); i++) {
+            Integer index = targetIndex.get(current.get(i));
+            if (index == null) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (targetIndex.get(current.get(tails[middle])) < index) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            length = Math.max(length, low + 1);
+        }
+        boolean[] kept = new boolean[current.size()];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            kept[i] = true;
+        }
+        return kept;
+    }
+
+    // Индекс места вставки после операции against
+    private static int slotAfter(int slot, Op against, boolean first) {
+        return switch (against.type()) {
+            case INSERT -> shiftedByInsert(slot, against.position(), first);
+            case REMOVE -> against.position() < slot ? slot - 1 : slot;
+            case MOVE -> shiftedByInsert(against.position() < slot ? slot - 1 : slot,
+                    against.target(), first);
+        };
+    }
+
+    // Новый индекс существующего трека или null, если трек удалён
+    private static Integer elementAfter(int index, Op against) {
+        return switch (against.type()) {
+            case INSERT -> against.position() <= index ? index + 1 : index;
+            case REMOVE -> {
+                if (against.position() == index) {
+                    yield null;
+                }
+                yield against.position() < index ? index - 1 : index;
+            }
+            case MOVE -> {
+                if (against.position() == index) {
+                    yield against.target();
+                }
+                int withoutMoved = against.position() < index ? index - 1 : index;
+                yield against.target() <= withoutMoved ? withoutMoved + 1 : withoutMoved;
+            }
+        };
+    }
+
+    private static int shiftedByInsert(int slot, int inserted, boolean first) {
+        return inserted < slot || inserted == slot && !first ? slot + 1 : slot;
+    }
+}
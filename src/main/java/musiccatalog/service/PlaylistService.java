@@ -1,72 +1,129 @@
 package musiccatalog.service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import musiccatalog.cache.CacheTags;
+import musiccatalog.cache.CacheWarmer;
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.PlaylistCreateDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
+import musiccatalog.dto.update.PlaylistOperationDto;
 import musiccatalog.dto.update.PlaylistUpdateDto;
+import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Playlist;
+import musiccatalog.model.PlaylistEntry;
+import musiccatalog.model.PlaylistOperation;
 import musiccatalog.model.Track;
 import musiccatalog.model.User;
+import musiccatalog.repository.PlaylistEntryRepository;
+import musiccatalog.repository.PlaylistOperationRepository;
 import musiccatalog.repository.PlaylistRepository;
 import musiccatalog.repository.TrackRepository;
 import musiccatalog.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
-public class PlaylistService {
+public class PlaylistService implements CacheWarmer {
+
+    private static final String BY_ID = "playlists_id_";
+    private static final String BY_NAME = "playlists_name_";
+    private static final String BY_AUTHOR = "playlists_author_";
+    private static final int EDIT_ATTEMPTS = 5;
 
     private final PlaylistRepository playlistRepository;
+    private final PlaylistEntryRepository playlistEntryRepository;
+    private final PlaylistOperationRepository playlistOperationRepository;
     private final TrackRepository trackRepository;
     private final UserRepository userRepository;
     private final InMemoryCache cache;
+    private final BulkWriter bulkWriter;
+    private final TransactionTemplate transaction;
+
+    // Поле, а не лямбда в методе: поиск по id при попадании в кэш не создаёт объектов
+    private final LongFunction<PlaylistSnapshot> playlistLoader;
 
     @Autowired
     public PlaylistService(PlaylistRepository playlistRepository,
+                           PlaylistEntryRepository playlistEntryRepository,
+                           PlaylistOperationRepository playlistOperationRepository,
                            TrackRepository trackRepository, UserRepository userRepository,
-                           InMemoryCache cache) {
+                           InMemoryCache cache, BulkWriter bulkWriter,
+                           PlatformTransactionManager transactionManager) {
         this.playlistRepository = playlistRepository;
+        this.playlistEntryRepository = playlistEntryRepository;
+        this.playlistOperationRepository = playlistOperationRepository;
         this.trackRepository = trackRepository;
         this.userRepository = userRepository;
         this.cache = cache;
+        this.bulkWriter = bulkWriter;
+        this.transaction = new TransactionTemplate(transactionManager);
+        // Состав и версия журнала читаются разными запросами: в одном снимке БД
+        // клиент получает версию, от которой можно слать правки
+        TransactionTemplate snapshotRead = new TransactionTemplate(transactionManager);
+        snapshotRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotRead.setReadOnly(true);
+        this.playlistLoader = id -> snapshotRead.execute(status ->
+                playlistRepository.findSnapshotById(id).orElse(null));
     }
 
-    public List<Playlist> getAllPlaylists() {
-        return playlistRepository.findAll();
+    public KeysetPage<PlaylistSnapshot> getAllPlaylists(Long after, int size) {
+        return KeysetPages.load(after, size, playlistRepository::findIdsAfter,
+                playlistRepository::findSnapshotsByIdIn);
     }
 
-    public Optional<Playlist> getPlaylistById(long id) {
-        String cacheKey = "playlists_id_" + id;
-        if (cache.containsKey(cacheKey)) {
-            return (Optional.of(((Playlist) cache.get(cacheKey))));
+    public Optional<PlaylistSnapshot> getPlaylistById(long id) {
+        PlaylistSnapshot playlist = cache.getOrLoadById(IdFamily.PLAYLISTS, id, playlistLoader,
+                CacheTags::of, missing -> Set.of(CacheTags.playlist(missing)));
+        if (playlist == null) {
+            throw new NotFoundException("Не найдено плейлиста с ID " + id);
         }
-        Playlist playlist = playlistRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найдено плейлиста с ID " + id));
-        cache.put(cacheKey, playlist);
         return Optional.of(playlist);
     }
 
-    public List<Playlist> getPlaylistByName(String name)  {
-        String cacheKey = "playlists_name_" + name;
-        if (cache.containsKey(cacheKey)) {
-            return (List<Playlist>) cache.get(cacheKey);
-        }
-        List<Playlist> playlist = playlistRepository.findPlaylistByName(name);
-        cache.put(cacheKey, playlist);
-        return playlist;
+    public List<PlaylistSnapshot> getPlaylistByName(String name)  {
+        return cache.getOrLoad(BY_NAME + name,
+                () -> KeysetPages.loadAll(playlistRepository.findIdsByName(name),
+                        playlistRepository::findSnapshotsByIdIn),
+                playlists -> CacheTags.ofPlaylists(playlists, CacheTags.playlistName(name)));
+    }
+
+    public List<PlaylistSnapshot> getPlaylistByAuthor(Long authorId)  {
+        return cache.getOrLoad(BY_AUTHOR + authorId,
+                () -> KeysetPages.loadAll(playlistRepository.findIdsByAuthorId(authorId),
+                        playlistRepository::findSnapshotsByIdIn),
+                playlists -> CacheTags.ofPlaylists(playlists, CacheTags.user(authorId)));
     }
 
-    public List<Playlist> getPlaylistByAuthor(Long authorId)  {
-        String cacheKey = "playlists_author_" + authorId;
-        if (cache.containsKey(cacheKey)) {
-            return (List<Playlist>) cache.get(cacheKey);
+    @Override
+    public boolean warm(String key) {
+        if (key.startsWith(BY_ID)) {
+            getPlaylistById(Long.parseLong(key.substring(BY_ID.length())));
+        } else if (key.startsWith(BY_NAME)) {
+            getPlaylistByName(key.substring(BY_NAME.length()));
+        } else if (key.startsWith(BY_AUTHOR)) {
+            getPlaylistByAuthor(Long.parseLong(key.substring(BY_AUTHOR.length())));
+        } else {
+            return false;
         }
-        List<Playlist> playlist = playlistRepository.findPlaylistByAuthorId(authorId);
-        cache.put(cacheKey, playlist);
-        return playlist;
+        return true;
     }
 
     public Playlist createPlaylist(PlaylistCreateDto playlistDto) {
@@ -78,41 +135,334 @@ public class PlaylistService {
                 .orElseThrow(()
                         -> new NotFoundException("Создатель плейлиста не найден"));
         playlist.setAuthor(author);
-        cache.clear();
-        return playlistRepository.save(playlist);
+        Playlist savedPlaylist = playlistRepository.save(playlist);
+        cache.invalidate(CacheTags.affectedBy(playlist));
+        return savedPlaylist;
+    }
+
+    public BulkCreateResult<PlaylistSnapshot> createPlaylists(
+            List<PlaylistCreateDto> playlistDtos) {
+        Map<Long, Track> tracks = EntityRefs.byId(trackRepository.findAllById(
+                BulkWriter.referencedIds(playlistDtos, PlaylistCreateDto::getTracksIds)),
+                Track::getId);
+        Map<Long, User> authors = EntityRefs.byId(userRepository.findAllById(
+                BulkWriter.referencedIds(playlistDtos,
+                        dto -> Collections.singletonList(dto.getAuthorId()))), User::getId);
+        return bulkWriter.create(playlistDtos, playlistDto -> {
+            User author = authors.get(playlistDto.getAuthorId());
+            if (author == null) {
+                throw new NotFoundException("Создатель плейлиста не найден");
+            }
+            Playlist playlist = new Playlist();
+            playlist.setName(playlistDto.getName());
+            playlist.setAuthor(author);
+            playlist.setTracks(playlistDto.getTracksIds() != null
+                    ? EntityRefs.resolve(playlistDto.getTracksIds(), tracks,
+                            "Не найдены треки с ID: ")
+                    : new ArrayList<>());
+            return playlist;
+        }, playlistRepository::saveAll, CacheTags::affectedBy, PlaylistSnapshot::of);
     }
 
+    // Имя и автор меняются в той же попытке, что и состав: состав задаётся правками
+    // журнала против текущей версии, и пишутся только отличающиеся позиции.
+    // Неизвестные треки отсеивает проверка вставок, остальные уже в плейлисте
     public Playlist updatePlaylist(long id, PlaylistUpdateDto playlistDto) {
-        Playlist playlist = getPlaylistById(id)
+        List<Long> tracksIds = playlistDto.getTracksIds() != null
+                && !playlistDto.getTracksIds().isEmpty()
+                ? playlistDto.getTracksIds().stream().distinct().toList()
+                : null;
+        commitEdits(id, null, playlist -> {
+            if (playlistDto.getName() != null) {
+                playlist.setName(playlistDto.getName());
+            }
+            if (playlistDto.getAuthorId() != null) {
+                playlist.setAuthor(userRepository.findById(playlistDto.getAuthorId())
+                        .orElseThrow(()
+                            -> new NotFoundException("Создатель плейлиста не найден")));
+            }
+            return tracksIds != null
+                    ? PlaylistOps.diff(playlistEntryRepository.findTrackIds(id), tracksIds)
+                    : List.of();
+        });
+        // Откат повторённой попытки очищает контекст, поэтому сущность читается заново
+        return playlistRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Не найдено плейлиста с ID " + id));
-        List<Track> tracks = new ArrayList<>();
-        if (playlistDto.getTracksIds() != null && !playlistDto.getTracksIds().isEmpty()) {
-            for (Long trackId : playlistDto.getTracksIds()) {
-                Track track = trackRepository.findById(trackId)
-                        .orElseThrow(() -> new NotFoundException("Трек в плейлисте не найден"));
-                track.getPlaylists().add(playlist);
-                tracks.add(track);
+    }
+
+    // Треки вставляются начиная с индекса position, без него - в конец
+    public void addTracks(long id, List<Long> tracksIds, Integer position) {
+        commitEdits(id, null, playlist -> {
+            int start = position != null
+                    ? position
+                    : (int) playlistEntryRepository.countByPlaylistId(id);
+            List<Long> distinctIds = tracksIds.stream().distinct().toList();
+            List<PlaylistOps.Op> edits = new ArrayList<>(distinctIds.size());
+            for (int i = 0; i < distinctIds.size(); i++) {
+                edits.add(PlaylistOps.Op.insert(start + i, distinctIds.get(i)));
             }
-            playlist.setTracks(tracks);
+            return edits;
+        });
+    }
+
+    public void removeTrack(long id, int position) {
+        commitEdits(id, null, playlist -> List.of(PlaylistOps.Op.remove(position)));
+    }
+
+    public void moveTrack(long id, int from, int to) {
+        commitEdits(id, null, playlist -> List.of(PlaylistOps.Op.move(from, to)));
+    }
+
+    // Удаляемые треки убираются из плейлистов операциями REMOVE с конца списка,
+    // чтобы журнал каждого плейлиста сходился с составом
+    public void removeTracksFromPlaylists(Collection<Long> trackIds) {
+        if (trackIds.isEmpty()) {
+            return;
         }
-        if (playlistDto.getName() != null) {
-            playlist.setName(playlistDto.getName());
+        Set<Long> removed = new HashSet<>(trackIds);
+        for (Long playlistId : playlistEntryRepository.findPlaylistIdsByTrackIdIn(removed)) {
+            try {
+                commitEdits(playlistId, null, playlist -> {
+                    List<Long> current = playlistEntryRepository.findTrackIds(playlistId);
+                    List<PlaylistOps.Op> removals = new ArrayList<>();
+                    for (int i = current.size() - 1; i >= 0; i--) {
+                        if (removed.contains(current.get(i))) {
+                            removals.add(PlaylistOps.Op.remove(i));
+                        }
+                    }
+                    return removals;
+                });
+            } catch (NotFoundException e) {
+                // Плейлист удалён параллельно вместе со строками состава
+            }
         }
-        if (playlistDto.getAuthorId() != null) {
-            playlist.setAuthor(userRepository.findById(playlistDto.getAuthorId())
-                .orElseThrow(()
-                    -> new NotFoundException("Создатель плейлиста не найден")));
+    }
+
+    // Правки клиента от версии baseVersion. Возвращает все операции после неё:
+    // принятые параллельно и собственные в том виде, в каком они легли в журнал
+    public List<PlaylistOperation> editPlaylist(long id, long baseVersion,
+                                                List<PlaylistOperationDto> operations) {
+        List<PlaylistOps.Op> edits = operations.stream()
+                .map(operation -> new PlaylistOps.Op(operation.getType(),
+                        operation.getPosition(), operation.getTarget(), operation.getTrackId()))
+                .toList();
+        return commitEdits(id, baseVersion, playlist -> edits);
+    }
 
+    public List<PlaylistOperation> getOperations(long id, long since) {
+        if (!playlistRepository.existsById(id)) {
+            throw new NotFoundException("Не найдено плейлиста с ID " + id);
+        }
+        List<PlaylistOperation> operations = playlistOperationRepository.findSince(id, since);
+        if (operations.isEmpty() && since > playlistOperationRepository.findHeadVersion(id)) {
+            throw new NotFoundException("У плейлиста " + id + " нет версии " + since);
         }
-        cache.clear();
-        return playlistRepository.save(playlist);
+        return operations;
     }
 
-    public void deletePlaylist(Long id) {
+    // Без блокировок: версия занимается уникальным ключом (playlist_id, version).
+    // Если параллельная правка заняла её раньше или задела те же строки состава,
+    // попытка откатывается целиком и повторяется поверх уже принятых операций.
+    // edits вызывается в каждой попытке заново с плейлистом этой попытки
+    private List<PlaylistOperation> commitEdits(long id, Long baseVersion,
+                                                Function<Playlist, List<PlaylistOps.Op>> edits) {
+        for (int attempt = 1; ; attempt++) {
+            Set<String> staleTags = new HashSet<>();
+            try {
+                List<PlaylistOperation> changes = transaction.execute(status ->
+                        applyEdits(id, baseVersion, edits, staleTags));
+                cache.invalidate(staleTags);
+                return changes;
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (e instanceof DataIntegrityViolationException violation
+                        && !ConstraintViolations.isViolated(violation,
+                                PlaylistOperation.VERSION_CONSTRAINT)) {
+                    throw violation;
+                }
+                if (attempt == EDIT_ATTEMPTS) {
+                    throw new ConflictException("Плейлист " + id
+                            + " изменяется слишком часто, повторите правку");
+                }
+            }
+        }
+    }
+
+    private List<PlaylistOperation> applyEdits(long id, Long baseVersion,
+                                               Function<Playlist, List<PlaylistOps.Op>> edits,
+                                               Set<String> staleTags) {
         Playlist playlist = playlistRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найден плейлист с ID = " + id));
-        playlistRepository.delete(playlist);
-        cache.clear();
+                .orElseThrow(() -> new NotFoundException("Не найдено плейлиста с ID " + id));
+        // Голова читается до правок: всё, что они прочитали сверх неё, принято
+        // параллельно и займёт нашу версию, так что попытка повторится
+        long head = playlistOperationRepository.findHeadVersion(id);
+        long base = baseVersion != null ? baseVersion : head;
+        if (base > head) {
+            throw new NotFoundException("У плейлиста " + id + " нет версии " + base);
+        }
+        Set<String> fieldTags = CacheTags.affectedBy(playlist);
+        List<PlaylistOps.Op> requested = edits.apply(playlist);
+        staleTags.add(CacheTags.playlist(id));
+        if (!fieldTags.equals(CacheTags.affectedBy(playlist))) {
+            staleTags.addAll(fieldTags);
+            staleTags.addAll(CacheTags.affectedBy(playlist));
+        }
+        List<PlaylistOperation> changes = base < head
+                ? new ArrayList<>(playlistOperationRepository.findSince(id, base))
+                : new ArrayList<>();
+        List<PlaylistOps.Op> ops = PlaylistOps.rebase(requested,
+                changes.stream().map(PlaylistOps.Op::of).toList());
+        Map<Long, Track> tracks = EntityRefs.byId(EntityRefs.findAll(ops.stream()
+                .filter(op -> op.type() == PlaylistOperation.Type.INSERT)
+                .map(PlaylistOps.Op::trackId)
+                .toList(), trackRepository, Track::getId, "Не найдены треки с ID: "),
+                Track::getId);
+        // Версии занимаются до изменения состава: параллельная правка ждёт
+        // на уникальном ключе, а не читает строки, которые мы сейчас меняем
+        List<PlaylistOperation> logged = new ArrayList<>(ops.size());
+        for (int i = 0; i < ops.size(); i++) {
+            logged.add(ops.get(i).toOperation(id, head + 1 + i));
+        }
+        playlistOperationRepository.saveAllAndFlush(logged);
+        applyOps(playlist, ops, tracks);
+        changes.addAll(logged);
+        return changes;
+    }
+
+    // Подряд идущие вставки получают позиции одним расчётом; остальные операции
+    // меняют по одной строке. Соседи читаются native-запросом, поэтому после
+    // каждого шага изменения сбрасываются в БД
+    private void applyOps(Playlist playlist, List<PlaylistOps.Op> ops, Map<Long, Track> tracks) {
+        long id = playlist.getId();
+        int i = 0;
+        while (i < ops.size()) {
+            PlaylistOps.Op op = ops.get(i);
+            // Позиции проверяются при разборе запроса; отрицательный индекс здесь -
+            // ошибка вызывающего кода, в OFFSET запроса он уйти не должен
+            int negative = Math.min(op.position(), op.target() != null ? op.target() : 0);
+            if (negative < 0) {
+                throw new IllegalArgumentException("Отрицательная позиция " + negative
+                        + " в операции над плейлистом " + id);
+            }
+            if (op.type() == PlaylistOperation.Type.INSERT) {
+                int run = 1;
+                while (i + run < ops.size()
+                        && ops.get(i + run).type() == PlaylistOperation.Type.INSERT
+                        && ops.get(i + run).position() == op.position() + run) {
+                    run++;
+                }
+                long[] positions = positionsAt(id, op.position(), run);
+                List<PlaylistEntry> entries = new ArrayList<>(run);
+                for (int k = 0; k < run; k++) {
+                    entries.add(PlaylistEntry.of(playlist, tracks.get(ops.get(i + k).trackId()),
+                            positions[k]));
+                }
+                playlistEntryRepository.saveAll(entries);
+                i += run;
+            } else {
+                if (op.type() == PlaylistOperation.Type.REMOVE) {
+                    playlistEntryRepository.delete(entryAt(id, op.position()));
+                } else {
+                    moveEntry(id, op.position(), op.target());
+                }
+                i++;
+            }
+            playlistEntryRepository.flush();
+        }
+    }
+
+    // Меняется позиция одной строки: новое значение лежит между соседями
+    // на месте to в списке без перемещаемого трека
+    private void moveEntry(long id, int from, int to) {
+        PlaylistEntry moved = entryAt(id, from);
+        if (from == to) {
+            return;
+        }
+        int beforeIndex = to > from ? to : to - 1;
+        List<PlaylistEntry> around = beforeIndex < 0
+                ? playlistEntryRepository.findSlice(id, 0, 1)
+                : playlistEntryRepository.findSlice(id, beforeIndex, 2);
+        if (around.isEmpty()) {
+            throw new NotFoundException("В плейлисте " + id + " нет позиции " + to);
+        }
+        Long before = beforeIndex < 0 ? null : around.get(0).getPosition();
+        int afterAt = beforeIndex < 0 ? 0 : 1;
+        Long after = around.size() > afterAt ? around.get(afterAt).getPosition() : null;
+        long[] positions = between(before, after, 1);
+        if (positions == null) {
+            playlistEntryRepository.renumber(id, 0, 0);
+            positions = new long[] {(beforeIndex + 1) * PlaylistEntry.POSITION_STEP
+                    + PlaylistEntry.POSITION_STEP / 2};
+            // Перенумерация очистила контекст: прежний экземпляр уже не сохранится
+            moved = entryAt(id, from);
+        }
+        moved.setPosition(positions[0]);
+    }
+
+    private PlaylistEntry entryAt(long id, int position) {
+        return playlistEntryRepository.findSlice(id, position, 1).stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException(
+                        "В плейлисте " + id + " нет позиции " + position));
+    }
+
+    private long[] positionsAt(long id, int index, int count) {
+        List<PlaylistEntry> around = index == 0
+                ? playlistEntryRepository.findSlice(id, 0, 1)
+                : playlistEntryRepository.findSlice(id, index - 1, 2);
+        if (index > 0 && around.isEmpty()) {
+            throw new NotFoundException("В плейлисте " + id + " нет позиции " + index);
+        }
+        Long before = index == 0 ? null : around.get(0).getPosition();
+        int afterAt = index == 0 ? 0 : 1;
+        Long after = around.size() > afterAt ? around.get(afterAt).getPosition() : null;
+        long[] positions = between(before, after, count);
+        if (positions == null) {
+            playlistEntryRepository.renumber(id, index, count);
+            positions = new long[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = (index + 1 + i) * PlaylistEntry.POSITION_STEP;
+            }
+        }
+        return positions;
+    }
+
+    // count возрастающих позиций строго между before и after (null - край списка)
+    // или null, если свободных значений между ними не хватает
+    static long[] between(Long before, Long after, int count) {
+        long[] positions = new long[count];
+        if (after == null) {
+            long last = before != null ? before : 0;
+            for (int i = 0; i < count; i++) {
+                positions[i] = last + (i + 1) * PlaylistEntry.POSITION_STEP;
+            }
+        } else if (before == null) {
+            for (int i = 0; i < count; i++) {
+                positions[i] = after - (count - i) * PlaylistEntry.POSITION_STEP;
+            }
+        } else {
+            long gap = after - before;
+            if (gap <= count) {
+                return null;
+            }
+            for (int i = 0; i < count; i++) {
+                positions[i] = before + gap * (i + 1) / (count + 1);
+            }
+        }
+        return positions;
+    }
+
+    // Строки состава удаляются одним DELETE, а не каскадом по загруженной коллекции
+    public void deletePlaylist(Long id) {
+        Set<String> staleTags = transaction.execute(status -> {
+            Playlist playlist = playlistRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Не найден плейлист с ID = " + id));
+            Set<String> tags = CacheTags.affectedBy(playlist);
+            playlistEntryRepository.deleteByPlaylistId(id);
+            playlistOperationRepository.deleteByPlaylistId(id);
+            playlistRepository.delete(playlist);
+            return tags;
+        });
+        cache.invalidate(staleTags);
     }
 
 }
@@ -1,72 +1,143 @@
 package musiccatalog.service;
 
+import jakarta.persistence.EntityManager;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import musiccatalog.cache.CacheTags;
+import musiccatalog.cache.CacheWarmer;
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.TrackCreateDto;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.TrackSnapshot;
 import musiccatalog.dto.update.TrackUpdateDto;
+import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Album;
 import musiccatalog.model.Genre;
+import musiccatalog.model.PlaylistEntry;
 import musiccatalog.model.Track;
 import musiccatalog.repository.AlbumRepository;
 import musiccatalog.repository.GenreRepository;
 import musiccatalog.repository.TrackRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
-public class TrackService {
+public class TrackService implements CacheWarmer {
+
+    private static final String BY_ID = "tracks_id_";
+    private static final String BY_NAME = "tracks_name_";
+    private static final String BY_ARTIST = "tracks_artist_";
+
+    // Совпадает с fetch size курсора: порция целиком лежит в контексте
+    // персистентности, и её коллекции догружаются пачками, а не по треку
+    private static final int STREAM_CHUNK = 500;
 
     private final TrackRepository trackRepository;
     private final AlbumRepository albumRepository;
     private final GenreRepository genreRepository;
     private final InMemoryCache cache;
+    private final BulkWriter bulkWriter;
+    private final TransactionTemplate transaction;
+    private final EntityManager entityManager;
+    private final PlaylistService playlistService;
+
+    // Поле, а не лямбда в методе: поиск по id при попадании в кэш не создаёт объектов
+    private final LongFunction<TrackSnapshot> trackLoader;
 
     @Autowired
     public TrackService(TrackRepository trackRepository,
                         AlbumRepository albumRepository, GenreRepository genreRepository,
-                        InMemoryCache cache) {
+                        InMemoryCache cache, EntityManager entityManager,
+                        BulkWriter bulkWriter, PlatformTransactionManager transactionManager,
+                        PlaylistService playlistService) {
         this.trackRepository = trackRepository;
         this.albumRepository = albumRepository;
         this.genreRepository = genreRepository;
         this.cache = cache;
+        this.bulkWriter = bulkWriter;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.playlistService = playlistService;
+        this.trackLoader = id -> trackRepository.findSnapshotById(id).orElse(null);
     }
 
-    public List<Track> getAllTracks() {
-        return trackRepository.findAll();
+    public KeysetPage<TrackSnapshot> getAllTracks(Long after, int size) {
+        return KeysetPages.load(after, size, trackRepository::findIdsAfter,
+                trackRepository::findSnapshotsByIdIn);
     }
 
-    public Optional<Track> getTrackById(long id) {
-        String cacheKey = "tracks_id_" + id;
-        if (cache.containsKey(cacheKey)) {
-            return (Optional.of(((Track) cache.get(cacheKey))));
+    // Обход всех треков без загрузки списка в память. После каждой порции
+    // контекст очищается, поэтому память не растёт с размером таблицы
+    @Transactional(readOnly = true)
+    public long forEachTrack(Consumer<TrackSnapshot> consumer) {
+        long count = 0;
+        try (Stream<Track> tracks = trackRepository.streamAllWithAlbum()) {
+            List<Track> chunk = new ArrayList<>(STREAM_CHUNK);
+            Iterator<Track> iterator = tracks.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == STREAM_CHUNK || !iterator.hasNext()) {
+                    chunk.forEach(track -> consumer.accept(TrackSnapshot.of(track)));
+                    count += chunk.size();
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
         }
-        Track track = trackRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найдено трека с ID = " + id));
-        cache.put(cacheKey, track);
-        return Optional.of(track);
+        return count;
     }
 
-    public List<Track> getTrackByName(String name)  {
-        String cacheKey = "tracks_name_" + name;
-        if (cache.containsKey(cacheKey)) {
-            return (List<Track>) cache.get(cacheKey);
+    public Optional<TrackSnapshot> getTrackById(long id) {
+        TrackSnapshot track = cache.getOrLoadById(IdFamily.TRACKS, id, trackLoader,
+                CacheTags::of, missing -> Set.of(CacheTags.track(missing)));
+        if (track == null) {
+            throw new NotFoundException("Не найдено трека с ID = " + id);
         }
-        List<Track> tracks = trackRepository.findTracksByName(name);
-        cache.put(cacheKey, tracks);
-        return tracks;
+        return Optional.of(track);
     }
 
-    public List<Track> getTracksByArtistName(String artistName) {
-        String cacheKey = "tracks_artist_" + artistName;
-        if (cache.containsKey(cacheKey)) {
-            return (List<Track>) cache.get(cacheKey);
+    public List<TrackSnapshot> getTrackByName(String name)  {
+        return cache.getOrLoad(BY_NAME + name,
+                () -> KeysetPages.loadAll(trackRepository.findIdsByName(name),
+                        trackRepository::findSnapshotsByIdIn),
+                tracks -> CacheTags.ofTracks(tracks, CacheTags.trackName(name)));
+    }
+
+    public List<TrackSnapshot> getTracksByArtistName(String artistName) {
+        return cache.getOrLoad(BY_ARTIST + artistName,
+                () -> KeysetPages.loadAll(trackRepository.findIdsByArtistName(artistName),
+                        trackRepository::findSnapshotsByIdIn),
+                tracks -> CacheTags.ofTracks(tracks, CacheTags.artistName(artistName)));
+    }
+
+    @Override
+    public boolean warm(String key) {
+        if (key.startsWith(BY_ID)) {
+            getTrackById(Long.parseLong(key.substring(BY_ID.length())));
+        } else if (key.startsWith(BY_NAME)) {
+            getTrackByName(key.substring(BY_NAME.length()));
+        } else if (key.startsWith(BY_ARTIST)) {
+            getTracksByArtistName(key.substring(BY_ARTIST.length()));
+        } else {
+            return false;
         }
-        List<Track> tracks = trackRepository.findTracksByArtistName(artistName);
-        cache.put(cacheKey, tracks);
-        return tracks;
+        return true;
     }
 
     public Track createTrack(TrackCreateDto trackDto) {
@@ -79,69 +150,93 @@ public class TrackService {
         track.setAlbum(album);
         List<Genre> genres = genreRepository.findAllById(trackDto.getGenresIds());
         track.setGenres(genres);
-        cache.clear();
-        return trackRepository.save(track);
+        Track savedTrack = trackRepository.save(track);
+        cache.invalidate(CacheTags.affectedBy(track));
+        return savedTrack;
     }
 
-    public Track updateTrack(long id, TrackUpdateDto trackDto) {
-        Track track = trackRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найден трек с ID = " + id));
-
-        Album oldAlbum = track.getAlbum();
-
-        if (trackDto.getName() != null) {
+    public BulkCreateResult<TrackSnapshot> createTracks(List<TrackCreateDto> trackDtos) {
+        Map<Long, Album> albums = EntityRefs.byId(albumRepository.findAllById(
+                BulkWriter.referencedIds(trackDtos,
+                        dto -> Collections.singletonList(dto.getAlbumId()))), Album::getId);
+        Map<Long, Genre> genres = EntityRefs.byId(genreRepository.findAllById(
+                BulkWriter.referencedIds(trackDtos, TrackCreateDto::getGenresIds)), Genre::getId);
+        return bulkWriter.create(trackDtos, trackDto -> {
+            Album album = albums.get(trackDto.getAlbumId());
+            if (album == null) {
+                throw new NotFoundException("Не найден альбом с ID = " + trackDto.getAlbumId());
+            }
+            Track track = new Track();
             track.setName(trackDto.getName());
-        }
-        if (trackDto.getDuration() != null) {
             track.setDuration(trackDto.getDuration());
-        }
+            track.setAlbum(album);
+            track.setGenres(EntityRefs.resolve(trackDto.getGenresIds(), genres,
+                    "Не найдены жанры с ID: "));
+            return track;
+        }, trackRepository::saveAll, CacheTags::affectedBy, TrackSnapshot::of);
+    }
 
-        if (trackDto.getAlbumId() != null) {
-            Album newAlbum = albumRepository.findById(trackDto.getAlbumId())
-                    .orElseThrow(() -> new NotFoundException("Не найден альбом с ID = "
-                            + trackDto.getAlbumId()));
-            if (oldAlbum != null && !oldAlbum.getId().equals(newAlbum.getId())) {
-                oldAlbum.getTracks().remove(track);
-                albumRepository.save(oldAlbum);
+    public Track updateTrack(long id, TrackUpdateDto trackDto) {
+        Set<String> staleTags = new HashSet<>();
+        Track savedTrack = transaction.execute(status -> {
+            Track track = trackRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Не найден трек с ID = " + id));
+            staleTags.addAll(CacheTags.affectedBy(track));
+            if (trackDto.getName() != null) {
+                track.setName(trackDto.getName());
             }
-
-            if (!newAlbum.getTracks().contains(track)) {
-                newAlbum.getTracks().add(track);
-                albumRepository.save(newAlbum);
+            if (trackDto.getDuration() != null) {
+                track.setDuration(trackDto.getDuration());
             }
 
-            track.setAlbum(newAlbum);
-        } else if (oldAlbum != null) {
-            oldAlbum.getTracks().remove(track);
-            albumRepository.save(oldAlbum);
-            track.setAlbum(null);
-        }
-
-        if (trackDto.getGenresIds() != null) {
-            List<Genre> genres = new ArrayList<>();
-            for (Genre oldGenre : track.getGenres()) {
-                oldGenre.getTracks().remove(track);
+            if (trackDto.getAlbumId() != null) {
+                Album oldAlbum = track.getAlbum();
+                Album newAlbum = albumRepository.findById(trackDto.getAlbumId())
+                        .orElseThrow(() -> new NotFoundException("Не найден альбом с ID = "
+                                + trackDto.getAlbumId()));
+                if (oldAlbum != null && oldAlbum != newAlbum) {
+                    oldAlbum.getTracks().remove(track);
+                }
+                if (!newAlbum.getTracks().contains(track)) {
+                    newAlbum.getTracks().add(track);
+                }
+                track.setAlbum(newAlbum);
             }
 
-            for (Long genreId : trackDto.getGenresIds()) {
-                Genre genre = genreRepository.findById(genreId)
-                        .orElseThrow(() -> new NotFoundException("Не найден жанр с ID = "
-                                + genreId));
-                genre.getTracks().add(track);
-                genres.add(genre);
+            if (trackDto.getGenresIds() != null) {
+                List<Genre> genres = EntityRefs.findAll(trackDto.getGenresIds(),
+                        genreRepository, Genre::getId, "Не найдены жанры с ID: ");
+                track.getGenres().forEach(oldGenre -> oldGenre.getTracks().remove(track));
+                genres.forEach(genre -> genre.getTracks().add(track));
+                track.setGenres(genres);
             }
-            track.setGenres(genres);
-        }
-
-        cache.clear();
-        return trackRepository.save(track);
+            staleTags.addAll(CacheTags.affectedBy(track));
+            return trackRepository.save(track);
+        });
+        cache.invalidate(staleTags);
+        return savedTrack;
     }
 
+    // Сначала трек убирается из плейлистов через их журналы правок. Если его успели
+    // добавить снова, внешний ключ playlist_entries не даст удалить строку трека
     public void deleteTrack(Long id) {
         Track track = trackRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Не найден трек с ID = " + id));
-        trackRepository.delete(track);
-        cache.clear();
+        Set<String> staleTags = CacheTags.affectedBy(track);
+        playlistService.removeTracksFromPlaylists(List.of(id));
+        try {
+            transaction.executeWithoutResult(status -> {
+                trackRepository.delete(track);
+                trackRepository.flush();
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolated(e, PlaylistEntry.TRACK_CONSTRAINT)) {
+                throw e;
+            }
+            throw new ConflictException("Трек " + id
+                    + " добавлен в плейлист во время удаления, повторите запрос");
+        }
+        cache.invalidate(staleTags);
     }
 
 }
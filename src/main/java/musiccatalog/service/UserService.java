@@ -1,9 +1,18 @@
 package musiccatalog.service;
 
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+import musiccatalog.cache.CacheTags;
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.UserCreateDto;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.UserSnapshot;
 import musiccatalog.dto.update.UserUpdateDto;
 import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
@@ -11,67 +20,134 @@ import musiccatalog.model.User;
 import musiccatalog.repository.PlaylistRepository;
 import musiccatalog.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class UserService {
 
+    // Пользователей в одной транзакции bulk-создания; внутри неё вставки
+    // уходят пакетами JDBC по hibernate.jdbc.batch_size
+    static final int BULK_CHUNK = 1000;
+
     private final UserRepository userRepository;
     private final PlaylistRepository playlistRepository;
     private final InMemoryCache cache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+
+    // Поле, а не лямбда в методе: поиск по id при попадании в кэш не создаёт объектов
+    private final LongFunction<UserSnapshot> userLoader;
 
     @Autowired
     public UserService(UserRepository userRepository, PlaylistRepository playlistRepository,
-                       InMemoryCache cache) {
+                       InMemoryCache cache, EntityManager entityManager,
+                       PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.playlistRepository = playlistRepository;
         this.cache = cache;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.userLoader = id -> userRepository.findSnapshotById(id).orElse(null);
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public KeysetPage<UserSnapshot> getAllUsers(Long after, int size) {
+        return KeysetPages.load(after, size, userRepository::findIdsAfter,
+                userRepository::findSnapshotsByIdIn);
     }
 
-    public Optional<User> getUserById(long id) {
-        String cacheKey = "users_id_" + id;
-        if (cache.containsKey(cacheKey)) {
-            return (Optional.of(((User) cache.get(cacheKey))));
+    public Optional<UserSnapshot> getUserById(long id) {
+        UserSnapshot user = cache.getOrLoadById(IdFamily.USERS, id, userLoader,
+                CacheTags::of, missing -> Set.of(CacheTags.user(missing)));
+        if (user == null) {
+            throw new NotFoundException("Не найден пользователь с ID = " + id);
         }
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найден пользователь с ID = " + id));
-        cache.put(cacheKey, user);
         return Optional.of(user);
     }
 
-    public User getUserByName(String name)  {
-        String cacheKey = "users_name_" + name;
-        if (cache.containsKey(cacheKey)) {
-            return (User) cache.get(cacheKey);
-        }
-        User user = userRepository.findUserByName(name);
-        cache.put(cacheKey, user);
-        return user;
+    public UserSnapshot getUserByName(String name)  {
+        return cache.getOrLoad("users_name_" + name,
+                () -> KeysetPages.loadAll(userRepository.findIdsByName(name),
+                        userRepository::findSnapshotsByIdIn)
+                        .stream()
+                        .findFirst()
+                        .orElse(null),
+                user -> CacheTags.of(user, CacheTags.userName(name)),
+                Set.of(CacheTags.userName(name)));
     }
 
     public User createUser(UserCreateDto userDto) {
-        if (userRepository.findUserByEmail(userDto.getEmail()) != null) {
+        User user = newUser(userDto);
+        User savedUser = saveUnique(user);
+        cache.invalidate(CacheTags.affectedBy(user));
+        return savedUser;
+    }
+
+    // Каждая порция - своя транзакция с одной проверкой занятых почт;
+    // уже сохранённые порции при ошибке в следующей не откатываются
+    public List<User> createUsers(List<UserCreateDto> userDtos) {
+        Set<String> emails = new HashSet<>();
+        for (UserCreateDto userDto : userDtos) {
+            if (!emails.add(userDto.getEmail())) {
+                throw new ConflictException("Email " + userDto.getEmail()
+                        + " указан в запросе несколько раз");
+            }
+        }
+        List<User> created = new ArrayList<>(userDtos.size());
+        for (int from = 0; from < userDtos.size(); from += BULK_CHUNK) {
+            List<UserCreateDto> chunk = userDtos.subList(from,
+                    Math.min(from + BULK_CHUNK, userDtos.size()));
+            List<User> saved = transaction.execute(status -> createChunk(chunk));
+            Set<String> staleTags = new HashSet<>();
+            saved.forEach(user -> staleTags.addAll(CacheTags.affectedBy(user)));
+            cache.invalidate(staleTags);
+            created.addAll(saved);
+        }
+        return created;
+    }
+
+    private List<User> createChunk(List<UserCreateDto> chunk) {
+        List<String> taken = userRepository.findEmailsIn(chunk.stream()
+                .map(UserCreateDto::getEmail)
+                .toList());
+        if (!taken.isEmpty()) {
+            throw new ConflictException("Указанные Email уже заняты: " + String.join(", ", taken));
+        }
+        List<User> saved = userRepository.saveAll(chunk.stream().map(this::newUser).toList());
+        // Вставка до коммита и очистка контекста: при open-in-view он живёт
+        // весь запрос и иначе накопил бы все созданные сущности
+        entityManager.flush();
+        entityManager.clear();
+        return saved;
+    }
+
+    // Занятость почты определяет ограничение uk_users_email при сбросе записи,
+    // без предварительного SELECT, который не защищает от гонки
+    private User saveUnique(User user) {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolated(e, User.EMAIL_CONSTRAINT)) {
+                throw e;
+            }
             throw new ConflictException("Указанный Email уже занят");
         }
+    }
+
+    private User newUser(UserCreateDto userDto) {
         User user = new User();
         user.setName(userDto.getName());
         user.setEmail(userDto.getEmail());
         user.setPassword(userDto.getPassword());
-        cache.clear();
-        return userRepository.save(user);
+        return user;
     }
 
     public User updateUser(long id, UserUpdateDto userDto) {
-        User user = getUserById(id)
+        User user = userRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Не найдено пользователя с ID = " + id));
-        if (userRepository.findUserByEmail(userDto.getEmail()) != null
-                && userRepository.findUserByEmail(userDto.getEmail()).getId() != id) {
-            throw new ConflictException("Указанный Email уже занят");
-        }
+        Set<String> staleTags = CacheTags.affectedBy(user);
         if (userDto.getName() != null) {
             user.setName(userDto.getName());
         }
@@ -86,15 +162,26 @@ public class UserService {
             user.setPlaylistsCreated(playlistRepository.findAllById(
                     userDto.getCreatedPlaylistsIds()));
         }
-        cache.clear();
-        return userRepository.save(user);
+        User savedUser = saveUnique(user);
+        staleTags.addAll(CacheTags.affectedBy(user));
+        cache.invalidate(staleTags);
+        return savedUser;
     }
 
+    // Плейлисты пользователя и их связи с треками удаляются двумя DELETE
+    // вместо каскада orphanRemoval, который загружает каждый плейлист
     public void deleteUser(Long id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Не найдено пользователя с ID = " + id));
-        userRepository.delete(user);
-        cache.clear();
+        UserSnapshot user = transaction.execute(status -> {
+            UserSnapshot snapshot = userRepository.findSnapshotById(id)
+                    .orElseThrow(() ->
+                            new NotFoundException("Не найдено пользователя с ID = " + id));
+            playlistRepository.deleteTrackLinksByAuthorId(id);
+            playlistRepository.deleteOperationsByAuthorId(id);
+            playlistRepository.deleteRowsByAuthorId(id);
+            userRepository.deleteRowById(id);
+            return snapshot;
+        });
+        cache.invalidate(CacheTags.affectedBy(user));
     }
 
 }
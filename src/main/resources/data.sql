@@ -0,0 +1,50 @@
+-- Строки, вставленные до перехода с IDENTITY на последовательности,
+-- не должны пересекаться с id, которые выдадут последовательности
+SELECT setval('album_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM album), (SELECT last_value FROM album_seq)));
+SELECT setval('artists_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM artists), (SELECT last_value FROM artists_seq)));
+SELECT setval('genres_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM genres), (SELECT last_value FROM genres_seq)));
+SELECT setval('playlists_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM playlists), (SELECT last_value FROM playlists_seq)));
+SELECT setval('tracks_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM tracks), (SELECT last_value FROM tracks_seq)));
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), (SELECT last_value FROM users_seq)));
+SELECT setval('cache_invalidations_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM cache_invalidations), (SELECT last_value FROM cache_invalidations_seq)));
+-- Уникальность имени жанра и почты пользователя задают именованные ограничения.
+-- Hibernate при ddl-auto=update молча не создаёт их, если в таблице уже есть
+-- дубликаты, поэтому дубликаты сливаются в запись с меньшим id, ограничения
+-- добавляются явно, а прежнее безымянное ограничение на users.email удаляется.
+-- Тела DO записаны строкой в одинарных кавычках: скрипт делится по ';' вне кавычек
+DELETE FROM track_genres a USING track_genres b, genres ga, genres gb WHERE a.track_id = b.track_id AND a.genre_id = ga.id AND b.genre_id = gb.id AND ga.name = gb.name AND ga.id > gb.id;
+UPDATE track_genres t SET genre_id = d.keep_id FROM (SELECT id, MIN(id) OVER (PARTITION BY name) AS keep_id FROM genres) d WHERE t.genre_id = d.id AND d.id <> d.keep_id;
+DELETE FROM genres g USING genres k WHERE g.name = k.name AND g.id > k.id;
+UPDATE playlists p SET user_id = d.keep_id FROM (SELECT id, MIN(id) OVER (PARTITION BY email) AS keep_id FROM users) d WHERE p.user_id = d.id AND d.id <> d.keep_id;
+DELETE FROM users u USING users k WHERE u.email = k.email AND u.id > k.id;
+DO 'BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''uk_genres_name'') THEN
+        ALTER TABLE genres ADD CONSTRAINT uk_genres_name UNIQUE (name);
+    END IF;
+END';
+DO 'DECLARE c text;
+BEGIN
+    FOR c IN SELECT conname FROM pg_constraint WHERE conrelid = ''users''::regclass AND contype = ''u'' AND conname <> ''uk_users_email''
+            AND conkey = ARRAY[(SELECT attnum FROM pg_attribute WHERE attrelid = ''users''::regclass AND attname = ''email'')] LOOP
+        EXECUTE format(''ALTER TABLE users DROP CONSTRAINT %I'', c);
+    END LOOP;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''uk_users_email'') THEN
+        ALTER TABLE users ADD CONSTRAINT uk_users_email UNIQUE (email);
+    END IF;
+END';
+-- Состав плейлистов из прежней неупорядоченной таблицы playlist_tracks переносится
+-- в playlist_entries с позициями по возрастанию id трека, после чего она удаляется.
+-- На чистой базе таблица создаётся пустой, так что скрипт можно выполнять повторно
+CREATE TABLE IF NOT EXISTS playlist_tracks (playlist_id BIGINT NOT NULL, track_id BIGINT NOT NULL);
+INSERT INTO playlist_entries (id, playlist_id, track_id, position) SELECT nextval('playlist_entries_seq'), playlist_id, track_id, ROW_NUMBER() OVER (PARTITION BY playlist_id ORDER BY track_id) * 1024 FROM playlist_tracks;
+DROP TABLE playlist_tracks;
+-- Внешний ключ playlist_entries.track_id, созданный Hibernate со сгенерированным именем,
+-- переименовывается: по имени fk_playlist_entries_track удаление трека, который
+-- параллельно добавили в плейлист, отличается от прочих нарушений целостности
+DO 'DECLARE c text;
+BEGIN
+    SELECT conname INTO c FROM pg_constraint WHERE conrelid = ''playlist_entries''::regclass AND contype = ''f'' AND confrelid = ''tracks''::regclass;
+    IF c IS NOT NULL AND c <> ''fk_playlist_entries_track'' THEN
+        EXECUTE format(''ALTER TABLE playlist_entries RENAME CONSTRAINT %I TO fk_playlist_entries_track'', c);
+    END IF;
+END';
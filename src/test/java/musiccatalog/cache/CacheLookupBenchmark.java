@@ -0,0 +1,83 @@
+package musiccatalog.cache;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import musiccatalog.config.CacheProperties;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.TrackSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Сравнение поиска по строковому ключу и по id при попадании в кэш.
+// Не тест (surefire его не запускает): mvn test-compile, затем main() из IDE.
+// gc.alloc.rate.norm в отчёте - байты, выделенные на одну операцию
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CacheLookupBenchmark {
+
+    private static final int TRACKS = 1_000;
+    private static final LongFunction<TrackSnapshot> LOADER = CacheLookupBenchmark::track;
+
+    private InMemoryCache cache;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        CacheProperties properties = new CacheProperties();
+        properties.getDefaultRegion().setMaxSize(TRACKS * 2);
+        cache = new InMemoryCache(properties);
+        for (long id = 0; id < TRACKS; id++) {
+            cache.getOrLoadById(IdFamily.TRACKS, id, LOADER, CacheTags::of, missing -> Set.of());
+        }
+    }
+
+    @Benchmark
+    public Object byStringKey() {
+        long id = nextId();
+        return cache.getOrLoad("tracks_id_" + id, () -> track(id), CacheTags::of);
+    }
+
+    @Benchmark
+    public Object byId() {
+        return cache.getOrLoadById(IdFamily.TRACKS, nextId(), LOADER, CacheTags::of,
+                missing -> Set.of());
+    }
+
+    // Гонка между потоками безразлична: нужен лишь разброс ключей
+    private long nextId() {
+        long id = next++;
+        return id % TRACKS;
+    }
+
+    private static TrackSnapshot track(long id) {
+        return new TrackSnapshot(id, "Track " + id, 180, new NamedRef(1L, "Album"),
+                List.of(new NamedRef(2L, "Artist")), List.of(new NamedRef(3L, "Rock")));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CacheLookupBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
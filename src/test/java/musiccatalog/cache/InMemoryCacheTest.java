@@ -0,0 +1,546 @@
+package musiccatalog.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import musiccatalog.config.CacheProperties;
+import musiccatalog.dto.snapshot.AlbumSnapshot;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
+import musiccatalog.dto.snapshot.TrackSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class InMemoryCacheTest {
+
+    private static final LongFunction<TrackSnapshot> TRACK_LOADER = InMemoryCacheTest::track;
+
+    private static InMemoryCache cacheWith(int maxSize, int concurrencyLevel) {
+        CacheProperties properties = new CacheProperties();
+        properties.setConcurrencyLevel(concurrencyLevel);
+        properties.getDefaultRegion().setMaxSize(maxSize);
+        return new InMemoryCache(properties);
+    }
+
+    @Test
+    void put_WhenFull_ShouldEvictLeastRecentlyUsed() {
+        InMemoryCache cache = cacheWith(2, 1);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        cache.put("c", 3);
+
+        assertTrue(cache.containsKey("a"));
+        assertFalse(cache.containsKey("b"));
+        assertTrue(cache.containsKey("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void clear_ShouldRemoveAllEntries() {
+        InMemoryCache cache = cacheWith(10, 4);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void invalidate_ShouldRemoveOnlyTaggedEntries() {
+        InMemoryCache cache = cacheWith(10, 4);
+        cache.put("tracks_artist_Artist", 1, Set.of("artist:1", "album:1", "track:1"));
+        cache.put("tracks_id_2", 2, Set.of("track:2", "album:2"));
+        cache.put("genres_id_1", 3, Set.of("genre:1"));
+
+        cache.invalidate(Set.of("album:1"));
+
+        assertFalse(cache.containsKey("tracks_artist_Artist"));
+        assertTrue(cache.containsKey("tracks_id_2"));
+        assertTrue(cache.containsKey("genres_id_1"));
+    }
+
+    @Test
+    void put_WhenKeyOverwritten_ShouldDropPreviousTags() {
+        InMemoryCache cache = cacheWith(10, 4);
+        cache.put("tracks_id_1", 1, Set.of("album:1"));
+        cache.put("tracks_id_1", 2, Set.of("album:2"));
+
+        cache.invalidate(Set.of("album:1"));
+
+        assertEquals(2, cache.get("tracks_id_1"));
+    }
+
+    @Test
+    void put_WhenCalledConcurrently_ShouldNotExceedCapacity() throws Exception {
+        InMemoryCache cache = cacheWith(64, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        String key = "key_" + thread + "_" + (i % 100);
+                        cache.put(key, i);
+                        cache.get(key);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= 64);
+    }
+
+    @Test
+    void put_ShouldKeepRegionsIndependent() {
+        CacheProperties properties = new CacheProperties();
+        properties.setConcurrencyLevel(1);
+        CacheProperties.Region genres = new CacheProperties.Region();
+        genres.setMaxSize(10);
+        CacheProperties.Region tracks = new CacheProperties.Region();
+        tracks.setMaxSize(1);
+        properties.getRegions().put("genres", genres);
+        properties.getRegions().put("tracks", tracks);
+        InMemoryCache cache = new InMemoryCache(properties);
+
+        cache.put("genres_id_1", 1);
+        cache.put("tracks_id_1", 1);
+        cache.put("tracks_id_2", 2);
+
+        assertTrue(cache.containsKey("genres_id_1"));
+        assertFalse(cache.containsKey("tracks_id_1"));
+        CacheStats trackStats = cache.getStats().stream()
+                .filter(stats -> stats.region().equals("tracks"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, trackStats.evictions());
+        assertEquals(1, trackStats.misses());
+    }
+
+    @Test
+    void put_WhenWeightBudgetExceeded_ShouldEvictEldestEntries() {
+        CacheProperties properties = new CacheProperties();
+        properties.setConcurrencyLevel(1);
+        properties.getDefaultRegion().setMaxWeight(DataSize.ofKilobytes(8));
+        InMemoryCache cache = new InMemoryCache(properties);
+        String payload = "x".repeat(1500);
+
+        cache.put("a", payload);
+        cache.put("b", payload);
+        cache.put("c", payload);
+
+        assertFalse(cache.containsKey("a"));
+        assertTrue(cache.containsKey("b"));
+        assertTrue(cache.containsKey("c"));
+        CacheStats stats = cache.getStats().get(0);
+        assertTrue(stats.weightBytes() > 2 * 3000);
+        assertTrue(stats.weightBytes() <= stats.maxWeightBytes());
+        assertEquals(1, stats.evictions());
+    }
+
+    @Test
+    void put_WhenEntryHeavierThanBudget_ShouldNotCacheIt() {
+        CacheProperties properties = new CacheProperties();
+        properties.setConcurrencyLevel(1);
+        properties.getDefaultRegion().setMaxWeight(DataSize.ofKilobytes(1));
+        InMemoryCache cache = new InMemoryCache(properties);
+        cache.put("small", 1);
+
+        cache.put("huge", List.of("x".repeat(1000)));
+
+        assertFalse(cache.containsKey("huge"));
+        assertTrue(cache.containsKey("small"));
+    }
+
+    @Test
+    void getStats_ShouldReportCountersPerKeyFamily() {
+        InMemoryCache cache = cacheWith(10, 1);
+        cache.getOrLoad("tracks_id_1", () -> 1, value -> Set.of("track:1"));
+        cache.getOrLoad("tracks_id_1", () -> 2, value -> Set.of("track:1"));
+        cache.containsKey("tracks_artist_Some_Artist");
+        cache.invalidate(Set.of("track:1"));
+
+        CacheStats stats = cache.getStats().get(0);
+
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.invalidations());
+        KeyFamilyStats byId = stats.families().stream()
+                .filter(family -> family.family().equals("tracks_id"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, byId.hits());
+        assertEquals(1, byId.misses());
+        assertEquals(1, byId.puts());
+        assertEquals(1, byId.loads());
+        assertTrue(stats.families().stream()
+                .anyMatch(family -> family.family().equals("tracks_artist")));
+    }
+
+    @Test
+    void getHitCounts_ShouldCountHitsPerLiveKey() {
+        InMemoryCache cache = cacheWith(10, 4);
+        cache.put("tracks_id_1", 1);
+        cache.put("tracks_id_2", 2);
+        cache.containsKey("tracks_id_1");
+        cache.containsKey("tracks_id_1");
+
+        Map<String, Integer> hits = cache.getHitCounts();
+
+        assertEquals(Map.of("tracks_id_1", 2, "tracks_id_2", 0), hits);
+    }
+
+    @Test
+    void getOrLoadById_ShouldShareEntriesWithStringKeys() {
+        InMemoryCache cache = cacheWith(10, 4);
+        AtomicInteger loads = new AtomicInteger();
+
+        Object loaded = cache.getOrLoadById(IdFamily.TRACKS, 7, id -> {
+            loads.incrementAndGet();
+            return track(id);
+        }, CacheTags::of, id -> Set.of(CacheTags.track(id)));
+        Object cached = cache.getOrLoadById(IdFamily.TRACKS, 7, id -> {
+            loads.incrementAndGet();
+            return track(id);
+        }, CacheTags::of, id -> Set.of(CacheTags.track(id)));
+
+        assertEquals(track(7L), loaded);
+        assertEquals(track(7L), cached);
+        assertEquals(1, loads.get());
+        assertEquals(track(7L), cache.get("tracks_id_7"));
+        cache.invalidate(Set.of(CacheTags.track(7L)));
+        assertFalse(cache.containsKey("tracks_id_7"));
+    }
+
+    @Test
+    void getOrLoadById_WhenHit_ShouldNotAllocate() {
+        InMemoryCache cache = cacheWith(100, 4);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        // Первый проход заполняет кэш и связывает лямбды
+        readTracksById(cache, 1_000);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        readTracksById(cache, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+
+    private static void readTracksById(InMemoryCache cache, int reads) {
+        for (int i = 0; i < reads; i++) {
+            cache.getOrLoadById(IdFamily.TRACKS, i % 50, TRACK_LOADER, CacheTags::of,
+                    id -> Set.of());
+        }
+    }
+
+    @Test
+    void getOrLoad_WhenCalledConcurrently_ShouldLoadOnce() throws Exception {
+        InMemoryCache cache = cacheWith(10, 4);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> cache.getOrLoad("tracks_artist_Hot", () -> {
+                    loads.incrementAndGet();
+                    loaderStarted.countDown();
+                    await(release);
+                    return "value";
+                }, value -> Set.of("artist-name:Hot"))));
+            }
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<Object> future : futures) {
+                assertEquals("value", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertTrue(cache.containsKey("tracks_artist_Hot"));
+    }
+
+    @Test
+    void getOrLoad_WhenLoaderFails_ShouldNotCacheFailure() {
+        InMemoryCache cache = cacheWith(10, 4);
+
+        assertThrows(IllegalStateException.class, () -> cache.getOrLoad("tracks_id_1",
+                () -> {
+                    throw new IllegalStateException("boom");
+                }, value -> Set.of()));
+
+        int value = cache.getOrLoad("tracks_id_1", () -> 1, loaded -> Set.of());
+        assertEquals(1, value);
+    }
+
+    @Test
+    void getOrLoad_WhenInvalidatedDuringLoad_ShouldNotCacheStaleValue() {
+        InMemoryCache cache = cacheWith(10, 4);
+
+        Object value = cache.getOrLoad("tracks_id_1", () -> {
+            cache.invalidate(Set.of("track:1"));
+            return 1;
+        }, loaded -> Set.of("track:1"));
+
+        assertEquals(1, value);
+        assertFalse(cache.containsKey("tracks_id_1"));
+    }
+
+    @Test
+    void getOrLoad_WhenInvalidatedBeforeInsert_ShouldNotCacheStaleValue() {
+        InMemoryCache cache = cacheWith(10, 4);
+        AtomicBoolean invalidated = new AtomicBoolean();
+        // Вес значения считается после проверки эпохи, прямо перед вставкой
+        List<Integer> value = new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return index;
+            }
+
+            @Override
+            public int size() {
+                if (invalidated.compareAndSet(false, true)) {
+                    cache.invalidate(Set.of("track:1"));
+                }
+                return 1;
+            }
+        };
+
+        Object loaded = cache.getOrLoad("tracks_id_1", () -> value, list -> Set.of("track:1"));
+
+        assertSame(value, loaded);
+        assertTrue(invalidated.get());
+        assertFalse(cache.containsKey("tracks_id_1"));
+    }
+
+    @Test
+    void getOrLoad_WhenNothingFound_ShouldCacheMissUntilInvalidated() {
+        InMemoryCache cache = cacheWith(10, 4);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(cache.getOrLoad("users_name_Ghost", () -> {
+                loads.incrementAndGet();
+                return null;
+            }, user -> Set.of("user:1"), Set.of("user-name:Ghost")));
+        }
+        assertEquals(1, loads.get());
+
+        cache.invalidate(Set.of("user-name:Ghost"));
+        Object user = cache.getOrLoad("users_name_Ghost", () -> "Ghost",
+                loaded -> Set.of("user:1"), Set.of("user-name:Ghost"));
+
+        assertEquals("Ghost", user);
+        assertTrue(cache.containsKey("users_name_Ghost"));
+        CacheStats negative = cache.getStats().stream()
+                .filter(stats -> stats.region().equals("negative"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, negative.hits());
+        assertEquals(1, negative.invalidations());
+    }
+
+    @Test
+    void getOrLoad_WhenEvictedToOffHeap_ShouldPromoteWithoutLoading() {
+        InMemoryCache cache = tieredCache();
+        TrackSnapshot first = track(1L);
+        cache.getOrLoad("tracks_id_1", () -> first, CacheTags::of);
+        cache.getOrLoad("tracks_id_2", () -> track(2L), CacheTags::of);
+
+        assertFalse(cache.containsKey("tracks_id_1"));
+        TrackSnapshot promoted = cache.<TrackSnapshot>getOrLoad("tracks_id_1", () -> {
+            throw new IllegalStateException("должно быть поднято из off-heap");
+        }, CacheTags::of);
+
+        assertEquals(first, promoted);
+        CacheStats offHeap = cache.getStats().stream()
+                .filter(stats -> stats.region().equals(OffHeapTier.NAME))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, offHeap.hits());
+        assertEquals(2, offHeap.puts());
+    }
+
+    @Test
+    void invalidate_ShouldRemoveOffHeapEntries() {
+        InMemoryCache cache = tieredCache();
+        cache.getOrLoad("tracks_id_1", () -> track(1L), CacheTags::of);
+        cache.getOrLoad("tracks_id_2", () -> track(2L), CacheTags::of);
+
+        cache.invalidate(Set.of(CacheTags.album(10L)));
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.getOrLoad("tracks_id_1", () -> {
+            loads.incrementAndGet();
+            return track(1L);
+        }, CacheTags::of);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void offHeapDemote_WhenKeyReplaced_ShouldReleasePreviousTags() {
+        List<CacheRegion.Entry> released = new ArrayList<>();
+        OffHeapTier offHeap = new OffHeapTier(64 * 1024, 1, new SimpleMeterRegistry(),
+                (key, entry) -> released.add(entry));
+        CacheRegion.Entry first = new CacheRegion.Entry(track(1L), Set.of("album:10"), 0, 0);
+        CacheRegion.Entry second = new CacheRegion.Entry(track(1L), Set.of("album:11"), 0, 0);
+
+        assertTrue(offHeap.demote("tracks_id_1", first));
+        assertTrue(offHeap.demote("tracks_id_1", second));
+
+        assertEquals(1, released.size());
+        assertEquals(first.tags(), released.get(0).tags());
+        assertEquals(first.stamp(), released.get(0).stamp());
+        assertEquals(1, offHeap.size());
+    }
+
+    @Test
+    void restore_ShouldReloadDumpedSnapshotsExceptStaleOnes() throws Exception {
+        InMemoryCache cache = cacheWith(10, 4);
+        cache.put("tracks_id_1", track(1L), CacheTags.of(track(1L)));
+        cache.put("tracks_id_2", track(2L), Set.of(CacheTags.track(2L)));
+        cache.put("genres_id_1", "not a snapshot", Set.of("genre:1"));
+        Path file = Files.createTempFile("cache", ".dump");
+        try {
+            assertEquals(2, cache.dump(file, 42));
+
+            InMemoryCache restarted = cacheWith(10, 4);
+            AtomicLong mark = new AtomicLong();
+            int restored = restarted.restore(file, since -> {
+                mark.set(since);
+                return Set.of(CacheTags.track(2L));
+            });
+
+            assertEquals(1, restored);
+            assertEquals(42, mark.get());
+            assertEquals(track(1L), restarted.get("tracks_id_1"));
+            assertNull(restarted.get("tracks_id_2"));
+            restarted.invalidate(Set.of(CacheTags.album(10L)));
+            assertNull(restarted.get("tracks_id_1"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void snapshotCodec_ShouldRoundTripSnapshots() {
+        TrackSnapshot track = new TrackSnapshot(1L, "Трек", null, null,
+                List.of(new NamedRef(2L, "Artist")), List.of());
+        AlbumSnapshot album = new AlbumSnapshot(3L, "Album",
+                List.of(new NamedRef(2L, null)), List.of(new NamedRef(1L, "Трек")));
+        PlaylistSnapshot playlist = new PlaylistSnapshot(4L, "Mix",
+                new NamedRef(5L, "user"), List.of(new NamedRef(1L, "Трек")), 3L);
+
+        assertEquals(track, SnapshotCodec.decode(SnapshotCodec.encode(track)));
+        assertEquals(album, SnapshotCodec.decode(SnapshotCodec.encode(album)));
+        assertEquals(playlist, SnapshotCodec.decode(SnapshotCodec.encode(playlist)));
+        assertEquals(List.of(track, track(7L)),
+                SnapshotCodec.decode(SnapshotCodec.encode(List.of(track, track(7L)))));
+        assertNull(SnapshotCodec.encode("genre"));
+    }
+
+    @Test
+    void getOrLoad_WhenHotEntryNearExpiry_ShouldRefreshInBackground() throws Exception {
+        CacheProperties properties = new CacheProperties();
+        properties.getRefresh().setMinHits(2);
+        CacheProperties.Region tracks = new CacheProperties.Region();
+        tracks.setTtl(Duration.ofMillis(500));
+        tracks.setRefreshAhead(Duration.ofMillis(450));
+        properties.getRegions().put("tracks", tracks);
+        InMemoryCache cache = new InMemoryCache(properties);
+        AtomicInteger version = new AtomicInteger();
+        cache.getOrLoad("tracks_artist_Hot", version::incrementAndGet, value -> Set.of());
+
+        Thread.sleep(100);
+        Object first = cache.getOrLoad("tracks_artist_Hot", version::incrementAndGet,
+                value -> Set.of());
+        Object second = cache.getOrLoad("tracks_artist_Hot", version::incrementAndGet,
+                value -> Set.of());
+
+        assertEquals(1, first);
+        assertEquals(1, second);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!Integer.valueOf(2).equals(cache.get("tracks_artist_Hot"))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, cache.get("tracks_artist_Hot"));
+        assertEquals(2, version.get());
+        cache.shutdown();
+    }
+
+    @Test
+    void containsKey_WhenTtlExpired_ShouldReturnFalse() throws InterruptedException {
+        CacheProperties properties = new CacheProperties();
+        properties.getDefaultRegion().setTtl(Duration.ofMillis(1));
+        InMemoryCache cache = new InMemoryCache(properties);
+        cache.put("a", 1, Set.of("tag"));
+
+        Thread.sleep(10);
+
+        assertFalse(cache.containsKey("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void constructor_WhenSizeNotPositive_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> cacheWith(0, 4).put("a", 1));
+    }
+
+    private static InMemoryCache tieredCache() {
+        CacheProperties properties = new CacheProperties();
+        properties.setConcurrencyLevel(1);
+        CacheProperties.Region tracks = new CacheProperties.Region();
+        tracks.setMaxSize(1);
+        properties.getRegions().put("tracks", tracks);
+        properties.getOffHeap().setEnabled(true);
+        properties.getOffHeap().setCapacity(DataSize.ofKilobytes(64));
+        return new InMemoryCache(properties);
+    }
+
+    private static TrackSnapshot track(Long id) {
+        return new TrackSnapshot(id, "Track " + id, 180, new NamedRef(10L, "Album"),
+                List.of(new NamedRef(20L, "Artist")), List.of(new NamedRef(30L, "Rock")));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package musiccatalog.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import musiccatalog.config.CacheProperties;
+import org.junit.jupiter.api.Test;
+
+class InvalidationBroadcasterTest {
+
+    private static CacheProperties properties() {
+        CacheProperties properties = new CacheProperties();
+        properties.getInvalidation().setDebounce(Duration.ofMillis(20));
+        properties.getInvalidation().setMaxBatchTags(100);
+        return properties;
+    }
+
+    @Test
+    void invalidate_ShouldReachOtherNodes() throws Exception {
+        LocalInvalidationTransport transport = new LocalInvalidationTransport();
+        InMemoryCache nodeA = new InMemoryCache(properties());
+        InMemoryCache nodeB = new InMemoryCache(properties());
+        new InvalidationBroadcaster(nodeA, transport, properties());
+        new InvalidationBroadcaster(nodeB, transport, properties());
+        nodeA.put("tracks_id_1", 1, Set.of("track:1"));
+        nodeB.put("tracks_id_1", 1, Set.of("track:1"));
+
+        nodeA.invalidate(Set.of("track:1"));
+
+        assertFalse(nodeA.containsKey("tracks_id_1"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (nodeB.get("tracks_id_1") != null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertNull(nodeB.get("tracks_id_1"));
+    }
+
+    @Test
+    void invalidate_WhenBurstOfWrites_ShouldPublishOneMessage() throws Exception {
+        List<InvalidationMessage> published = new CopyOnWriteArrayList<>();
+        InvalidationTransport transport = new LocalInvalidationTransport() {
+            @Override
+            public void publish(InvalidationMessage message) {
+                published.add(message);
+            }
+        };
+        InMemoryCache cache = new InMemoryCache(properties());
+        InvalidationBroadcaster broadcaster =
+                new InvalidationBroadcaster(cache, transport, properties());
+
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            cache.invalidate(Set.of("track:" + i));
+            tags.add("track:" + i);
+        }
+        Thread.sleep(200);
+
+        assertEquals(1, published.size());
+        assertEquals(Set.copyOf(tags), published.get(0).tags());
+        broadcaster.shutdown();
+    }
+}
@@ -0,0 +1,187 @@
+package musiccatalog.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import musiccatalog.dto.get.AlbumGetDto;
+import musiccatalog.dto.get.ArtistGetDto;
+import musiccatalog.dto.get.GenreGetDto;
+import musiccatalog.dto.get.PlaylistGetDto;
+import musiccatalog.dto.get.TrackGetDto;
+import musiccatalog.dto.get.UserGetDto;
+import musiccatalog.model.Album;
+import musiccatalog.model.Artist;
+import musiccatalog.model.Genre;
+import musiccatalog.model.Playlist;
+import musiccatalog.model.Track;
+import musiccatalog.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+// Число SQL-запросов списочных методов не должно зависеть от числа сущностей,
+// а сами сущности при чтении проекций не загружаются.
+// data.sql выравнивает последовательности PostgreSQL, на H2 он не нужен
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.sql.init.mode=never"})
+class FetchPlanQueryCountTest {
+
+    private static final int ALBUMS = 5;
+    private static final int TRACKS_PER_ALBUM = 6;
+    private static final int USERS = 4;
+    private static final int PLAYLISTS_PER_USER = 3;
+    // Запрос id страницы, запрос строк проекции и по запросу на каждую вложенную коллекцию
+    private static final int MAX_QUERIES = 4;
+    private static final Limit FIRST_PAGE = Limit.of(100);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private ArtistRepository artistRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<Genre> genres = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Genre genre = new Genre();
+            genre.setName("Genre " + i);
+            genres.add(entityManager.persist(genre));
+        }
+        List<Track> tracks = new ArrayList<>();
+        for (int a = 0; a < ALBUMS; a++) {
+            Artist first = artist("Artist " + a);
+            Artist second = artist("Featuring " + a);
+            Album album = new Album();
+            album.setName("Album " + a);
+            album.setArtists(new ArrayList<>(List.of(first, second)));
+            entityManager.persist(album);
+            for (int t = 0; t < TRACKS_PER_ALBUM; t++) {
+                Track track = new Track();
+                track.setName("Track " + a + "-" + t);
+                track.setDuration(180);
+                track.setAlbum(album);
+                track.setGenres(new ArrayList<>(List.of(genres.get(t % genres.size()),
+                        genres.get((t + 1) % genres.size()))));
+                tracks.add(entityManager.persist(track));
+            }
+        }
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setName("User " + u);
+            user.setEmail("user" + u + "@example.com");
+            user.setPassword("password");
+            entityManager.persist(user);
+            for (int p = 0; p < PLAYLISTS_PER_USER; p++) {
+                Playlist playlist = new Playlist();
+                playlist.setName("Playlist " + u + "-" + p);
+                playlist.setAuthor(user);
+                playlist.setTracks(new ArrayList<>(tracks.subList(p, p + 4)));
+                entityManager.persist(playlist);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllTracks_ShouldNotLoadRelationsPerTrack() {
+        List<TrackGetDto> tracks = countQueries(() -> trackRepository
+                .findSnapshotsByIdIn(trackRepository.findIdsAfter(0, FIRST_PAGE))
+                .stream().map(TrackGetDto::new).toList());
+
+        assertEquals(ALBUMS * TRACKS_PER_ALBUM, tracks.size());
+        assertEquals(2, tracks.get(0).getArtists().size());
+        assertEquals(2, tracks.get(0).getGenres().size());
+    }
+
+    @Test
+    void findAllAlbums_ShouldNotLoadRelationsPerAlbum() {
+        List<AlbumGetDto> albums = countQueries(() -> albumRepository
+                .findSnapshotsByIdIn(albumRepository.findIdsAfter(0, FIRST_PAGE))
+                .stream().map(AlbumGetDto::new).toList());
+
+        assertEquals(ALBUMS, albums.size());
+        assertEquals(2, albums.get(0).getArtists().size());
+        assertEquals(TRACKS_PER_ALBUM, albums.get(0).getTracks().size());
+    }
+
+    @Test
+    void findAllPlaylists_ShouldNotLoadRelationsPerPlaylist() {
+        List<PlaylistGetDto> playlists = countQueries(() -> playlistRepository
+                .findSnapshotsByIdIn(playlistRepository.findIdsAfter(0, FIRST_PAGE))
+                .stream().map(PlaylistGetDto::new).toList());
+
+        assertEquals(USERS * PLAYLISTS_PER_USER, playlists.size());
+        assertEquals("User 0", playlists.get(0).getAuthor());
+        assertEquals(4, playlists.get(0).getTracks().size());
+        assertEquals(0L, playlists.get(0).getVersion());
+    }
+
+    @Test
+    void findAllArtistsGenresUsers_ShouldNotLoadRelationsPerEntity() {
+        List<ArtistGetDto> artists = countQueries(() -> artistRepository
+                .findSnapshotsByIdIn(artistRepository.findIdsAfter(0, FIRST_PAGE))
+                .stream().map(ArtistGetDto::new).toList());
+        List<GenreGetDto> genres = countQueries(() -> genreRepository
+                .findSnapshotsByIdIn(genreRepository.findIdsAfter(0, FIRST_PAGE))
+                .stream().map(GenreGetDto::new).toList());
+        List<UserGetDto> users = countQueries(() -> userRepository
+                .findSnapshotsByIdIn(userRepository.findIdsAfter(0, FIRST_PAGE))
+                .stream().map(UserGetDto::new).toList());
+
+        assertEquals(ALBUMS * 2, artists.size());
+        assertEquals(1, artists.get(0).getAlbums().size());
+        assertEquals(3, genres.size());
+        assertEquals(USERS, users.size());
+        assertEquals(PLAYLISTS_PER_USER, users.get(0).getPlaylistsCreated().size());
+    }
+
+    private Artist artist(String name) {
+        Artist artist = new Artist();
+        artist.setName(name);
+        return entityManager.persist(artist);
+    }
+
+    private <T> T countQueries(Supplier<T> action) {
+        entityManager.clear();
+        statistics.clear();
+        T result = action.get();
+        long queries = statistics.getPrepareStatementCount();
+        assertTrue(queries <= MAX_QUERIES, "executed " + queries + " queries");
+        assertEquals(0, statistics.getEntityLoadCount());
+        return result;
+    }
+}
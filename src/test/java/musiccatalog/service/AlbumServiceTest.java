@@ -8,9 +8,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.AlbumCreateDto;
+import musiccatalog.dto.snapshot.AlbumSnapshot;
 import musiccatalog.dto.update.AlbumUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Album;
@@ -25,6 +29,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 class AlbumServiceTest {
@@ -37,6 +42,10 @@ class AlbumServiceTest {
     private TrackRepository trackRepository;
     @Mock
     private InMemoryCache cache;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private PlaylistService playlistService;
 
     @InjectMocks
     private AlbumService albumService;
@@ -46,6 +55,13 @@ class AlbumServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(cache.getOrLoad(anyString(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoad(anyString(), any(), any(), anyCollection()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoadById(any(), anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<?>>getArgument(2)
+                        .apply(invocation.<Long>getArgument(1)));
 
         testArtist = new Artist();
         testArtist.setId(1L);
@@ -82,7 +98,7 @@ class AlbumServiceTest {
         assertNotNull(result);
         assertEquals(2L, result.getId());
         assertEquals(1, result.getArtists().size());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -124,7 +140,7 @@ class AlbumServiceTest {
         dto.setTracksIds(List.of(2L));
 
         when(albumRepository.findById(1L)).thenReturn(Optional.of(testAlbum));
-        when(artistRepository.findById(2L)).thenReturn(Optional.of(newArtist));
+        when(artistRepository.findAllById(List.of(2L))).thenReturn(List.of(newArtist));
         when(trackRepository.findAllById(anyList())).thenReturn(List.of(newTrack));
         when(albumRepository.save(any(Album.class))).thenReturn(testAlbum);
 
@@ -141,7 +157,7 @@ class AlbumServiceTest {
         dto.setArtistsIds(List.of(99L));
 
         when(albumRepository.findById(1L)).thenReturn(Optional.of(testAlbum));
-        when(artistRepository.findById(99L)).thenReturn(Optional.empty());
+        when(artistRepository.findAllById(List.of(99L))).thenReturn(List.of());
 
         assertThrows(NotFoundException.class,
                 () -> albumService.updateAlbum(1L, dto));
@@ -159,37 +175,35 @@ class AlbumServiceTest {
 
         assertEquals("New Name Only", result.getName());
         assertEquals(1, result.getArtists().size());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
     void getAlbumById_WhenCached_ShouldReturnFromCache() {
-        String cacheKey = "albums_id_1";
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(testAlbum);
+        when(cache.getOrLoadById(eq(IdFamily.ALBUMS), eq(1L), any(), any(), any()))
+                .thenReturn(AlbumSnapshot.of(testAlbum));
 
-        Optional<Album> result = albumService.getAlbumById(1L);
+        Optional<AlbumSnapshot> result = albumService.getAlbumById(1L);
 
         assertTrue(result.isPresent());
-        assertEquals(testAlbum, result.get());
-        verify(albumRepository, never()).findById(any());
+        assertEquals(AlbumSnapshot.of(testAlbum), result.get());
+        verify(albumRepository, never()).findSnapshotById(anyLong());
     }
 
     @Test
     void getAlbumById_WhenNotCached_ShouldFetchFromDB() {
-        String cacheKey = "albums_id_1";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(albumRepository.findById(1L)).thenReturn(Optional.of(testAlbum));
+        when(albumRepository.findSnapshotById(1L))
+                .thenReturn(Optional.of(AlbumSnapshot.of(testAlbum)));
 
-        Optional<Album> result = albumService.getAlbumById(1L);
+        Optional<AlbumSnapshot> result = albumService.getAlbumById(1L);
 
         assertTrue(result.isPresent());
-        verify(cache).put(cacheKey, testAlbum);
+        verify(cache).getOrLoadById(eq(IdFamily.ALBUMS), eq(1L), any(), any(), any());
     }
 
     @Test
     void getAlbumById_WhenNotFound_ShouldThrowException() {
-        when(albumRepository.findById(99L)).thenReturn(Optional.empty());
+        when(albumRepository.findSnapshotById(99L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
                 () -> albumService.getAlbumById(99L));
@@ -198,19 +212,19 @@ class AlbumServiceTest {
     @Test
     void getAlbumByName_WhenCached_ShouldReturnFromCache() {
         String cacheKey = "albums_name_Test";
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(List.of(testAlbum));
+        when(cache.getOrLoad(eq(cacheKey), any(), any()))
+                .thenReturn(List.of(AlbumSnapshot.of(testAlbum)));
 
-        List<Album> result = albumService.getAlbumByName("Test");
+        List<AlbumSnapshot> result = albumService.getAlbumByName("Test");
 
         assertEquals(1, result.size());
-        verify(albumRepository, never()).findAlbumsByName(any());
+        verify(albumRepository, never()).findIdsByName(any());
     }
 
     @Test
     void getAlbumsByGenreName_WhenEmpty_ShouldThrowException() {
         String genre = "Unknown";
-        when(albumRepository.findAlbumsByGenreName(genre)).thenReturn(Collections.emptyList());
+        when(albumRepository.findIdsByGenreName(genre)).thenReturn(Collections.emptyList());
 
         assertThrows(NotFoundException.class,
                 () -> albumService.getAlbumsByGenreName(genre));
@@ -222,8 +236,9 @@ class AlbumServiceTest {
 
         albumService.deleteAlbum(1L);
 
+        verify(playlistService).removeTracksFromPlaylists(List.of(1L));
         verify(albumRepository).delete(testAlbum);
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -244,7 +259,7 @@ class AlbumServiceTest {
         dto.setArtistsIds(List.of(2L));
 
         when(albumRepository.findById(1L)).thenReturn(Optional.of(testAlbum));
-        when(artistRepository.findById(2L)).thenReturn(Optional.of(newArtist));
+        when(artistRepository.findAllById(List.of(2L))).thenReturn(List.of(newArtist));
         when(albumRepository.save(any())).thenReturn(testAlbum);
 
         albumService.updateAlbum(1L, dto);
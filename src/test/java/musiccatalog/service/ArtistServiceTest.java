@@ -4,11 +4,18 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.ArtistCreateDto;
+import musiccatalog.dto.snapshot.ArtistSnapshot;
+import musiccatalog.dto.snapshot.NamedRef;
 import musiccatalog.dto.update.ArtistUpdateDto;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Album;
@@ -21,6 +28,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 class ArtistServiceTest {
@@ -34,6 +43,9 @@ class ArtistServiceTest {
     @Mock
     private InMemoryCache cache;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private ArtistService artistService;
 
@@ -42,71 +54,81 @@ class ArtistServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(cache.getOrLoad(anyString(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoad(anyString(), any(), any(), anyCollection()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoadById(any(), anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<?>>getArgument(2)
+                        .apply(invocation.<Long>getArgument(1)));
         testArtist = new Artist();
         testArtist.setId(1L);
         testArtist.setName("Test Artist");
+        testArtist.setAlbums(new ArrayList<>());
 
         testAlbum = new Album();
         testAlbum.setId(1L);
         testAlbum.setName("Test Album");
+        testAlbum.setArtists(new ArrayList<>());
     }
 
     @Test
     void getAllArtists_ShouldReturnAllArtists() {
-        when(artistRepository.findAll()).thenReturn(List.of(testArtist));
-        List<Artist> result = artistService.getAllArtists();
+        when(artistRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L));
+        when(artistRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(ArtistSnapshot.of(testArtist)));
+        List<ArtistSnapshot> result = artistService.getAllArtists(null, 10).items();
         assertEquals(1, result.size());
-        verify(artistRepository).findAll();
+        verify(artistRepository).findIdsAfter(0L, Limit.of(11));
     }
 
     @Test
     void getArtistById_WhenCached_ShouldReturnFromCache() {
-        String cacheKey = "artists_id_1";
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(testArtist);
-        Optional<Artist> result = artistService.getArtistById(1L);
+        when(cache.getOrLoadById(eq(IdFamily.ARTISTS), eq(1L), any(), any(), any()))
+                .thenReturn(ArtistSnapshot.of(testArtist));
+        Optional<ArtistSnapshot> result = artistService.getArtistById(1L);
         assertTrue(result.isPresent());
-        assertEquals(testArtist, result.get());
-        verify(artistRepository, never()).findById(anyLong());
+        assertEquals(ArtistSnapshot.of(testArtist), result.get());
+        verify(artistRepository, never()).findSnapshotById(anyLong());
     }
 
     @Test
     void getArtistById_WhenNotCached_ShouldFetchFromRepository() {
-        String cacheKey = "artists_id_1";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(artistRepository.findById(1L)).thenReturn(Optional.of(testArtist));
-        Optional<Artist> result = artistService.getArtistById(1L);
+        when(artistRepository.findSnapshotById(1L))
+                .thenReturn(Optional.of(ArtistSnapshot.of(testArtist)));
+        Optional<ArtistSnapshot> result = artistService.getArtistById(1L);
         assertTrue(result.isPresent());
-        assertEquals(testArtist, result.get());
-        verify(cache).put(cacheKey, testArtist);
-        verify(artistRepository).findById(1L);
+        assertEquals(ArtistSnapshot.of(testArtist), result.get());
+        verify(cache).getOrLoadById(eq(IdFamily.ARTISTS), eq(1L), any(), any(), any());
+        verify(artistRepository).findSnapshotById(1L);
     }
 
     @Test
     void getArtistById_WhenNotFound_ShouldThrowException() {
-        when(artistRepository.findById(1L)).thenReturn(Optional.empty());
+        when(artistRepository.findSnapshotById(1L)).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () -> artistService.getArtistById(1L));
     }
 
     @Test
     void getArtistByName_WhenCached_ShouldReturnFromCache() {
         String cacheKey = "artists_name_Test Artist";
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(testArtist);
-        Artist result = artistService.getArtistByName("Test Artist");
-        assertEquals(testArtist, result);
-        verify(artistRepository, never()).findArtistByName(anyString());
+        when(cache.getOrLoad(eq(cacheKey), any(), any(), anyCollection()))
+                .thenReturn(ArtistSnapshot.of(testArtist));
+        ArtistSnapshot result = artistService.getArtistByName("Test Artist");
+        assertEquals(ArtistSnapshot.of(testArtist), result);
+        verify(artistRepository, never()).findIdsByName(anyString());
     }
 
     @Test
     void getArtistByName_WhenNotCached_ShouldFetchFromRepository() {
         String cacheKey = "artists_name_Test Artist";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(artistRepository.findArtistByName("Test Artist")).thenReturn(testArtist);
-        Artist result = artistService.getArtistByName("Test Artist");
-        assertEquals(testArtist, result);
-        verify(cache).put(cacheKey, testArtist);
-        verify(artistRepository).findArtistByName("Test Artist");
+        when(artistRepository.findIdsByName("Test Artist")).thenReturn(List.of(1L));
+        when(artistRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(ArtistSnapshot.of(testArtist)));
+        ArtistSnapshot result = artistService.getArtistByName("Test Artist");
+        assertEquals(ArtistSnapshot.of(testArtist), result);
+        verify(cache).getOrLoad(eq(cacheKey), any(), any(), anyCollection());
+        verify(artistRepository).findIdsByName("Test Artist");
     }
 
     @Test
@@ -121,7 +143,7 @@ class ArtistServiceTest {
         Artist result = artistService.createArtist(dto);
         assertEquals("New Artist", result.getName());
         verify(artistRepository).save(any(Artist.class));
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -131,7 +153,7 @@ class ArtistServiceTest {
         dto.setAlbumsIds(List.of(1L));
 
         when(artistRepository.findById(1L)).thenReturn(Optional.of(testArtist));
-        when(albumRepository.findById(1L)).thenReturn(Optional.of(testAlbum));
+        when(albumRepository.findAllById(List.of(1L))).thenReturn(List.of(testAlbum));
         when(artistRepository.save(any(Artist.class))).thenReturn(testArtist);
 
         Artist result = artistService.updateArtist(1L, dto);
@@ -140,7 +162,7 @@ class ArtistServiceTest {
         assertEquals("Updated Name", result.getName());
         assertEquals(1, result.getAlbums().size());
         verify(artistRepository).save(testArtist);
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -148,21 +170,25 @@ class ArtistServiceTest {
         ArtistUpdateDto dto = new ArtistUpdateDto();
         dto.setAlbumsIds(List.of(99L));
         when(artistRepository.findById(1L)).thenReturn(Optional.of(testArtist));
-        when(albumRepository.findById(99L)).thenReturn(Optional.empty());
+        when(albumRepository.findAllById(List.of(99L))).thenReturn(List.of());
         assertThrows(NotFoundException.class, () -> artistService.updateArtist(1L, dto));
     }
 
     @Test
     void deleteArtist_ShouldDeleteAndClearCache() {
-        when(artistRepository.findById(1L)).thenReturn(Optional.of(testArtist));
+        when(artistRepository.findSnapshotById(1L)).thenReturn(Optional.of(new ArtistSnapshot(
+                1L, "Test Artist", List.of(new NamedRef(1L, "Test Album")))));
         artistService.deleteArtist(1L);
-        verify(artistRepository).delete(testArtist);
-        verify(cache).clear();
+        verify(artistRepository).deleteAlbumLinks(1L);
+        verify(artistRepository).deleteRowById(1L);
+        verify(albumRepository, never()).save(any(Album.class));
+        verify(cache).invalidate(Set.of("artist:1", "artist-name:Test Artist", "album:1"));
     }
 
     @Test
     void deleteArtist_WhenNotFound_ShouldThrowException() {
-        when(artistRepository.findById(1L)).thenReturn(Optional.empty());
+        when(artistRepository.findSnapshotById(1L)).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () -> artistService.deleteArtist(1L));
+        verify(artistRepository, never()).deleteAlbumLinks(anyLong());
     }
 }
\ No newline at end of file
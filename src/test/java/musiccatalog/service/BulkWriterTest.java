@@ -0,0 +1,116 @@
+package musiccatalog.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import musiccatalog.cache.CacheTags;
+import musiccatalog.cache.InMemoryCache;
+import musiccatalog.dto.get.BulkCreateResult;
+import musiccatalog.dto.get.BulkItemError;
+import musiccatalog.exception.NotFoundException;
+import musiccatalog.model.Genre;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+class BulkWriterTest {
+
+    private static final Function<String, Genre> GENRE_BUILDER = name -> {
+        if (name.startsWith("missing")) {
+            throw new NotFoundException("Не найдено: " + name);
+        }
+        Genre genre = new Genre();
+        genre.setName(name);
+        return genre;
+    };
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private InMemoryCache cache;
+
+    @InjectMocks
+    private BulkWriter bulkWriter;
+
+    private long nextId;
+
+    @Test
+    void create_ShouldReportFailedItemsAndSaveTheRest() {
+        @SuppressWarnings("unchecked")
+        ConstraintViolation<String> violation = mock(ConstraintViolation.class);
+        when(violation.getMessage()).thenReturn("Некорректное имя");
+        when(validator.validate(anyString())).thenAnswer(invocation ->
+                "bad".equals(invocation.getArgument(0)) ? Set.of(violation) : Set.of());
+
+        BulkCreateResult<String> result = bulkWriter.create(
+                List.of("Rock", "bad", "missing", "Jazz"),
+                GENRE_BUILDER, this::saveAll, CacheTags::affectedBy, Genre::getName);
+
+        assertEquals(List.of("Rock", "Jazz"), result.created());
+        assertEquals(List.of(new BulkItemError(1, "Некорректное имя"),
+                new BulkItemError(2, "Не найдено: missing")), result.errors());
+        verify(entityManager, times(2)).detach(any(Genre.class));
+        verify(cache).invalidate(anyCollection());
+    }
+
+    @Test
+    void create_WhenChunkFails_ShouldReportItsItemsAndContinue() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i <= BulkWriter.CHUNK; i++) {
+            names.add("Genre " + i);
+        }
+        boolean[] failed = {false};
+        Function<List<Genre>, List<Genre>> failFirstChunk = genres -> {
+            if (!failed[0]) {
+                failed[0] = true;
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+            return saveAll(genres);
+        };
+
+        BulkCreateResult<String> result = bulkWriter.create(names, GENRE_BUILDER,
+                failFirstChunk, CacheTags::affectedBy, Genre::getName);
+
+        assertEquals(List.of("Genre " + BulkWriter.CHUNK), result.created());
+        assertEquals(BulkWriter.CHUNK, result.errors().size());
+        assertEquals(0, result.errors().get(0).index());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(cache, times(1)).invalidate(anyCollection());
+    }
+
+    @Test
+    void create_WhenNothingSaved_ShouldNotTouchCache() {
+        BulkCreateResult<String> result = bulkWriter.create(List.of("missing"),
+                GENRE_BUILDER, this::saveAll, CacheTags::affectedBy, Genre::getName);
+
+        assertTrue(result.created().isEmpty());
+        assertEquals(1, result.errors().size());
+        verifyNoInteractions(transactionManager, cache);
+    }
+
+    private List<Genre> saveAll(List<Genre> genres) {
+        genres.forEach(genre -> genre.setId(++nextId));
+        return genres;
+    }
+}
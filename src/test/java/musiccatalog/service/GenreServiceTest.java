@@ -1,26 +1,35 @@
 package musiccatalog.service;
 
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.GenreCreateDto;
+import musiccatalog.dto.snapshot.GenreSnapshot;
 import musiccatalog.dto.update.GenreUpdateDto;
 import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Genre;
 import musiccatalog.repository.GenreRepository;
 import org.junit.jupiter.api.BeforeEach;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +49,13 @@ class GenreServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(cache.getOrLoad(anyString(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoad(anyString(), any(), any(), anyCollection()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoadById(any(), anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<?>>getArgument(2)
+                        .apply(invocation.<Long>getArgument(1)));
         testGenre = new Genre();
         testGenre.setId(genreId);
         testGenre.setName("Rock");
@@ -47,44 +63,45 @@ class GenreServiceTest {
 
     @Test
     void getAllGenres_ShouldReturnAllGenres() {
-        when(genreRepository.findAll()).thenReturn(List.of(testGenre));
+        when(genreRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L));
+        when(genreRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(GenreSnapshot.of(testGenre)));
 
-        List<Genre> result = genreService.getAllGenres();
+        List<GenreSnapshot> result = genreService.getAllGenres(null, 10).items();
 
         assertEquals(1, result.size());
-        verify(genreRepository).findAll();
+        verify(genreRepository).findIdsAfter(0L, Limit.of(11));
     }
 
     @Test
     void getGenreById_WhenCached_ShouldReturnFromCache() {
-        String cacheKey = "genres_id_" + genreId;
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(testGenre);
+        when(cache.getOrLoadById(eq(IdFamily.GENRES), eq(genreId), any(), any(), any()))
+                .thenReturn(GenreSnapshot.of(testGenre));
 
-        Optional<Genre> result = genreService.getGenreById(genreId);
+        Optional<GenreSnapshot> result = genreService.getGenreById(genreId);
 
         assertTrue(result.isPresent());
-        assertEquals(testGenre, result.get());
-        verify(cache).containsKey(cacheKey);
+        assertEquals(GenreSnapshot.of(testGenre), result.get());
+        verify(cache).getOrLoadById(eq(IdFamily.GENRES), eq(genreId), any(), any(), any());
         verifyNoInteractions(genreRepository);
     }
 
     @Test
     void getGenreById_WhenNotCached_ShouldFetchFromRepository() {
-        String cacheKey = "genres_id_" + genreId;
-        when(genreRepository.findById(genreId)).thenReturn(Optional.of(testGenre));
+        when(genreRepository.findSnapshotById(genreId))
+                .thenReturn(Optional.of(GenreSnapshot.of(testGenre)));
 
-        Optional<Genre> result = genreService.getGenreById(genreId);
+        Optional<GenreSnapshot> result = genreService.getGenreById(genreId);
 
         assertTrue(result.isPresent());
-        assertEquals(testGenre, result.get());
-        verify(cache).put(cacheKey, testGenre);
-        verify(genreRepository).findById(genreId);
+        assertEquals(GenreSnapshot.of(testGenre), result.get());
+        verify(cache).getOrLoadById(eq(IdFamily.GENRES), eq(genreId), any(), any(), any());
+        verify(genreRepository).findSnapshotById(genreId);
     }
 
     @Test
     void getGenreById_WhenNotFound_ShouldThrowException() {
-        when(genreRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(genreRepository.findSnapshotById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> genreService.getGenreById(999L));
     }
@@ -93,45 +110,47 @@ class GenreServiceTest {
     void getGenreByName_WhenCached_ShouldReturnFromCache() {
         String name = "Rock";
         String cacheKey = "genres_name_" + name;
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(testGenre);
+        when(cache.getOrLoad(eq(cacheKey), any(), any(), anyCollection()))
+                .thenReturn(GenreSnapshot.of(testGenre));
 
-        Genre result = genreService.getGenreByName(name);
+        GenreSnapshot result = genreService.getGenreByName(name);
 
-        assertEquals(testGenre, result);
+        assertEquals(GenreSnapshot.of(testGenre), result);
         verifyNoInteractions(genreRepository);
     }
 
     @Test
     void getGenreByName_WhenNotCached_ShouldFetchFromRepository() {
         String name = "Rock";
-        when(genreRepository.findGenreByName(name)).thenReturn(testGenre);
+        when(genreRepository.findIdsByName(name)).thenReturn(List.of(genreId));
+        when(genreRepository.findSnapshotsByIdIn(List.of(genreId)))
+                .thenReturn(List.of(GenreSnapshot.of(testGenre)));
 
-        Genre result = genreService.getGenreByName(name);
+        GenreSnapshot result = genreService.getGenreByName(name);
 
-        assertEquals(testGenre, result);
-        verify(cache).put("genres_name_" + name, testGenre);
+        assertEquals(GenreSnapshot.of(testGenre), result);
+        verify(cache).getOrLoad(eq("genres_name_" + name), any(), any(), anyCollection());
     }
 
     @Test
     void createGenre_ShouldSaveNewGenreAndClearCache() {
         GenreCreateDto dto = new GenreCreateDto();
         dto.setName("Jazz");
-        when(genreRepository.findGenreByName(anyString())).thenReturn(null);
-        when(genreRepository.save(any(Genre.class))).thenReturn(testGenre);
+        when(genreRepository.saveAndFlush(any(Genre.class))).thenReturn(testGenre);
 
         Genre result = genreService.createGenre(dto);
 
         assertNotNull(result);
-        verify(genreRepository).save(any(Genre.class));
-        verify(cache).clear();
+        verify(genreRepository).saveAndFlush(any(Genre.class));
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
     void createGenre_WhenNameExists_ShouldThrowConflictException() {
         GenreCreateDto dto = new GenreCreateDto();
         dto.setName("Rock");
-        when(genreRepository.findGenreByName(anyString())).thenReturn(testGenre);
+        when(genreRepository.saveAndFlush(any(Genre.class)))
+                .thenThrow(duplicateName());
 
         assertThrows(ConflictException.class, () -> genreService.createGenre(dto));
     }
@@ -142,30 +161,39 @@ class GenreServiceTest {
         dto.setName("Progressive Rock");
 
         when(genreRepository.findById(genreId)).thenReturn(Optional.of(testGenre));
-        when(genreRepository.findGenreByName(anyString())).thenReturn(null);
-        when(genreRepository.save(any(Genre.class))).thenReturn(testGenre);
+        when(genreRepository.saveAndFlush(any(Genre.class))).thenReturn(testGenre);
 
         Genre result = genreService.updateGenre(genreId, dto);
 
         assertNotNull(result);
         assertEquals("Progressive Rock", result.getName());
-        verify(genreRepository).save(testGenre);
-        verify(cache).clear();
+        verify(genreRepository).saveAndFlush(testGenre);
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
     void updateGenre_WhenNameConflict_ShouldThrowConflictException() {
-        Genre existingGenre = new Genre();
-        existingGenre.setId(2L);
-        existingGenre.setName("Pop");
-
         GenreUpdateDto dto = new GenreUpdateDto();
         dto.setName("Pop");
 
         when(genreRepository.findById(genreId)).thenReturn(Optional.of(testGenre));
-        when(genreRepository.findGenreByName("Pop")).thenReturn(existingGenre);
+        when(genreRepository.saveAndFlush(testGenre))
+                .thenThrow(duplicateName());
 
         assertThrows(ConflictException.class, () -> genreService.updateGenre(genreId, dto));
+        verify(cache, never()).invalidate(anyCollection());
+    }
+
+    @Test
+    void createGenre_WhenOtherConstraintViolated_ShouldRethrow() {
+        GenreCreateDto dto = new GenreCreateDto();
+        dto.setName("Rock");
+        DataIntegrityViolationException notNull = new DataIntegrityViolationException("null name",
+                new ConstraintViolationException("null name", null, "genres_name_not_null"));
+        when(genreRepository.saveAndFlush(any(Genre.class))).thenThrow(notNull);
+
+        assertSame(notNull, assertThrows(DataIntegrityViolationException.class,
+                () -> genreService.createGenre(dto)));
     }
 
     @Test
@@ -175,7 +203,7 @@ class GenreServiceTest {
         genreService.deleteGenre(genreId);
 
         verify(genreRepository).delete(testGenre);
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -191,12 +219,16 @@ class GenreServiceTest {
         dto.setName("Rock");
 
         when(genreRepository.findById(genreId)).thenReturn(Optional.of(testGenre));
-        when(genreRepository.findGenreByName("Rock")).thenReturn(testGenre);
-        when(genreRepository.save(any(Genre.class))).thenReturn(testGenre);
+        when(genreRepository.saveAndFlush(any(Genre.class))).thenReturn(testGenre);
 
         Genre result = genreService.updateGenre(genreId, dto);
 
         assertEquals("Rock", result.getName());
-        verify(genreRepository).save(testGenre);
+        verify(genreRepository).saveAndFlush(testGenre);
+    }
+
+    private static DataIntegrityViolationException duplicateName() {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", null, Genre.NAME_CONSTRAINT));
     }
-}
\ No newline at end of file
+}
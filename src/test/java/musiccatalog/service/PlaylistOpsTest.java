@@ -0,0 +1,100 @@
+package musiccatalog.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import musiccatalog.service.PlaylistOps.Op;
+import org.junit.jupiter.api.Test;
+
+class PlaylistOpsTest {
+
+    @Test
+    void rebase_InsertAtSameIndex_ShouldGoAfterAcceptedInsert() {
+        List<Op> result = PlaylistOps.rebase(List.of(Op.insert(1, 20L)),
+                List.of(Op.insert(1, 10L)));
+
+        assertEquals(List.of(Op.insert(2, 20L)), result);
+    }
+
+    @Test
+    void rebase_WhenTrackRemovedConcurrently_ShouldDropOperation() {
+        List<Op> result = PlaylistOps.rebase(List.of(Op.move(2, 0)), List.of(Op.remove(2)));
+
+        assertEquals(List.of(), result);
+    }
+
+    @Test
+    void rebase_ShouldAccountForEarlierEditsOfSameClient() {
+        // Вторая правка ссылается на трек, сдвинутый собственной вставкой клиента
+        List<Op> result = PlaylistOps.rebase(List.of(Op.insert(0, 7L), Op.remove(1)),
+                List.of(Op.remove(0)));
+
+        assertEquals(List.of(Op.insert(0, 7L)), result);
+    }
+
+    @Test
+    void rebase_ShouldConvergeWithAcceptedMove() {
+        List<Long> tracks = new ArrayList<>(List.of(1L, 2L, 3L, 4L));
+        List<Op> accepted = List.of(Op.move(0, 3));
+        apply(tracks, accepted);
+
+        apply(tracks, PlaylistOps.rebase(List.of(Op.remove(2), Op.insert(0, 9L)), accepted));
+
+        assertEquals(List.of(9L, 2L, 4L, 1L), tracks);
+    }
+
+    @Test
+    void diff_ShouldTouchOnlyChangedPositions() {
+        List<Long> tracks = new ArrayList<>(List.of(1L, 2L, 3L));
+
+        List<Op> ops = PlaylistOps.diff(tracks, List.of(1L, 4L));
+        apply(tracks, ops);
+
+        assertEquals(List.of(Op.remove(2), Op.remove(1), Op.insert(1, 4L)), ops);
+        assertEquals(List.of(1L, 4L), tracks);
+    }
+
+    @Test
+    void diff_WhenTrackInsertedAtHead_ShouldProduceSingleInsert() {
+        List<Long> tracks = new ArrayList<>(LongStream.rangeClosed(1, 100).boxed().toList());
+        List<Long> target = new ArrayList<>(tracks);
+        target.add(0, 500L);
+
+        List<Op> ops = PlaylistOps.diff(tracks, target);
+        apply(tracks, ops);
+
+        assertEquals(List.of(Op.insert(0, 500L)), ops);
+        assertEquals(target, tracks);
+    }
+
+    @Test
+    void diff_WhenHeadTrackRemoved_ShouldProduceSingleRemove() {
+        List<Long> tracks = new ArrayList<>(LongStream.rangeClosed(1, 100).boxed().toList());
+        List<Long> target = tracks.subList(1, tracks.size());
+
+        assertEquals(List.of(Op.remove(0)), PlaylistOps.diff(tracks, List.copyOf(target)));
+    }
+
+    @Test
+    void diff_WhenTracksReordered_ShouldMoveInsteadOfReinserting() {
+        List<Long> tracks = new ArrayList<>(List.of(1L, 2L, 3L, 4L, 2L));
+
+        List<Op> ops = PlaylistOps.diff(tracks, List.of(4L, 1L, 3L, 2L));
+        apply(tracks, ops);
+
+        assertEquals(List.of(Op.remove(1), Op.move(2, 0)), ops);
+        assertEquals(List.of(4L, 1L, 3L, 2L), tracks);
+    }
+
+    private static void apply(List<Long> tracks, List<Op> ops) {
+        for (Op op : ops) {
+            switch (op.type()) {
+                case INSERT -> tracks.add(op.position(), op.trackId());
+                case REMOVE -> tracks.remove(op.position());
+                case MOVE -> tracks.add(op.target(), tracks.remove(op.position()));
+            }
+        }
+    }
+}
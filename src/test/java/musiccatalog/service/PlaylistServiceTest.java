@@ -4,26 +4,42 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
+import musiccatalog.cache.CacheTags;
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.PlaylistCreateDto;
+import musiccatalog.dto.snapshot.PlaylistSnapshot;
+import musiccatalog.dto.update.PlaylistOperationDto;
 import musiccatalog.dto.update.PlaylistUpdateDto;
+import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Playlist;
+import musiccatalog.model.PlaylistEntry;
+import musiccatalog.model.PlaylistOperation;
 import musiccatalog.model.Track;
 import musiccatalog.model.User;
+import musiccatalog.repository.PlaylistEntryRepository;
+import musiccatalog.repository.PlaylistOperationRepository;
 import musiccatalog.repository.PlaylistRepository;
 import musiccatalog.repository.TrackRepository;
 import musiccatalog.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 class PlaylistServiceTest {
@@ -31,6 +47,12 @@ class PlaylistServiceTest {
     @Mock
     private PlaylistRepository playlistRepository;
 
+    @Mock
+    private PlaylistEntryRepository playlistEntryRepository;
+
+    @Mock
+    private PlaylistOperationRepository playlistOperationRepository;
+
     @Mock
     private TrackRepository trackRepository;
 
@@ -40,6 +62,9 @@ class PlaylistServiceTest {
     @Mock
     private InMemoryCache cache;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private PlaylistService playlistService;
 
@@ -49,6 +74,13 @@ class PlaylistServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(cache.getOrLoad(anyString(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoad(anyString(), any(), any(), anyCollection()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoadById(any(), anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<?>>getArgument(2)
+                        .apply(invocation.<Long>getArgument(1)));
         testUser = new User();
         testUser.setId(1L);
         testUser.setName("testUser");
@@ -56,7 +88,6 @@ class PlaylistServiceTest {
         testTrack = new Track();
         testTrack.setId(1L);
         testTrack.setName("Test Track");
-        testTrack.setPlaylists(new ArrayList<>());
 
         testPlaylist = new Playlist();
         testPlaylist.setId(1L);
@@ -68,50 +99,50 @@ class PlaylistServiceTest {
 
     @Test
     void getAllPlaylists_ShouldReturnAllPlaylists() {
-        when(playlistRepository.findAll()).thenReturn(List.of(testPlaylist));
+        when(playlistRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L));
+        when(playlistRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(PlaylistSnapshot.of(testPlaylist)));
 
-        List<Playlist> result = playlistService.getAllPlaylists();
+        List<PlaylistSnapshot> result = playlistService.getAllPlaylists(null, 10).items();
 
         assertEquals(1, result.size());
-        verify(playlistRepository).findAll();
+        verify(playlistRepository).findIdsAfter(0L, Limit.of(11));
     }
 
     @Test
     void getPlaylistById_WhenCached_ShouldReturnFromCache() {
-        String cacheKey = "playlists_id_1";
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(testPlaylist);
+        when(cache.getOrLoadById(eq(IdFamily.PLAYLISTS), eq(1L), any(), any(), any()))
+                .thenReturn(PlaylistSnapshot.of(testPlaylist));
 
-        Optional<Playlist> result = playlistService.getPlaylistById(1L);
+        Optional<PlaylistSnapshot> result = playlistService.getPlaylistById(1L);
 
         assertTrue(result.isPresent());
-        assertEquals(testPlaylist, result.get());
-        verify(playlistRepository, never()).findById(anyLong());
+        assertEquals(PlaylistSnapshot.of(testPlaylist), result.get());
+        verify(playlistRepository, never()).findSnapshotById(anyLong());
     }
 
     @Test
     void getPlaylistById_WhenNotCached_ShouldFetchFromRepository() {
-        String cacheKey = "playlists_id_1";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistRepository.findSnapshotById(1L))
+                .thenReturn(Optional.of(PlaylistSnapshot.of(testPlaylist)));
 
-        Optional<Playlist> result = playlistService.getPlaylistById(1L);
+        Optional<PlaylistSnapshot> result = playlistService.getPlaylistById(1L);
 
         assertTrue(result.isPresent());
-        assertEquals(testPlaylist, result.get());
-        verify(cache).put(cacheKey, testPlaylist);
+        assertEquals(PlaylistSnapshot.of(testPlaylist), result.get());
+        verify(cache).getOrLoadById(eq(IdFamily.PLAYLISTS), eq(1L), any(), any(), any());
     }
 
     @Test
     void getPlaylistByName_WhenCached_ShouldReturnFromCache() {
         String cacheKey = "playlists_name_Test Playlist";
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(List.of(testPlaylist));
+        when(cache.getOrLoad(eq(cacheKey), any(), any()))
+                .thenReturn(List.of(PlaylistSnapshot.of(testPlaylist)));
 
-        List<Playlist> result = playlistService.getPlaylistByName("Test Playlist");
+        List<PlaylistSnapshot> result = playlistService.getPlaylistByName("Test Playlist");
 
         assertEquals(1, result.size());
-        verify(playlistRepository, never()).findPlaylistByName(anyString());
+        verify(playlistRepository, never()).findIdsByName(anyString());
     }
 
     @Test
@@ -134,7 +165,7 @@ class PlaylistServiceTest {
         assertEquals("New Playlist", result.getName());
         assertEquals(testUser, result.getAuthor());
         assertEquals(1, result.getTracks().size());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -148,21 +179,34 @@ class PlaylistServiceTest {
         newUser.setId(2L);
         Track newTrack = new Track();
         newTrack.setId(2L);
-        newTrack.setPlaylists(new ArrayList<>());
 
         when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
         when(userRepository.findById(2L)).thenReturn(Optional.of(newUser));
-        when(trackRepository.findById(2L)).thenReturn(Optional.of(newTrack));
-        when(playlistRepository.save(any(Playlist.class))).thenReturn(testPlaylist);
+        when(trackRepository.findAllById(List.of(2L))).thenReturn(List.of(newTrack));
+        PlaylistEntry oldEntry = testPlaylist.getEntries().get(0);
+        when(playlistEntryRepository.findTrackIds(1L)).thenReturn(List.of(1L));
+        when(playlistEntryRepository.findSlice(1L, 0, 1))
+                .thenReturn(List.of(oldEntry), List.of());
 
         Playlist result = playlistService.updatePlaylist(1L, dto);
 
         assertNotNull(result);
         assertEquals("Updated Playlist", result.getName());
         assertEquals(newUser, result.getAuthor());
-        assertEquals(1, result.getTracks().size());
-        assertTrue(newTrack.getPlaylists().contains(testPlaylist));
-        verify(cache).clear();
+        verify(playlistEntryRepository).delete(oldEntry);
+        verify(playlistEntryRepository).saveAll(argThat((List<PlaylistEntry> added) ->
+                added.size() == 1 && added.get(0).getTrack() == newTrack
+                        && added.get(0).getPosition() == PlaylistEntry.POSITION_STEP));
+        verify(playlistOperationRepository).saveAllAndFlush(
+                argThat((List<PlaylistOperation> logged) -> logged.size() == 2
+                        && logged.get(0).getType() == PlaylistOperation.Type.REMOVE
+                        && logged.get(1).getType() == PlaylistOperation.Type.INSERT
+                        && logged.get(1).getTrackId() == 2L
+                        && logged.get(1).getVersion() == 2L));
+        verify(trackRepository).findAllById(List.of(2L));
+        verify(cache).invalidate(Set.of("playlist:1", CacheTags.playlistName("Test Playlist"),
+                CacheTags.playlistName("Updated Playlist"), CacheTags.user(1L),
+                CacheTags.user(2L)));
     }
 
     @Test
@@ -171,8 +215,10 @@ class PlaylistServiceTest {
 
         playlistService.deletePlaylist(1L);
 
+        verify(playlistEntryRepository).deleteByPlaylistId(1L);
+        verify(playlistOperationRepository).deleteByPlaylistId(1L);
         verify(playlistRepository).delete(testPlaylist);
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -193,26 +239,29 @@ class PlaylistServiceTest {
         dto.setTracksIds(List.of(99L));
 
         when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
-        when(trackRepository.findById(99L)).thenReturn(Optional.empty());
+        when(trackRepository.findAllById(List.of(99L))).thenReturn(List.of());
 
         assertThrows(NotFoundException.class, () -> playlistService.updatePlaylist(1L, dto));
+        verify(playlistOperationRepository, never()).saveAllAndFlush(anyList());
+        verify(cache, never()).invalidate(anyCollection());
     }
 
     @Test
     void getPlaylistByName_WhenNotCached_ShouldFetchFromRepository() {
         String cacheKey = "playlists_name_Test";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(playlistRepository.findPlaylistByName("Test")).thenReturn(List.of(testPlaylist));
+        when(playlistRepository.findIdsByName("Test")).thenReturn(List.of(1L));
+        when(playlistRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(PlaylistSnapshot.of(testPlaylist)));
 
-        List<Playlist> result = playlistService.getPlaylistByName("Test");
+        List<PlaylistSnapshot> result = playlistService.getPlaylistByName("Test");
 
         assertEquals(1, result.size());
-        verify(cache).put(cacheKey, result);
+        verify(cache).getOrLoad(eq(cacheKey), any(), any());
     }
 
     @Test
     void getPlaylistById_WhenNotFound_ShouldThrowException() {
-        when(playlistRepository.findById(99L)).thenReturn(Optional.empty());
+        when(playlistRepository.findSnapshotById(99L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
                 () -> playlistService.getPlaylistById(99L));
@@ -224,7 +273,6 @@ class PlaylistServiceTest {
         dto.setName("New Name Only");
 
         when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
-        when(playlistRepository.save(any(Playlist.class))).thenReturn(testPlaylist);
 
         Playlist result = playlistService.updatePlaylist(1L, dto);
 
@@ -232,6 +280,320 @@ class PlaylistServiceTest {
         assertEquals("New Name Only", result.getName());
         assertEquals(testUser, result.getAuthor());
         assertEquals(testPlaylist.getTracks(), result.getTracks());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
+    }
+
+    @Test
+    void addTracks_WithoutPosition_ShouldAppendAfterLastEntry() {
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(trackRepository.findAllById(List.of(1L))).thenReturn(List.of(testTrack));
+        when(playlistEntryRepository.countByPlaylistId(1L)).thenReturn(4L);
+        when(playlistEntryRepository.findSlice(1L, 3, 2))
+                .thenReturn(List.of(PlaylistEntry.of(testPlaylist, testTrack, 4096L)));
+
+        playlistService.addTracks(1L, List.of(1L), null);
+
+        verify(playlistEntryRepository).saveAll(argThat((List<PlaylistEntry> added) ->
+                added.size() == 1
+                        && added.get(0).getPosition() == 4096L + PlaylistEntry.POSITION_STEP));
+        verify(playlistEntryRepository, never()).renumber(anyLong(), anyInt(), anyInt());
+        verify(playlistOperationRepository).saveAllAndFlush(
+                argThat((List<PlaylistOperation> logged) -> logged.size() == 1
+                        && logged.get(0).getPosition() == 4 && logged.get(0).getVersion() == 1L));
+        verify(cache).invalidate(Set.of("playlist:1"));
+    }
+
+    @Test
+    void addTracks_AtPosition_ShouldFitBetweenNeighbours() {
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(trackRepository.findAllById(List.of(1L))).thenReturn(List.of(testTrack));
+        when(playlistEntryRepository.findSlice(1L, 0, 2)).thenReturn(List.of(
+                PlaylistEntry.of(testPlaylist, testTrack, 1024L),
+                PlaylistEntry.of(testPlaylist, testTrack, 2048L)));
+
+        playlistService.addTracks(1L, List.of(1L), 1);
+
+        verify(playlistEntryRepository).saveAll(argThat((List<PlaylistEntry> added) ->
+                added.get(0).getPosition() == 1536L));
+        verify(playlistEntryRepository, never()).renumber(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void addTracks_WhenNoGapLeft_ShouldRenumberWithHole() {
+        Track secondTrack = new Track();
+        secondTrack.setId(2L);
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(trackRepository.findAllById(List.of(1L, 2L)))
+                .thenReturn(List.of(testTrack, secondTrack));
+        when(playlistEntryRepository.findSlice(1L, 2, 2)).thenReturn(List.of(
+                PlaylistEntry.of(testPlaylist, testTrack, 1500L),
+                PlaylistEntry.of(testPlaylist, testTrack, 1501L)));
+
+        playlistService.addTracks(1L, List.of(1L, 2L), 3);
+
+        verify(playlistEntryRepository).renumber(1L, 3, 2);
+        verify(playlistEntryRepository).saveAll(argThat((List<PlaylistEntry> added) ->
+                added.stream().map(PlaylistEntry::getPosition).toList().equals(List.of(
+                        4 * PlaylistEntry.POSITION_STEP, 5 * PlaylistEntry.POSITION_STEP))));
+    }
+
+    @Test
+    void addTracks_WhenPositionPastEnd_ShouldThrowException() {
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(trackRepository.findAllById(List.of(1L))).thenReturn(List.of(testTrack));
+        when(playlistEntryRepository.findSlice(1L, 9, 2)).thenReturn(List.of());
+
+        assertThrows(NotFoundException.class,
+                () -> playlistService.addTracks(1L, List.of(1L), 10));
+        verify(playlistEntryRepository, never()).saveAll(anyIterable());
+        verify(cache, never()).invalidate(anyCollection());
+    }
+
+    @Test
+    void removeTrack_ShouldDeleteSingleEntry() {
+        PlaylistEntry entry = PlaylistEntry.of(testPlaylist, testTrack, 1024L);
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistEntryRepository.findSlice(1L, 0, 1)).thenReturn(List.of(entry));
+
+        playlistService.removeTrack(1L, 0);
+
+        verify(playlistEntryRepository).delete(entry);
+        verify(cache).invalidate(Set.of("playlist:1"));
+    }
+
+    @Test
+    void removeTrack_WhenPositionNegative_ShouldRejectIt() {
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+
+        assertThrows(IllegalArgumentException.class, () -> playlistService.removeTrack(1L, -1));
+        verify(playlistEntryRepository, never()).findSlice(anyLong(), anyInt(), anyInt());
+        verify(cache, never()).invalidate(anyCollection());
+    }
+
+    @Test
+    void moveTrack_WhenTargetNegative_ShouldRejectIt() {
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> playlistService.moveTrack(1L, 0, -2));
+        verify(playlistEntryRepository, never()).findSlice(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void moveTrack_Forward_ShouldUpdateOnlyMovedEntry() {
+        PlaylistEntry moved = PlaylistEntry.of(testPlaylist, testTrack, 1024L);
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistEntryRepository.findSlice(1L, 0, 1)).thenReturn(List.of(moved));
+        when(playlistEntryRepository.findSlice(1L, 2, 2)).thenReturn(List.of(
+                PlaylistEntry.of(testPlaylist, testTrack, 3072L),
+                PlaylistEntry.of(testPlaylist, testTrack, 4096L)));
+
+        playlistService.moveTrack(1L, 0, 2);
+
+        assertEquals(3584L, moved.getPosition());
+        verify(playlistEntryRepository, never()).renumber(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void moveTrack_ToStart_ShouldPlaceBeforeFirstEntry() {
+        PlaylistEntry moved = PlaylistEntry.of(testPlaylist, testTrack, 3072L);
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistEntryRepository.findSlice(1L, 2, 1)).thenReturn(List.of(moved));
+        when(playlistEntryRepository.findSlice(1L, 0, 1)).thenReturn(List.of(
+                PlaylistEntry.of(testPlaylist, testTrack, 1024L)));
+
+        playlistService.moveTrack(1L, 2, 0);
+
+        assertEquals(0L, moved.getPosition());
+    }
+
+    @Test
+    void editPlaylist_WhenBehindHead_ShouldRebaseOverAcceptedOperations() {
+        PlaylistOperation accepted = PlaylistOps.Op.insert(0, 5L).toOperation(1L, 1L);
+        PlaylistEntry entry = PlaylistEntry.of(testPlaylist, testTrack, 2048L);
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistOperationRepository.findHeadVersion(1L)).thenReturn(1L);
+        when(playlistOperationRepository.findSince(1L, 0L)).thenReturn(List.of(accepted));
+        when(playlistEntryRepository.findSlice(1L, 1, 1)).thenReturn(List.of(entry));
+
+        List<PlaylistOperation> result = playlistService.editPlaylist(1L, 0L,
+                List.of(operation(PlaylistOperation.Type.REMOVE, 0)));
+
+        verify(playlistEntryRepository).delete(entry);
+        assertEquals(2, result.size());
+        assertEquals(accepted, result.get(0));
+        assertEquals(1, result.get(1).getPosition());
+        assertEquals(2L, result.get(1).getVersion());
+        verify(cache).invalidate(Set.of("playlist:1"));
+    }
+
+    @Test
+    void editPlaylist_WhenMoveRenumbers_ShouldUseReloadedEntriesForNextOperations() {
+        PlaylistEntry stale = PlaylistEntry.of(testPlaylist, testTrack, 1500L);
+        PlaylistEntry reloaded = PlaylistEntry.of(testPlaylist, testTrack, 1024L);
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(trackRepository.findAllById(List.of(1L))).thenReturn(List.of(testTrack));
+        when(playlistEntryRepository.findSlice(1L, 0, 1))
+                .thenReturn(List.of(stale), List.of(reloaded));
+        when(playlistEntryRepository.findSlice(1L, 2, 2)).thenReturn(List.of(
+                PlaylistEntry.of(testPlaylist, testTrack, 1501L),
+                PlaylistEntry.of(testPlaylist, testTrack, 1502L)));
+        when(playlistEntryRepository.findSlice(1L, 0, 2)).thenReturn(List.of(
+                PlaylistEntry.of(testPlaylist, testTrack, 2048L),
+                PlaylistEntry.of(testPlaylist, testTrack, 3072L)));
+        PlaylistOperationDto move = operation(PlaylistOperation.Type.MOVE, 0);
+        move.setTarget(2);
+        PlaylistOperationDto insert = operation(PlaylistOperation.Type.INSERT, 1);
+        insert.setTrackId(1L);
+
+        playlistService.editPlaylist(1L, 0L, List.of(move, insert));
+
+        verify(playlistEntryRepository).renumber(1L, 0, 0);
+        assertEquals(3 * PlaylistEntry.POSITION_STEP + PlaylistEntry.POSITION_STEP / 2,
+                reloaded.getPosition());
+        assertEquals(1500L, stale.getPosition());
+        verify(playlistEntryRepository).saveAll(argThat((List<PlaylistEntry> added) ->
+                added.size() == 1 && added.get(0).getPosition() == 2560L));
+    }
+
+    @Test
+    void editPlaylist_WhenBaseVersionAhead_ShouldThrowException() {
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+
+        assertThrows(NotFoundException.class, () -> playlistService.editPlaylist(1L, 3L,
+                List.of(operation(PlaylistOperation.Type.REMOVE, 0))));
+        verify(playlistOperationRepository, never()).saveAllAndFlush(anyList());
+    }
+
+    @Test
+    void editPlaylist_WhenVersionTaken_ShouldRetryOverNewHead() {
+        PlaylistEntry entry = PlaylistEntry.of(testPlaylist, testTrack, 1024L);
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistOperationRepository.findHeadVersion(1L)).thenReturn(0L, 1L);
+        when(playlistOperationRepository.findSince(1L, 0L))
+                .thenReturn(List.of(PlaylistOps.Op.insert(5, 5L).toOperation(1L, 1L)));
+        when(playlistEntryRepository.findSlice(1L, 0, 1)).thenReturn(List.of(entry));
+        when(playlistOperationRepository.saveAllAndFlush(anyList()))
+                .thenThrow(versionTaken())
+                .thenReturn(List.of());
+
+        List<PlaylistOperation> result = playlistService.editPlaylist(1L, 0L,
+                List.of(operation(PlaylistOperation.Type.REMOVE, 0)));
+
+        assertEquals(2, result.size());
+        assertEquals(2L, result.get(1).getVersion());
+        verify(transactionManager).rollback(any());
+        verify(cache).invalidate(Set.of("playlist:1"));
+    }
+
+    @Test
+    void editPlaylist_WhenVersionAlwaysTaken_ShouldThrowConflict() {
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistOperationRepository.saveAllAndFlush(anyList()))
+                .thenThrow(versionTaken());
+
+        assertThrows(ConflictException.class, () -> playlistService.editPlaylist(1L, 0L,
+                List.of(operation(PlaylistOperation.Type.REMOVE, 0))));
+        verify(playlistEntryRepository, never()).findSlice(anyLong(), anyInt(), anyInt());
+        verify(cache, never()).invalidate(anyCollection());
+    }
+
+    @Test
+    void editPlaylist_WhenEntryChangedConcurrently_ShouldRetry() {
+        PlaylistEntry entry = PlaylistEntry.of(testPlaylist, testTrack, 1024L);
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistEntryRepository.findSlice(1L, 0, 1)).thenReturn(List.of(entry));
+        doThrow(new ObjectOptimisticLockingFailureException(PlaylistEntry.class, 5L))
+                .doNothing()
+                .when(playlistEntryRepository).delete(entry);
+
+        playlistService.editPlaylist(1L, 0L, List.of(operation(PlaylistOperation.Type.REMOVE, 0)));
+
+        verify(playlistEntryRepository, times(2)).delete(entry);
+        verify(transactionManager).rollback(any());
+        verify(cache).invalidate(Set.of("playlist:1"));
+    }
+
+    @Test
+    void editPlaylist_WhenOtherConstraintViolated_ShouldNotRetry() {
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistOperationRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("null type",
+                        new ConstraintViolationException("null type", null, "type_not_null")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> playlistService.editPlaylist(
+                1L, 0L, List.of(operation(PlaylistOperation.Type.REMOVE, 0))));
+        verify(playlistOperationRepository).saveAllAndFlush(anyList());
+    }
+
+    @Test
+    void removeTracksFromPlaylists_ShouldLogRemoveForEachOccurrence() {
+        PlaylistEntry last = PlaylistEntry.of(testPlaylist, testTrack, 3072L);
+        PlaylistEntry first = PlaylistEntry.of(testPlaylist, testTrack, 1024L);
+        when(playlistEntryRepository.findPlaylistIdsByTrackIdIn(Set.of(1L)))
+                .thenReturn(List.of(1L));
+        when(playlistRepository.findById(1L)).thenReturn(Optional.of(testPlaylist));
+        when(playlistEntryRepository.findTrackIds(1L)).thenReturn(List.of(1L, 2L, 1L));
+        when(playlistEntryRepository.findSlice(1L, 2, 1)).thenReturn(List.of(last));
+        when(playlistEntryRepository.findSlice(1L, 0, 1)).thenReturn(List.of(first));
+
+        playlistService.removeTracksFromPlaylists(List.of(1L));
+
+        verify(playlistOperationRepository).saveAllAndFlush(
+                argThat((List<PlaylistOperation> logged) -> logged.size() == 2
+                        && logged.get(0).getPosition() == 2
+                        && logged.get(1).getPosition() == 0
+                        && logged.get(1).getVersion() == 2L));
+        verify(playlistEntryRepository).delete(last);
+        verify(playlistEntryRepository).delete(first);
+        verify(cache).invalidate(Set.of("playlist:1"));
+    }
+
+    @Test
+    void removeTracksFromPlaylists_WhenPlaylistDeleted_ShouldSkipIt() {
+        when(playlistEntryRepository.findPlaylistIdsByTrackIdIn(Set.of(1L)))
+                .thenReturn(List.of(2L));
+        when(playlistRepository.findById(2L)).thenReturn(Optional.empty());
+
+        playlistService.removeTracksFromPlaylists(List.of(1L));
+
+        verify(playlistOperationRepository, never()).saveAllAndFlush(anyList());
+        verify(cache, never()).invalidate(anyCollection());
+    }
+
+    @Test
+    void getOperations_ShouldReturnOperationsAfterVersion() {
+        PlaylistOperation operation = PlaylistOps.Op.move(0, 2).toOperation(1L, 3L);
+        when(playlistRepository.existsById(1L)).thenReturn(true);
+        when(playlistOperationRepository.findSince(1L, 2L)).thenReturn(List.of(operation));
+
+        assertEquals(List.of(operation), playlistService.getOperations(1L, 2L));
+    }
+
+    @Test
+    void getOperations_WhenVersionAhead_ShouldThrowException() {
+        when(playlistRepository.existsById(1L)).thenReturn(true);
+        when(playlistOperationRepository.findHeadVersion(1L)).thenReturn(2L);
+
+        assertThrows(NotFoundException.class, () -> playlistService.getOperations(1L, 5L));
+    }
+
+    @Test
+    void between_ShouldReturnNullWhenGapIsTooSmall() {
+        assertNull(PlaylistService.between(10L, 12L, 2));
+        assertArrayEquals(new long[] {11L}, PlaylistService.between(10L, 12L, 1));
+    }
+
+    private static PlaylistOperationDto operation(PlaylistOperation.Type type, int position) {
+        PlaylistOperationDto operation = new PlaylistOperationDto();
+        operation.setType(type);
+        operation.setPosition(position);
+        return operation;
+    }
+
+    private static DataIntegrityViolationException versionTaken() {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", null,
+                        PlaylistOperation.VERSION_CONSTRAINT));
     }
-}
\ No newline at end of file
+}
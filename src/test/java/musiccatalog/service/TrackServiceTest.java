@@ -4,27 +4,40 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import jakarta.persistence.EntityManager;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
 
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.TrackCreateDto;
+import musiccatalog.dto.get.KeysetPage;
+import musiccatalog.dto.snapshot.TrackSnapshot;
 import musiccatalog.dto.update.TrackUpdateDto;
+import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.Album;
 import musiccatalog.model.Genre;
+import musiccatalog.model.PlaylistEntry;
 import musiccatalog.model.Track;
 import musiccatalog.repository.AlbumRepository;
 import musiccatalog.repository.GenreRepository;
 import musiccatalog.repository.TrackRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 class TrackServiceTest {
@@ -41,6 +54,15 @@ class TrackServiceTest {
     @Mock
     private InMemoryCache cache;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlaylistService playlistService;
+
     @InjectMocks
     private TrackService trackService;
 
@@ -50,9 +72,17 @@ class TrackServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(cache.getOrLoad(anyString(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoad(anyString(), any(), any(), anyCollection()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoadById(any(), anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<?>>getArgument(2)
+                        .apply(invocation.<Long>getArgument(1)));
         testAlbum = new Album();
         testAlbum.setId(1L);
         testAlbum.setName("Test Album");
+        testAlbum.setTracks(new ArrayList<>());
 
         testGenre = new Genre();
         testGenre.setId(1L);
@@ -71,30 +101,47 @@ class TrackServiceTest {
 
     @Test
     void getTrackById_WhenNotCached_ShouldFetchFromRepository() {
-        String cacheKey = "tracks_id_1";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(trackRepository.findById(1L)).thenReturn(Optional.of(testTrack));
+        when(trackRepository.findSnapshotById(1L))
+                .thenReturn(Optional.of(TrackSnapshot.of(testTrack)));
 
-        Optional<Track> result = trackService.getTrackById(1L);
+        Optional<TrackSnapshot> result = trackService.getTrackById(1L);
 
         assertTrue(result.isPresent());
-        verify(cache).put(cacheKey, testTrack);
+        verify(cache).getOrLoadById(eq(IdFamily.TRACKS), eq(1L), any(), any(), any());
     }
 
     @Test
     void getTrackById_WhenNotFound_ShouldThrowException() {
-        when(trackRepository.findById(1L)).thenReturn(Optional.empty());
+        when(trackRepository.findSnapshotById(1L)).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () -> trackService.getTrackById(1L));
     }
 
+    @Test
+    void warm_WhenTrackKey_ShouldLoadThroughCache() {
+        when(trackRepository.findIdsByArtistName("Artist")).thenReturn(List.of(1L));
+        when(trackRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(TrackSnapshot.of(testTrack)));
+
+        assertTrue(trackService.warm("tracks_artist_Artist"));
+        verify(cache).getOrLoad(eq("tracks_artist_Artist"), any(), any());
+    }
+
+    @Test
+    void warm_WhenKeyOfOtherService_ShouldSkipIt() {
+        assertFalse(trackService.warm("albums_id_1"));
+        verify(cache, never()).getOrLoad(anyString(), any(), any());
+    }
+
     @Test
     void deleteTrack_ShouldDeleteSuccessfully() {
         when(trackRepository.findById(1L)).thenReturn(Optional.of(testTrack));
 
         trackService.deleteTrack(1L);
 
+        verify(playlistService).removeTracksFromPlaylists(List.of(1L));
         verify(trackRepository).delete(testTrack);
-        verify(cache).clear();
+        verify(trackRepository).flush();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -103,30 +150,60 @@ class TrackServiceTest {
 
         assertThrows(NotFoundException.class, () -> trackService.deleteTrack(1L));
         verify(trackRepository, never()).delete(any());
+        verify(playlistService, never()).removeTracksFromPlaylists(anyCollection());
+    }
+
+    @Test
+    void deleteTrack_WhenAddedToPlaylistConcurrently_ShouldThrowConflict() {
+        when(trackRepository.findById(1L)).thenReturn(Optional.of(testTrack));
+        doThrow(new DataIntegrityViolationException("foreign key",
+                new ConstraintViolationException("foreign key", null,
+                        PlaylistEntry.TRACK_CONSTRAINT)))
+                .when(trackRepository).flush();
+
+        assertThrows(ConflictException.class, () -> trackService.deleteTrack(1L));
+        verify(cache, never()).invalidate(anyCollection());
     }
 
     @Test
     void getTrackByName_WhenNotCached_ShouldFetchFromRepository() {
         String cacheKey = "tracks_name_Test";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(trackRepository.findTracksByName("Test")).thenReturn(List.of(testTrack));
+        when(trackRepository.findIdsByName("Test")).thenReturn(List.of(1L));
+        when(trackRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(TrackSnapshot.of(testTrack)));
 
-        List<Track> result = trackService.getTrackByName("Test");
+        List<TrackSnapshot> result = trackService.getTrackByName("Test");
 
         assertEquals(1, result.size());
-        verify(cache).put(cacheKey, result);
+        verify(cache).getOrLoad(eq(cacheKey), any(), any());
     }
 
     @Test
     void getTracksByArtistName_WhenNotCached_ShouldFetchFromRepository() {
         String cacheKey = "tracks_artist_TestArtist";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(trackRepository.findTracksByArtistName("TestArtist")).thenReturn(List.of(testTrack));
+        when(trackRepository.findIdsByArtistName("TestArtist")).thenReturn(List.of(1L));
+        when(trackRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(TrackSnapshot.of(testTrack)));
 
-        List<Track> result = trackService.getTracksByArtistName("TestArtist");
+        List<TrackSnapshot> result = trackService.getTracksByArtistName("TestArtist");
 
         assertEquals(1, result.size());
-        verify(cache).put(cacheKey, result);
+        verify(cache).getOrLoad(eq(cacheKey), any(), any());
+    }
+
+    @Test
+    void getTracksByArtistName_WhenManyTracks_ShouldLoadSnapshotsInBatches() {
+        List<Long> ids = LongStream.rangeClosed(1, 1200).boxed().toList();
+        when(trackRepository.findIdsByArtistName("TestArtist")).thenReturn(ids);
+        when(trackRepository.findSnapshotsByIdIn(anyCollection()))
+                .thenReturn(List.of(TrackSnapshot.of(testTrack)));
+
+        List<TrackSnapshot> result = trackService.getTracksByArtistName("TestArtist");
+
+        assertEquals(3, result.size());
+        verify(trackRepository).findSnapshotsByIdIn(ids.subList(0, 500));
+        verify(trackRepository).findSnapshotsByIdIn(ids.subList(500, 1000));
+        verify(trackRepository).findSnapshotsByIdIn(ids.subList(1000, 1200));
     }
 
     @Test
@@ -141,13 +218,14 @@ class TrackServiceTest {
 
         assertEquals("New Name", result.getName());
         assertEquals(180, result.getDuration()); // Original duration remains
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
     void updateTrack_ShouldUpdateOnlyAlbum() {
         Album newAlbum = new Album();
         newAlbum.setId(2L);
+        newAlbum.setTracks(new ArrayList<>());
 
         TrackUpdateDto dto = new TrackUpdateDto();
         dto.setAlbumId(2L);
@@ -160,7 +238,7 @@ class TrackServiceTest {
 
         assertNotNull(result);
         assertEquals(newAlbum, result.getAlbum());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -178,7 +256,7 @@ class TrackServiceTest {
 
         assertNotNull(result);
         assertTrue(result.getGenres().isEmpty());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -195,7 +273,7 @@ class TrackServiceTest {
 
         assertNotNull(result);
         assertEquals(1, result.getGenres().size());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -204,13 +282,28 @@ class TrackServiceTest {
         dto.setGenresIds(List.of(1L));
 
         when(trackRepository.findById(1L)).thenReturn(Optional.of(testTrack));
-        when(genreRepository.findById(1L)).thenReturn(Optional.of(testGenre));
+        when(genreRepository.findAllById(List.of(1L))).thenReturn(List.of(testGenre));
 
         trackService.updateTrack(1L, dto);
 
         assertTrue(testGenre.getTracks().contains(testTrack));
     }
 
+    @Test
+    void updateTrack_WithMissingGenres_ShouldReportAllMissingIds() {
+        TrackUpdateDto dto = new TrackUpdateDto();
+        dto.setGenresIds(List.of(1L, 7L, 8L));
+
+        when(trackRepository.findById(1L)).thenReturn(Optional.of(testTrack));
+        when(genreRepository.findAllById(List.of(1L, 7L, 8L))).thenReturn(List.of(testGenre));
+
+        NotFoundException exception = assertThrows(NotFoundException.class,
+                () -> trackService.updateTrack(1L, dto));
+        assertTrue(exception.getMessage().endsWith("[7, 8]"));
+        verify(genreRepository, never()).findById(anyLong());
+        verify(cache, never()).invalidate(anyCollection());
+    }
+
     @Test
     void updateTrack_WithZeroDuration_ShouldNotUpdate() {
         TrackUpdateDto dto = new TrackUpdateDto();
@@ -230,13 +323,12 @@ class TrackServiceTest {
     @Test
     void getTrackByName_WhenNotFound_ShouldReturnEmptyList() {
         String cacheKey = "tracks_name_Unknown";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(trackRepository.findTracksByName("Unknown")).thenReturn(Collections.emptyList());
+        when(trackRepository.findIdsByName("Unknown")).thenReturn(Collections.emptyList());
 
-        List<Track> result = trackService.getTrackByName("Unknown");
+        List<TrackSnapshot> result = trackService.getTrackByName("Unknown");
 
         assertTrue(result.isEmpty());
-        verify(cache).put(cacheKey, result);
+        verify(cache).getOrLoad(eq(cacheKey), any(), any());
     }
 
     @Test
@@ -258,16 +350,56 @@ class TrackServiceTest {
 
         assertNotNull(result);
         assertTrue(result.getGenres().isEmpty());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
     void getAllTracks_ShouldReturnAllTracks() {
-        when(trackRepository.findAll()).thenReturn(List.of(testTrack));
+        when(trackRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L));
+        when(trackRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(TrackSnapshot.of(testTrack)));
 
-        List<Track> result = trackService.getAllTracks();
+        KeysetPage<TrackSnapshot> result = trackService.getAllTracks(null, 10);
 
-        assertEquals(1, result.size());
-        assertEquals(testTrack, result.get(0));
+        assertEquals(1, result.items().size());
+        assertEquals(TrackSnapshot.of(testTrack), result.items().get(0));
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void getAllTracks_WhenMoreRemain_ShouldReturnNextCursor() {
+        when(trackRepository.findIdsAfter(5L, Limit.of(3))).thenReturn(List.of(6L, 7L, 8L));
+        when(trackRepository.findSnapshotsByIdIn(List.of(6L, 7L)))
+                .thenReturn(List.of(TrackSnapshot.of(testTrack), TrackSnapshot.of(testTrack)));
+
+        KeysetPage<TrackSnapshot> result = trackService.getAllTracks(5L, 2);
+
+        assertEquals(2, result.items().size());
+        assertEquals(7L, result.nextCursor());
+    }
+
+    @Test
+    void getAllTracks_ShouldBoundPageSize() {
+        when(trackRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of());
+
+        KeysetPage<TrackSnapshot> result = trackService.getAllTracks(null, 1_000_000);
+
+        assertTrue(result.items().isEmpty());
+        verify(trackRepository).findIdsAfter(0L, Limit.of(KeysetPage.MAX_SIZE + 1));
+        verify(trackRepository, never()).findSnapshotsByIdIn(any());
+    }
+
+    @Test
+    void forEachTrack_ShouldClearContextAfterEveryChunk() {
+        when(trackRepository.streamAllWithAlbum())
+                .thenReturn(Collections.nCopies(1001, testTrack).stream());
+        List<TrackSnapshot> exported = new ArrayList<>();
+
+        long count = trackService.forEachTrack(exported::add);
+
+        assertEquals(1001, count);
+        assertEquals(1001, exported.size());
+        assertEquals(testTrack.getName(), exported.get(1000).name());
+        verify(entityManager, times(3)).clear();
     }
-}
\ No newline at end of file
+}
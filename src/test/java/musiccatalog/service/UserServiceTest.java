@@ -4,22 +4,35 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
+import musiccatalog.cache.IdFamily;
 import musiccatalog.cache.InMemoryCache;
 import musiccatalog.dto.create.UserCreateDto;
+import musiccatalog.dto.snapshot.NamedRef;
+import musiccatalog.dto.snapshot.UserSnapshot;
 import musiccatalog.dto.update.UserUpdateDto;
 import musiccatalog.exception.ConflictException;
 import musiccatalog.exception.NotFoundException;
 import musiccatalog.model.User;
+import musiccatalog.repository.PlaylistRepository;
 import musiccatalog.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
@@ -27,9 +40,18 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PlaylistRepository playlistRepository;
+
     @Mock
     private InMemoryCache cache;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private UserService userService;
 
@@ -37,6 +59,13 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(cache.getOrLoad(anyString(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoad(anyString(), any(), any(), anyCollection()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(cache.getOrLoadById(any(), anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<?>>getArgument(2)
+                        .apply(invocation.<Long>getArgument(1)));
         testUser = new User();
         testUser.setId(1L);
         testUser.setName("Test User");
@@ -47,25 +76,26 @@ class UserServiceTest {
 
     @Test
     void getAllUsers_ShouldReturnAllUsers() {
-        when(userRepository.findAll()).thenReturn(List.of(testUser));
+        when(userRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L));
+        when(userRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(UserSnapshot.of(testUser)));
 
-        List<User> result = userService.getAllUsers();
+        List<UserSnapshot> result = userService.getAllUsers(null, 10).items();
 
         assertEquals(1, result.size());
-        verify(userRepository).findAll();
+        verify(userRepository).findIdsAfter(0L, Limit.of(11));
     }
 
     @Test
     void getUserById_WhenCached_ShouldReturnFromCache() {
-        String cacheKey = "users_id_1";
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(testUser);
+        when(cache.getOrLoadById(eq(IdFamily.USERS), eq(1L), any(), any(), any()))
+                .thenReturn(UserSnapshot.of(testUser));
 
-        Optional<User> result = userService.getUserById(1L);
+        Optional<UserSnapshot> result = userService.getUserById(1L);
 
         assertTrue(result.isPresent());
-        assertEquals(testUser, result.get());
-        verify(userRepository, never()).findById(anyLong());
+        assertEquals(UserSnapshot.of(testUser), result.get());
+        verify(userRepository, never()).findSnapshotById(anyLong());
     }
 
     @Test
@@ -75,8 +105,7 @@ class UserServiceTest {
         dto.setEmail("new@example.com");
         dto.setPassword("newpass");
 
-        when(userRepository.findUserByEmail("new@example.com")).thenReturn(null);
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
             User saved = invocation.getArgument(0);
             saved.setId(2L);
             return saved;
@@ -87,7 +116,7 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals("New User", result.getName());
         assertEquals("new@example.com", result.getEmail());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
     @Test
@@ -95,10 +124,11 @@ class UserServiceTest {
         UserCreateDto dto = new UserCreateDto();
         dto.setEmail("existing@example.com");
 
-        when(userRepository.findUserByEmail("existing@example.com"))
-                .thenReturn(new User());
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(duplicateEmail());
 
         assertThrows(ConflictException.class, () -> userService.createUser(dto));
+        verify(cache, never()).invalidate(anyCollection());
     }
 
     @Test
@@ -106,53 +136,68 @@ class UserServiceTest {
         UserUpdateDto dto = new UserUpdateDto();
         dto.setEmail("taken@example.com");
 
-        User otherUser = new User();
-        otherUser.setId(2L);
-
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.findUserByEmail("taken@example.com")).thenReturn(otherUser);
+        when(userRepository.saveAndFlush(testUser))
+                .thenThrow(duplicateEmail());
 
         assertThrows(ConflictException.class, () -> userService.updateUser(1L, dto));
     }
 
     @Test
     void deleteUser_ShouldDeleteAndClearCache() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.findSnapshotById(1L)).thenReturn(Optional.of(new UserSnapshot(
+                1L, "Test User", "test@example.com", List.of(new NamedRef(7L, "Mix")))));
 
         userService.deleteUser(1L);
 
-        verify(userRepository).delete(testUser);
-        verify(cache).clear();
+        verify(playlistRepository).deleteTrackLinksByAuthorId(1L);
+        verify(playlistRepository).deleteOperationsByAuthorId(1L);
+        verify(playlistRepository).deleteRowsByAuthorId(1L);
+        verify(userRepository).deleteRowById(1L);
+        verify(userRepository, never()).delete(any(User.class));
+        verify(transactionManager).commit(any());
+        verify(cache).invalidate(Set.of("user:1", "user-name:Test User", "playlist:7"));
+    }
+
+    @Test
+    void deleteUser_WhenNotFound_ShouldNotDeleteAnything() {
+        when(userRepository.findSnapshotById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> userService.deleteUser(1L));
+        verify(playlistRepository, never()).deleteRowsByAuthorId(anyLong());
+        verify(userRepository, never()).deleteRowById(anyLong());
+        verify(cache, never()).invalidate(anyCollection());
     }
 
     @Test
     void getUserByName_ShouldReturnCachedUser() {
         String cacheKey = "users_name_Test User";
-        when(cache.containsKey(cacheKey)).thenReturn(true);
-        when(cache.get(cacheKey)).thenReturn(testUser);
+        when(cache.getOrLoad(eq(cacheKey), any(), any(), anyCollection()))
+                .thenReturn(UserSnapshot.of(testUser));
 
-        User result = userService.getUserByName("Test User");
+        UserSnapshot result = userService.getUserByName("Test User");
 
-        assertEquals(testUser, result);
-        verify(userRepository, never()).findUserByName(anyString());
+        assertEquals(UserSnapshot.of(testUser), result);
+        verify(userRepository, never()).findIdsByName(anyString());
     }
 
     @Test
     void getUserById_WhenNotFound_ShouldThrowException() {
-        when(userRepository.findById(99L)).thenReturn(Optional.empty());
+        when(userRepository.findSnapshotById(99L)).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () -> userService.getUserById(99L));
     }
 
     @Test
     void getUserByName_WhenNotCached_ShouldFetchFromRepository() {
         String cacheKey = "users_name_Test User";
-        when(cache.containsKey(cacheKey)).thenReturn(false);
-        when(userRepository.findUserByName("Test User")).thenReturn(testUser);
+        when(userRepository.findIdsByName("Test User")).thenReturn(List.of(1L));
+        when(userRepository.findSnapshotsByIdIn(List.of(1L)))
+                .thenReturn(List.of(UserSnapshot.of(testUser)));
 
-        User result = userService.getUserByName("Test User");
+        UserSnapshot result = userService.getUserByName("Test User");
 
-        assertEquals(testUser, result);
-        verify(cache).put(cacheKey, testUser);
+        assertEquals(UserSnapshot.of(testUser), result);
+        verify(cache).getOrLoad(eq(cacheKey), any(), any(), anyCollection());
     }
 
     @Test
@@ -161,14 +206,62 @@ class UserServiceTest {
         dto.setName("New Name Only");
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(testUser);
 
         User result = userService.updateUser(1L, dto);
 
         assertEquals("New Name Only", result.getName());
         assertEquals(testUser.getEmail(), result.getEmail());
         assertEquals(testUser.getPassword(), result.getPassword());
-        verify(cache).clear();
+        verify(cache).invalidate(anyCollection());
     }
 
-}
\ No newline at end of file
+    @Test
+    void createUsers_ShouldCommitEveryChunkSeparately() {
+        List<UserCreateDto> dtos = new ArrayList<>();
+        for (int i = 0; i <= UserService.BULK_CHUNK; i++) {
+            UserCreateDto dto = new UserCreateDto();
+            dto.setName("User " + i);
+            dto.setEmail("user" + i + "@example.com");
+            dto.setPassword("password");
+            dtos.add(dto);
+        }
+        when(userRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<User> result = userService.createUsers(dtos);
+
+        assertEquals(UserService.BULK_CHUNK + 1, result.size());
+        verify(userRepository, times(2)).findEmailsIn(anyCollection());
+        verify(transactionManager, times(2)).commit(any());
+        verify(entityManager, times(2)).clear();
+        verify(cache, times(2)).invalidate(anyCollection());
+    }
+
+    @Test
+    void createUsers_WhenEmailRepeatedInRequest_ShouldThrowConflictException() {
+        UserCreateDto dto = new UserCreateDto();
+        dto.setEmail("same@example.com");
+
+        assertThrows(ConflictException.class, () -> userService.createUsers(List.of(dto, dto)));
+        verify(userRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createUsers_WhenEmailTaken_ShouldRollBackChunk() {
+        UserCreateDto dto = new UserCreateDto();
+        dto.setEmail("existing@example.com");
+        when(userRepository.findEmailsIn(List.of("existing@example.com")))
+                .thenReturn(List.of("existing@example.com"));
+
+        assertThrows(ConflictException.class, () -> userService.createUsers(List.of(dto)));
+        verify(userRepository, never()).saveAll(anyList());
+        verify(transactionManager).rollback(any());
+        verify(cache, never()).invalidate(anyCollection());
+    }
+
+    private static DataIntegrityViolationException duplicateEmail() {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", null, User.EMAIL_CONSTRAINT));
+    }
+}